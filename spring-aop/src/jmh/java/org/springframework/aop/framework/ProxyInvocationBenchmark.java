@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for calls through JDK and CGLIB proxies with an interceptor chain,
+ * with a regular and a frozen proxy configuration.
+ * <p>Run with {@code -prof gc} for the allocation rate per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ProxyInvocationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"jdk", "cglib"})
+		public String proxyType;
+
+		@Param({"false", "true"})
+		public boolean frozen;
+
+		@Param({"0", "1", "3"})
+		public int interceptors;
+
+		public Service proxy;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			ProxyFactory proxyFactory = new ProxyFactory(new DefaultService());
+			proxyFactory.setInterfaces(Service.class);
+			proxyFactory.setProxyTargetClass("cglib".equals(this.proxyType));
+			for (int i = 0; i < this.interceptors; i++) {
+				proxyFactory.addAdvice((MethodInterceptor) invocation -> invocation.proceed());
+			}
+			proxyFactory.setFrozen(this.frozen);
+			this.proxy = (Service) proxyFactory.getProxy();
+		}
+	}
+
+
+	@Benchmark
+	public void invoke(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.proxy.echo("value"));
+	}
+
+	@Benchmark
+	public void invokeWithoutArguments(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.proxy.name());
+	}
+
+
+	public interface Service {
+
+		String echo(String value);
+
+		String name();
+	}
+
+
+	public static class DefaultService implements Service {
+
+		@Override
+		public String echo(String value) {
+			return value;
+		}
+
+		@Override
+		public String name() {
+			return "service";
+		}
+	}
+
+}
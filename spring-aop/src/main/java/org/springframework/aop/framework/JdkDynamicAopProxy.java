@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,22 +18,33 @@ package org.springframework.aop.framework;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.aop.Advisor;
 import org.springframework.aop.AopInvocationException;
 import org.springframework.aop.RawTargetAccess;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.cglib.reflect.FastMethod;
 import org.springframework.core.DecoratingProxy;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 /**
  * JDK-based {@link AopProxy} implementation for the Spring AOP framework,
@@ -53,6 +64,11 @@ import org.springframework.util.ClassUtils;
  * <p>Proxies are serializable so long as all Advisors (including Advices
  * and Pointcuts) and the TargetSource are serializable.
  *
+ * <p>As with {@link CglibAopProxy}, the interception chains of a proxy with a
+ * static target and a frozen configuration are resolved once per method, and
+ * the target method is invoked through a generated CGLIB {@link FastClass} for
+ * the proxied interface instead of through reflection.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -79,6 +95,18 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	/** We use a static Log to avoid serialization issues. */
 	private static final Log logger = LogFactory.getLog(JdkDynamicAopProxy.class);
 
+	/**
+	 * Advised and its super-interfaces: identity checks against these are
+	 * considerably cheaper than an isAssignableFrom check on every call.
+	 */
+	private static final Class<?>[] advisedInterfaces = getAdvisedInterfaces();
+
+	/** Marker for an interface that no FastClass can be generated for. */
+	private static final Object NO_FAST_CLASS = new Object();
+
+	/** Cache of generated FastClass instances per proxied interface. */
+	private static final Map<Class<?>, Object> fastClassCache = new ConcurrentReferenceHashMap<>();
+
 	/** Config used to configure this proxy. */
 	private final AdvisedSupport advised;
 
@@ -92,6 +120,13 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	 */
 	private boolean hashCodeDefined;
 
+	/**
+	 * Fixed interception chains per method, for a static target and a frozen
+	 * configuration: lazily populated, for the current advisors only.
+	 */
+	@Nullable
+	private transient volatile FixedChains fixedChains;
+
 
 	/**
 	 * Construct a new JdkDynamicAopProxy for the given AOP configuration.
@@ -173,8 +208,7 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// There is only getDecoratedClass() declared -> dispatch to proxy config.
 				return AopProxyUtils.ultimateTargetClass(this.advised);
 			}
-			else if (!this.advised.opaque && method.getDeclaringClass().isInterface() &&
-					method.getDeclaringClass().isAssignableFrom(Advised.class)) {
+			else if (!this.advised.opaque && isAdvisedInterface(method.getDeclaringClass())) {
 				// Service invocations on ProxyConfig with the proxy config...
 				return AopUtils.invokeJoinpointUsingReflection(this.advised, method, args);
 			}
@@ -192,8 +226,18 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			target = targetSource.getTarget();
 			Class<?> targetClass = (target != null ? target.getClass() : null);
 
-			// Get the interception chain for this method.
-			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			// Get the interception chain for this method: fixed if the target is static
+			// and the configuration frozen, in which case we can use a generated invoker.
+			List<Object> chain;
+			FastMethod invoker = null;
+			if (this.advised.isFrozen() && targetSource.isStatic()) {
+				FixedChain fixedChain = getFixedChain(method, targetClass);
+				chain = fixedChain.chain;
+				invoker = fixedChain.invoker;
+			}
+			else {
+				chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			}
 
 			// Check whether we have any advice. If we don't, we can fallback on direct
 			// reflective invocation of the target, and avoid creating a MethodInvocation.
@@ -202,12 +246,14 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// Note that the final invoker must be an InvokerInterceptor so we know it does
 				// nothing but a reflective operation on the target, and no hot swapping or fancy proxying.
 				Object[] argsToUse = AopProxyUtils.adaptArgumentsIfNecessary(method, args);
-				retVal = AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse);
+				retVal = (invoker != null ? invokeJoinpoint(invoker, target, method, argsToUse) :
+						AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse));
 			}
 			else {
 				// We need to create a method invocation...
-				MethodInvocation invocation =
-						new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain);
+				MethodInvocation invocation = (invoker != null ?
+						new FixedChainMethodInvocation(proxy, target, method, args, targetClass, chain, invoker) :
+						new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain));
 				// Proceed to the joinpoint through the interceptor chain.
 				retVal = invocation.proceed();
 			}
@@ -241,6 +287,125 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	}
 
 
+	/**
+	 * Determine whether the given class is {@link Advised} or one of its
+	 * super-interfaces, in which case we dispatch to the proxy config.
+	 */
+	private static boolean isAdvisedInterface(Class<?> declaringClass) {
+		for (Class<?> advisedInterface : advisedInterfaces) {
+			if (declaringClass == advisedInterface) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Class<?>[] getAdvisedInterfaces() {
+		Set<Class<?>> interfaces = new LinkedHashSet<>();
+		collectInterfaces(Advised.class, interfaces);
+		return ClassUtils.toClassArray(interfaces);
+	}
+
+	private static void collectInterfaces(Class<?> ifc, Set<Class<?>> interfaces) {
+		if (interfaces.add(ifc)) {
+			for (Class<?> superIfc : ifc.getInterfaces()) {
+				collectInterfaces(superIfc, interfaces);
+			}
+		}
+	}
+
+	/**
+	 * Return the fixed interception chain for the given method, resolving it on
+	 * first access. Chains resolved for previous advisors are discarded, in case
+	 * the configuration has been modified in the meantime.
+	 */
+	private FixedChain getFixedChain(Method method, @Nullable Class<?> targetClass) {
+		Advisor[] advisors = this.advised.getAdvisors();
+		FixedChains fixedChains = this.fixedChains;
+		if (fixedChains == null || fixedChains.advisors != advisors) {
+			fixedChains = new FixedChains(advisors);
+			this.fixedChains = fixedChains;
+		}
+		FixedChain fixedChain = fixedChains.get(method);
+		if (fixedChain == null) {
+			fixedChain = fixedChains.put(method, new FixedChain(
+					this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass), getInvoker(method)));
+		}
+		return fixedChain;
+	}
+
+	/**
+	 * Return a generated invoker for the given interface method, if possible.
+	 */
+	@Nullable
+	private static FastMethod getInvoker(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (!declaringClass.isInterface() || declaringClass.getClassLoader() == null) {
+			return null;
+		}
+		Object fastClass = fastClassCache.get(declaringClass);
+		if (fastClass == null) {
+			try {
+				FastClass.Generator generator = new FastClass.Generator();
+				generator.setType(declaringClass);
+				generator.setContextClass(declaringClass);
+				generator.setClassLoader(declaringClass.getClassLoader());
+				generator.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+				fastClass = generator.create();
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Cannot generate invoker for " + declaringClass + " - using reflection instead", ex);
+				}
+				fastClass = NO_FAST_CLASS;
+			}
+			fastClassCache.put(declaringClass, fastClass);
+		}
+		if (fastClass == NO_FAST_CLASS ||
+				((FastClass) fastClass).getIndex(method.getName(), method.getParameterTypes()) < 0) {
+			return null;
+		}
+		return ((FastClass) fastClass).getMethod(method);
+	}
+
+	/**
+	 * Invoke the given target method through the given generated invoker,
+	 * with the same exception semantics as
+	 * {@link AopUtils#invokeJoinpointUsingReflection}.
+	 * <p>The generated invoker casts the target and the arguments without the
+	 * checks that reflection performs, so an invalid target or invalid arguments
+	 * are passed through reflection instead, raising an {@link AopInvocationException}.
+	 */
+	@Nullable
+	private static Object invokeJoinpoint(FastMethod invoker, @Nullable Object target, Method method, Object[] args)
+			throws Throwable {
+
+		if (!method.getDeclaringClass().isInstance(target) || !isInvocableWith(method, args)) {
+			return AopUtils.invokeJoinpointUsingReflection(target, method, args);
+		}
+		try {
+			return invoker.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+	private static boolean isInvocableWith(Method method, @Nullable Object[] args) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		int argCount = (args != null ? args.length : 0);
+		if (argCount != parameterTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < argCount; i++) {
+			if (!ClassUtils.isAssignableValue(parameterTypes[i], args[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
 	/**
 	 * Equality means interfaces, advisors and TargetSource are equal.
 	 * <p>The compared object may be a JdkDynamicAopProxy instance itself
@@ -283,4 +448,79 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		return JdkDynamicAopProxy.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
 	}
 
+
+
+	/**
+	 * Fixed interception chains per method, resolved for the given advisors.
+	 * <p>Looked up by identity: a JDK proxy class passes the same Method
+	 * instance on every call. The map is copied on write, so reads can
+	 * access it without locking.
+	 */
+	private static final class FixedChains {
+
+		final Advisor[] advisors;
+
+		private volatile Map<Method, FixedChain> chains = Collections.emptyMap();
+
+		FixedChains(Advisor[] advisors) {
+			this.advisors = advisors;
+		}
+
+		@Nullable
+		FixedChain get(Method method) {
+			return this.chains.get(method);
+		}
+
+		synchronized FixedChain put(Method method, FixedChain fixedChain) {
+			FixedChain existing = this.chains.get(method);
+			if (existing != null) {
+				return existing;
+			}
+			Map<Method, FixedChain> chains = new IdentityHashMap<>(this.chains);
+			chains.put(method, fixedChain);
+			this.chains = chains;
+			return fixedChain;
+		}
+	}
+
+
+	/**
+	 * Interception chain and target invoker for a method, fixed for a static
+	 * target and a frozen configuration.
+	 */
+	private static final class FixedChain {
+
+		final List<Object> chain;
+
+		@Nullable
+		final FastMethod invoker;
+
+		FixedChain(List<Object> chain, @Nullable FastMethod invoker) {
+			this.chain = chain;
+			this.invoker = invoker;
+		}
+	}
+
+
+	/**
+	 * Method invocation that invokes the target method through a generated invoker.
+	 */
+	private static final class FixedChainMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final FastMethod invoker;
+
+		FixedChainMethodInvocation(Object proxy, @Nullable Object target, Method method, Object[] arguments,
+				@Nullable Class<?> targetClass, List<Object> chain, FastMethod invoker) {
+
+			super(proxy, target, method, arguments, targetClass, chain);
+			this.invoker = invoker;
+		}
+
+		@Override
+		@Nullable
+		protected Object invokeJoinpoint() throws Throwable {
+			return JdkDynamicAopProxy.invokeJoinpoint(this.invoker, this.target, this.method, this.arguments);
+		}
+	}
+
 }
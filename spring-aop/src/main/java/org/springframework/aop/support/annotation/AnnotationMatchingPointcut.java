@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -167,7 +167,7 @@ public class AnnotationMatchingPointcut implements Pointcut {
 
 
 	/**
-	 * {@link ClassFilter} that delegates to {@link AnnotationUtils#isCandidateClass}
+	 * {@link ClassFilter} that delegates to {@link AnnotationUtils#isCandidateTypeHierarchy}
 	 * for filtering classes whose methods are not worth searching to begin with.
 	 * @since 5.2
 	 */
@@ -181,7 +181,7 @@ public class AnnotationMatchingPointcut implements Pointcut {
 
 		@Override
 		public boolean matches(Class<?> clazz) {
-			return AnnotationUtils.isCandidateClass(clazz, this.annotationType);
+			return AnnotationUtils.isCandidateTypeHierarchy(clazz, this.annotationType);
 		}
 
 		@Override
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean} and
+ * {@link AutowireCapableBeanFactory#createBean} with singleton and prototype
+ * bean definitions using constructor and property injection.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"constructor", "property", "autowired"})
+		public String injection;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			this.beanFactory.registerBeanDefinition("dependency", new RootBeanDefinition(Dependency.class));
+
+			RootBeanDefinition singleton = new RootBeanDefinition(Component.class);
+			RootBeanDefinition prototype = new RootBeanDefinition(Component.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			switch (this.injection) {
+				case "constructor":
+					singleton.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("dependency"));
+					prototype.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("dependency"));
+					break;
+				case "property":
+					singleton.getPropertyValues().add("dependency", new RuntimeBeanReference("dependency"));
+					prototype.getPropertyValues().add("dependency", new RuntimeBeanReference("dependency"));
+					break;
+				case "autowired":
+					singleton.setAutowireMode(AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR);
+					prototype.setAutowireMode(AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR);
+					break;
+				default:
+					throw new IllegalStateException("Unknown injection mode: " + this.injection);
+			}
+			this.beanFactory.registerBeanDefinition("singleton", singleton);
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	@Benchmark
+	public void getSingletonByName(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("singleton"));
+	}
+
+	@Benchmark
+	public void getSingletonByType(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean(Dependency.class));
+	}
+
+	@Benchmark
+	public void getPrototypeByName(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+	@Benchmark
+	public void createBean(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.createBean(Component.class));
+	}
+
+	@Benchmark
+	public void createBeanAutowired(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.createBean(Component.class, AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR, true));
+	}
+
+
+	public static class Dependency {
+	}
+
+
+	public static class Component {
+
+		private Dependency dependency;
+
+		public Component() {
+		}
+
+		public Component(Dependency dependency) {
+			this.dependency = dependency;
+		}
+
+		public Dependency getDependency() {
+			return this.dependency;
+		}
+
+		public void setDependency(Dependency dependency) {
+			this.dependency = dependency;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Contention benchmarks for the singleton registry of a shared
+ * {@link DefaultListableBeanFactory}, from 1 to 64 threads: singleton lookups
+ * and prototype creation with a singleton dependency, which registers the
+ * dependent bean on every call.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SingletonRegistryContentionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			this.beanFactory.registerBeanDefinition("dependency", new RootBeanDefinition(Dependency.class));
+			RootBeanDefinition prototype = new RootBeanDefinition(Component.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("dependency"));
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	@Benchmark
+	@Threads(1)
+	public void getSingleton1(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("dependency"));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void getSingleton4(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("dependency"));
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void getSingleton16(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("dependency"));
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void getSingleton64(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("dependency"));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void getPrototype1(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void getPrototype4(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void getPrototype16(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void getPrototype64(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+
+	public static class Dependency {
+	}
+
+
+	public static class Component {
+
+		private final Dependency dependency;
+
+		public Component(Dependency dependency) {
+			this.dependency = dependency;
+		}
+
+		public Dependency getDependency() {
+			return this.dependency;
+		}
+	}
+
+}
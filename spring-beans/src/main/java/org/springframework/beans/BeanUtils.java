@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -66,6 +66,21 @@ import org.springframework.util.StringUtils;
  */
 public abstract class BeanUtils {
 
+	/**
+	 * System property that instructs Spring to invoke bean constructors and
+	 * property methods through generated accessors instead of reflection:
+	 * {@code -Dspring.beans.generated-accessors=true}.
+	 * <p>The default is "false", using standard reflection. Switching this flag to
+	 * "true" trades a one-time class generation cost per bean class for cheaper
+	 * invocations, which may pay off for prototype-heavy or long-running applications.
+	 * Private constructors and methods are still invoked through reflection.
+	 * @since 5.2.3
+	 * @see #instantiateClass(Constructor, Object...)
+	 * @see BeanWrapperImpl
+	 */
+	public static final String GENERATED_ACCESSORS_PROPERTY_NAME = "spring.beans.generated-accessors";
+
+
 	private static final Log logger = LogFactory.getLog(BeanUtils.class);
 
 	private static final Set<Class<?>> unknownEditorTypes =
@@ -197,7 +212,8 @@ public abstract class BeanUtils {
 						argsWithDefaultValues[i] = args[i];
 					}
 				}
-				return ctor.newInstance(argsWithDefaultValues);
+				return (GeneratedAccessors.enabled ? GeneratedAccessors.newInstance(ctor, argsWithDefaultValues) :
+						ctor.newInstance(argsWithDefaultValues));
 			}
 		}
 		catch (InstantiationException ex) {
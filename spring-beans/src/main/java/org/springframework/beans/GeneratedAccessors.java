@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.cglib.reflect.FastConstructor;
+import org.springframework.cglib.reflect.FastMethod;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal cache of generated accessors for bean constructors and property
+ * methods: a CGLIB {@link FastClass} is generated per class on first use,
+ * invoking constructors and methods directly instead of through reflection.
+ *
+ * <p>Only active if the {@value BeanUtils#GENERATED_ACCESSORS_PROPERTY_NAME}
+ * property is set to "true". Private members, classes loaded by the bootstrap
+ * ClassLoader and classes that a FastClass cannot be defined for (e.g. due to
+ * the module system or a sealed package) are invoked through reflection.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see BeanUtils#instantiateClass(Constructor, Object...)
+ * @see BeanWrapperImpl
+ */
+final class GeneratedAccessors {
+
+	/** Whether generated accessors are active. */
+	static final boolean enabled = SpringProperties.getFlag(BeanUtils.GENERATED_ACCESSORS_PROPERTY_NAME);
+
+	/** Marker for a class or member without a generated accessor. */
+	private static final Object NOT_AVAILABLE = new Object();
+
+	private static final Log logger = LogFactory.getLog(GeneratedAccessors.class);
+
+	/** Cache of FastClass instances per class, or NOT_AVAILABLE. */
+	private static final Map<Class<?>, Object> fastClassCache = new ConcurrentReferenceHashMap<>(64);
+
+	/** Cache of FastConstructor/FastMethod instances per member, or NOT_AVAILABLE. */
+	private static final Map<Executable, Object> accessorCache = new ConcurrentReferenceHashMap<>(256);
+
+
+	private GeneratedAccessors() {
+	}
+
+
+	/**
+	 * Create a new instance through a generated accessor for the given constructor,
+	 * if possible, or through reflection otherwise.
+	 * @param ctor the constructor to invoke
+	 * @param args the constructor arguments
+	 * @return the new instance
+	 * @see #isInvocableWith
+	 */
+	static <T> T newInstance(Constructor<T> ctor, Object[] args)
+			throws InstantiationException, IllegalAccessException, InvocationTargetException {
+
+		if (isInvocableWith(ctor.getParameterTypes(), args)) {
+			FastConstructor fastConstructor = getConstructor(ctor);
+			if (fastConstructor != null) {
+				return ctor.getDeclaringClass().cast(fastConstructor.newInstance(args));
+			}
+		}
+		return ctor.newInstance(args);
+	}
+
+	/**
+	 * Invoke the given method through a generated accessor, if possible,
+	 * or through reflection otherwise.
+	 * @param method the method to invoke
+	 * @param target the target object to invoke the method on
+	 * @param args the method arguments
+	 * @return the method's return value
+	 * @see #isInvocableWith
+	 */
+	@Nullable
+	static Object invoke(Method method, Object target, Object[] args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		if (isInvocableWith(method.getParameterTypes(), args)) {
+			FastMethod fastMethod = getMethod(method);
+			if (fastMethod != null) {
+				return fastMethod.invoke(target, args);
+			}
+		}
+		ReflectionUtils.makeAccessible(method);
+		return method.invoke(target, args);
+	}
+
+	/**
+	 * Return a generated accessor for the given constructor, if possible.
+	 * @param ctor the constructor to invoke
+	 * @return the generated accessor, or {@code null} if the constructor
+	 * needs to be invoked through reflection
+	 */
+	@Nullable
+	static FastConstructor getConstructor(Constructor<?> ctor) {
+		Object accessor = accessorCache.get(ctor);
+		if (accessor == null) {
+			accessor = NOT_AVAILABLE;
+			Class<?> clazz = ctor.getDeclaringClass();
+			if (!Modifier.isAbstract(clazz.getModifiers())) {
+				FastClass fastClass = getFastClass(ctor);
+				if (fastClass != null && fastClass.getIndex(ctor.getParameterTypes()) >= 0) {
+					accessor = fastClass.getConstructor(ctor);
+				}
+			}
+			accessorCache.put(ctor, accessor);
+		}
+		return (accessor != NOT_AVAILABLE ? (FastConstructor) accessor : null);
+	}
+
+	/**
+	 * Return a generated accessor for the given method, if possible.
+	 * @param method the method to invoke
+	 * @return the generated accessor, or {@code null} if the method
+	 * needs to be invoked through reflection
+	 */
+	@Nullable
+	static FastMethod getMethod(Method method) {
+		Object accessor = accessorCache.get(method);
+		if (accessor == null) {
+			accessor = NOT_AVAILABLE;
+			if (!method.isBridge() && !method.isSynthetic()) {
+				FastClass fastClass = getFastClass(method);
+				if (fastClass != null && fastClass.getIndex(method.getName(), method.getParameterTypes()) >= 0) {
+					accessor = fastClass.getMethod(method);
+				}
+			}
+			accessorCache.put(method, accessor);
+		}
+		return (accessor != NOT_AVAILABLE ? (FastMethod) accessor : null);
+	}
+
+	/**
+	 * Determine whether the given arguments may be passed to a generated accessor
+	 * for a member with the given parameter types.
+	 * <p>Generated accessors cast and unbox their arguments without the checks
+	 * that reflection performs, so that mismatching arguments are to be passed
+	 * through reflection instead, raising an {@link IllegalArgumentException}.
+	 * @param parameterTypes the parameter types of the member
+	 * @param args the arguments to pass
+	 */
+	static boolean isInvocableWith(Class<?>[] parameterTypes, Object[] args) {
+		if (args.length != parameterTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < args.length; i++) {
+			if (!ClassUtils.isAssignableValue(parameterTypes[i], args[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Clear the cache of generated accessors.
+	 */
+	static void clearCache() {
+		fastClassCache.clear();
+		accessorCache.clear();
+	}
+
+	@Nullable
+	private static FastClass getFastClass(Executable member) {
+		if (Modifier.isPrivate(member.getModifiers())) {
+			return null;
+		}
+		Class<?> clazz = member.getDeclaringClass();
+		Object fastClass = fastClassCache.get(clazz);
+		if (fastClass == null) {
+			fastClass = generateFastClass(clazz);
+			fastClassCache.put(clazz, fastClass);
+		}
+		return (fastClass != NOT_AVAILABLE ? (FastClass) fastClass : null);
+	}
+
+	private static Object generateFastClass(Class<?> clazz) {
+		ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader == null || clazz.isInterface() || clazz.isArray() || clazz.isAnonymousClass()) {
+			return NOT_AVAILABLE;
+		}
+		try {
+			FastClass.Generator generator = new FastClass.Generator();
+			generator.setType(clazz);
+			generator.setContextClass(clazz);
+			generator.setClassLoader(classLoader);
+			generator.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+			return generator.create();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cannot generate accessors for " + clazz + " - using reflection instead", ex);
+			}
+			return NOT_AVAILABLE;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,9 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -40,6 +42,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -48,6 +55,7 @@ import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -71,14 +79,17 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotation;
 import org.springframework.core.annotation.MergedAnnotations;
 import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
 import org.springframework.core.log.LogMessage;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
@@ -171,6 +182,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of singleton-only bean names, keyed by dependency type. */
 	private final Map<Class<?>, String[]> singletonBeanNamesByType = new ConcurrentHashMap<>(64);
 
+	/** Map of matching autowire candidate names, keyed by injection point. */
+	private final Map<AutowireCandidatesKey, AutowireCandidateNames> autowireCandidateNamesByDependency =
+			new ConcurrentHashMap<>(64);
+
+	/** Number of times the by-type caches have been cleared, for child factories to check against. */
+	private final AtomicLong byTypeCacheGeneration = new AtomicLong();
+
 	/** List of bean definition names, in registration order. */
 	private volatile List<String> beanDefinitionNames = new ArrayList<>(256);
 
@@ -184,6 +202,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether bean definition metadata may be cached for all beans. */
 	private volatile boolean configurationFrozen = false;
 
+	/** Executor for pre-instantiating independent singletons in parallel, if any. */
+	@Nullable
+	private Executor bootstrapExecutor;
+
+	/** Whether to compact the metadata of pre-instantiated singletons in a frozen configuration. */
+	private boolean compactFrozenConfiguration = false;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -287,6 +312,69 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set an {@link Executor} for pre-instantiating singletons in parallel,
+	 * e.g. a dedicated {@link java.util.concurrent.ForkJoinPool}.
+	 * <p>Default is none, creating all non-lazy singletons in the calling thread.
+	 * If specified, {@link #preInstantiateSingletons()} groups the non-lazy
+	 * singletons into independent subtrees, as far as their dependencies are
+	 * declared in the merged bean definitions (depends-on, factory beans,
+	 * constructor arguments and property values), and creates each subtree
+	 * in a task of its own. Dependencies that are only discovered at creation
+	 * time (e.g. through autowiring annotations) are coordinated between tasks,
+	 * with each singleton being created by one thread and concurrent requesters
+	 * waiting for it. {@link SmartInitializingSingleton} callbacks are invoked
+	 * in the calling thread once all tasks have completed.
+	 * <p>Note that singleton registration order, and therefore the destruction
+	 * order of beans without declared dependencies, is not deterministic in
+	 * this mode. Beans must not rely on singleton creation being serialized.
+	 * @since 5.2.3
+	 * @see #preInstantiateSingletons()
+	 * @see #setConcurrentSingletonCreation
+	 */
+	public void setBootstrapExecutor(@Nullable Executor bootstrapExecutor) {
+		this.bootstrapExecutor = bootstrapExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for pre-instantiating singletons in parallel, if any.
+	 * @since 5.2.3
+	 */
+	@Nullable
+	public Executor getBootstrapExecutor() {
+		return this.bootstrapExecutor;
+	}
+
+	/**
+	 * Set whether to compact the metadata of singletons once they have been
+	 * pre-instantiated in a frozen configuration.
+	 * <p>Default is "false". Turn this on to reduce the footprint of a factory with
+	 * many singletons: when {@link #preInstantiateSingletons()} completes after
+	 * {@link #freezeConfiguration()}, the merged bean definitions of all created
+	 * singletons drop the state kept from their creation (resolved constructor
+	 * arguments, converted property values, post-processing results), and each
+	 * {@link MergedBeanDefinitionPostProcessor} is asked to release its metadata
+	 * for them (e.g. the injection metadata of annotation-driven autowiring).
+	 * All of it is rebuilt lazily if such a bean happens to be created again.
+	 * Prototypes and lazy-init singletons are not affected.
+	 * @since 5.2.3
+	 * @see #freezeConfiguration()
+	 * @see #preInstantiateSingletons()
+	 * @see MergedBeanDefinitionPostProcessor#resetBeanDefinition
+	 */
+	public void setCompactFrozenConfiguration(boolean compactFrozenConfiguration) {
+		this.compactFrozenConfiguration = compactFrozenConfiguration;
+	}
+
+	/**
+	 * Return whether to compact the metadata of pre-instantiated singletons
+	 * in a frozen configuration.
+	 * @since 5.2.3
+	 */
+	public boolean isCompactFrozenConfiguration() {
+		return this.compactFrozenConfiguration;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -306,6 +394,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 		this.autowireCandidateResolver = autowireCandidateResolver;
+		this.autowireCandidateNamesByDependency.clear();
 	}
 
 	/**
@@ -324,6 +413,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.bootstrapExecutor = otherListableFactory.bootstrapExecutor;
+			this.compactFrozenConfiguration = otherListableFactory.compactFrozenConfiguration;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware...
 			setAutowireCandidateResolver(
 					BeanUtils.instantiateClass(otherListableFactory.getAutowireCandidateResolver().getClass()));
@@ -731,6 +822,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 						"] does not implement specified dependency type [" + dependencyType.getName() + "]");
 			}
 			this.resolvableDependencies.put(dependencyType, autowiredValue);
+			this.autowireCandidateNamesByDependency.clear();
 		}
 	}
 
@@ -852,44 +944,22 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		//迭代触发所有的非懒加载单实例bean的initialization回调
-		for (String beanName : beanNames) {
-			//获取到对应的beanName的合并后的beanDefinition
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			//===================如果bean不是抽象的,并且是单例的,并且不是懒加载的====================
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				//---------------如果是FactoryBean-----------------
-				if (isFactoryBean(beanName)) {//则通过Factory创建bean实例
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						final FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
-											((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					//-------------------如果不是FactoryBean----------------
-					//直接创建并获取对应的bean
-					getBean(beanName);
-				}
+		Executor executor = this.bootstrapExecutor;
+		if (executor != null) {
+			preInstantiateSingletonsInParallel(beanNames, executor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				preInstantiateSingleton(beanName);
 			}
-			//===================如果bean不是抽象的,并且是单例的,并且不是懒加载的====================
 		}
 
 		//在单例预实例化阶段结束时调用，并保证已经创建了所有常规的单例bean。
 		for (String beanName : beanNames) {
 			Object singletonInstance = getSingleton(beanName);
 			if (singletonInstance instanceof SmartInitializingSingleton) {
+				StartupStep smartInitialize = getApplicationStartup().start("spring.beans.smart-initialize")
+						.tag("beanName", beanName);
 				final SmartInitializingSingleton smartSingleton = (SmartInitializingSingleton) singletonInstance;
 				if (System.getSecurityManager() != null) {
 					AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
@@ -900,6 +970,278 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				else {
 					smartSingleton.afterSingletonsInstantiated();
 				}
+				smartInitialize.end();
+			}
+		}
+
+		if (this.compactFrozenConfiguration && isConfigurationFrozen()) {
+			compactSingletonMetadata(beanNames);
+		}
+	}
+
+	/**
+	 * Release the metadata of the given singletons which is only needed for
+	 * their creation, as far as they have been created already.
+	 * @param beanNames the names of all bean definitions
+	 * @see #setCompactFrozenConfiguration
+	 */
+	private void compactSingletonMetadata(List<String> beanNames) {
+		int count = 0;
+		for (String beanName : beanNames) {
+			if (containsSingleton(beanName) && !isCurrentlyInCreation(beanName)) {
+				compactMergedBeanDefinition(beanName);
+				for (BeanPostProcessor processor : getBeanPostProcessors()) {
+					if (processor instanceof MergedBeanDefinitionPostProcessor) {
+						((MergedBeanDefinitionPostProcessor) processor).resetBeanDefinition(beanName);
+					}
+				}
+				count++;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compacted metadata of " + count + " pre-instantiated singletons");
+		}
+	}
+
+	/**
+	 * Instantiate the given singleton if it is non-lazy, or its FactoryBean
+	 * in case of a factory bean, as part of {@link #preInstantiateSingletons()}.
+	 * @param beanName the name of the bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		//获取到对应的beanName的合并后的beanDefinition
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		//===================如果bean不是抽象的,并且是单例的,并且不是懒加载的====================
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			//---------------如果是FactoryBean-----------------
+			if (isFactoryBean(beanName)) {//则通过Factory创建bean实例
+				Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (bean instanceof FactoryBean) {
+					final FactoryBean<?> factory = (FactoryBean<?>) bean;
+					boolean isEagerInit;
+					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+						isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
+										((SmartFactoryBean<?>) factory)::isEagerInit,
+								getAccessControlContext());
+					}
+					else {
+						isEagerInit = (factory instanceof SmartFactoryBean &&
+								((SmartFactoryBean<?>) factory).isEagerInit());
+					}
+					if (isEagerInit) {
+						getBean(beanName);
+					}
+				}
+			}
+			else {
+				//-------------------如果不是FactoryBean----------------
+				//直接创建并获取对应的bean
+				getBean(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given singletons with the given {@link Executor},
+	 * creating each group of singletons connected through their bean definitions
+	 * in a task of its own.
+	 * <p>A task stops at the first singleton that fails to be created. Once all
+	 * tasks have completed, the failure of the first failing bean in registration
+	 * order is rethrown, with the failures of other tasks as related causes.
+	 * <p>If the calling thread is interrupted, the tasks stop before creating
+	 * their next singleton, and the calling thread waits for the singletons that
+	 * are already being created before switching back to the previous
+	 * {@link #setConcurrentSingletonCreation singleton creation mode}.
+	 * @param beanNames the names of all bean definitions, in registration order
+	 * @param executor the Executor to run the tasks on
+	 * @see #setBootstrapExecutor
+	 */
+	private void preInstantiateSingletonsInParallel(List<String> beanNames, Executor executor) {
+		boolean concurrentSingletonCreation = isConcurrentSingletonCreation();
+		setConcurrentSingletonCreation(true);
+		List<List<String>> groups = groupSingletonsByDependencies(beanNames);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Pre-instantiating " + groups.size() + " independent groups of singletons in parallel");
+		}
+		Map<String, Throwable> failures = new ConcurrentHashMap<>();
+		AtomicBoolean cancelled = new AtomicBoolean();
+		CountDownLatch latch = new CountDownLatch(groups.size());
+		for (List<String> group : groups) {
+			Runnable task = () -> {
+				try {
+					for (String beanName : group) {
+						if (cancelled.get()) {
+							return;
+						}
+						try {
+							preInstantiateSingleton(beanName);
+						}
+						catch (Throwable ex) {
+							failures.put(beanName, ex);
+							return;
+						}
+					}
+				}
+				finally {
+					latch.countDown();
+				}
+			};
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.run();
+			}
+		}
+		try {
+			latch.await();
+		}
+		catch (InterruptedException ex) {
+			cancelled.set(true);
+			awaitUninterruptibly(latch);
+			Thread.currentThread().interrupt();
+			throw new BeanCreationException("Interrupted while pre-instantiating singletons in parallel", ex);
+		}
+		finally {
+			// All tasks have completed: no singleton is being created anymore
+			setConcurrentSingletonCreation(concurrentSingletonCreation);
+		}
+		if (!failures.isEmpty()) {
+			Throwable failure = null;
+			String failedBeanName = null;
+			for (String beanName : beanNames) {
+				Throwable ex = failures.get(beanName);
+				if (ex == null) {
+					continue;
+				}
+				if (failure == null) {
+					failure = ex;
+					failedBeanName = beanName;
+				}
+				else if (failure instanceof BeanCreationException) {
+					((BeanCreationException) failure).addRelatedCause(ex);
+				}
+				else {
+					failure.addSuppressed(ex);
+				}
+			}
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			throw new BeanCreationException(failedBeanName, "Pre-instantiation of singleton failed", failure);
+		}
+	}
+
+	/**
+	 * Wait for the given latch to count down to zero, ignoring interrupts:
+	 * the caller restores the interrupt status.
+	 */
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		while (latch.getCount() > 0) {
+			try {
+				latch.await();
+			}
+			catch (InterruptedException ex) {
+				// Keep waiting for the tasks that are still running
+			}
+		}
+	}
+
+	/**
+	 * Group the non-lazy singletons among the given beans by the dependencies
+	 * declared in their merged bean definitions: singletons referring to each
+	 * other, directly or through other beans, end up in the same group.
+	 * @param beanNames the names of all bean definitions, in registration order
+	 * @return the groups of bean names, each in registration order, ordered
+	 * by their first bean
+	 */
+	private List<List<String>> groupSingletonsByDependencies(List<String> beanNames) {
+		Map<String, String> groupParents = new HashMap<>(beanNames.size());
+		for (String beanName : beanNames) {
+			groupParents.put(beanName, beanName);
+		}
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			Set<String> dependencies = new LinkedHashSet<>();
+			collectDeclaredDependencies(bd, dependencies);
+			for (String dependency : dependencies) {
+				String dependencyName = canonicalName(BeanFactoryUtils.transformedBeanName(dependency));
+				if (groupParents.containsKey(dependencyName)) {
+					String group = findGroup(groupParents, beanName);
+					String dependencyGroup = findGroup(groupParents, dependencyName);
+					if (!group.equals(dependencyGroup)) {
+						groupParents.put(dependencyGroup, group);
+					}
+				}
+			}
+		}
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				groups.computeIfAbsent(findGroup(groupParents, beanName), key -> new ArrayList<>()).add(beanName);
+			}
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private static String findGroup(Map<String, String> groupParents, String beanName) {
+		String group = beanName;
+		String parent = groupParents.get(group);
+		while (!group.equals(parent)) {
+			group = parent;
+			parent = groupParents.get(group);
+		}
+		groupParents.put(beanName, group);
+		return group;
+	}
+
+	private static void collectDeclaredDependencies(BeanDefinition bd, Set<String> dependencies) {
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			Collections.addAll(dependencies, dependsOn);
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(bd.getFactoryBeanName());
+		}
+		if (bd.hasConstructorArgumentValues()) {
+			ConstructorArgumentValues cav = bd.getConstructorArgumentValues();
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getIndexedArgumentValues().values()) {
+				collectReferences(valueHolder.getValue(), dependencies);
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getGenericArgumentValues()) {
+				collectReferences(valueHolder.getValue(), dependencies);
+			}
+		}
+		if (bd.hasPropertyValues()) {
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				collectReferences(pv.getValue(), dependencies);
+			}
+		}
+	}
+
+	private static void collectReferences(@Nullable Object value, Set<String> dependencies) {
+		if (value instanceof RuntimeBeanReference) {
+			dependencies.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), dependencies);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectDeclaredDependencies((BeanDefinition) value, dependencies);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectReferences(element, dependencies);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferences(entry.getKey(), dependencies);
+				collectReferences(entry.getValue(), dependencies);
 			}
 		}
 	}
@@ -980,6 +1322,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		if (existingDefinition != null || containsSingleton(beanName)) {
 			resetBeanDefinition(beanName);
 		}
+		else if (isConfigurationFrozen()) {
+			clearByTypeCache();
+		}
 	}
 
 	@Override
@@ -1115,6 +1460,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	private void clearByTypeCache() {
 		this.allBeanNamesByType.clear();
 		this.singletonBeanNamesByType.clear();
+		this.autowireCandidateNamesByDependency.clear();
+		this.byTypeCacheGeneration.incrementAndGet();
 	}
 
 
@@ -1465,9 +1812,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	protected Map<String, Object> findAutowireCandidates(
 			@Nullable String beanName, Class<?> requiredType, DependencyDescriptor descriptor) {
 
-		String[] candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
-				this, requiredType, true, descriptor.isEager());
-		Map<String, Object> result = new LinkedHashMap<>(candidateNames.length);
+		Map<String, Object> result = new LinkedHashMap<>();
 		for (Map.Entry<Class<?>, Object> classObjectEntry : this.resolvableDependencies.entrySet()) {
 			Class<?> autowiringType = classObjectEntry.getKey();
 			if (autowiringType.isAssignableFrom(requiredType)) {
@@ -1479,12 +1824,51 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				}
 			}
 		}
-		for (String candidate : candidateNames) {
-			if (!isSelfReference(beanName, candidate) && isAutowireCandidate(candidate, descriptor)) {
+		AutowireCandidatesKey cacheKey = null;
+		long ancestorGeneration = -1;
+		String[] matchingNames = null;
+		if (isAutowireCandidateCacheable(requiredType, descriptor)) {
+			// Read before resolving candidates, so that concurrent changes invalidate the result
+			ancestorGeneration = getAncestorByTypeCacheGeneration();
+			if (ancestorGeneration >= 0) {
+				cacheKey = new AutowireCandidatesKey(requiredType, descriptor);
+				AutowireCandidateNames cached = this.autowireCandidateNamesByDependency.get(cacheKey);
+				if (cached != null && cached.ancestorGeneration == ancestorGeneration) {
+					matchingNames = cached.names;
+				}
+			}
+		}
+		String[] candidateNames = null;
+		if (matchingNames == null) {
+			candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
+					this, requiredType, true, descriptor.isEager());
+			List<String> matches = new ArrayList<>(candidateNames.length);
+			boolean cacheable = (cacheKey != null);
+			for (String candidate : candidateNames) {
+				if (isAutowireCandidate(candidate, descriptor)) {
+					matches.add(candidate);
+					// The type of another bean in creation may not be fully resolvable yet
+					cacheable = (cacheable && (isSelfReference(beanName, candidate) || !isCurrentlyInCreation(candidate)));
+				}
+			}
+			// Shares the by-type cache entry if all candidates match (the common case)
+			matchingNames = (matches.size() == candidateNames.length ?
+					candidateNames : StringUtils.toStringArray(matches));
+			if (cacheable && matchingNames.length > 0) {
+				this.autowireCandidateNamesByDependency.put(
+						cacheKey, new AutowireCandidateNames(matchingNames, ancestorGeneration));
+			}
+		}
+		for (String candidate : matchingNames) {
+			if (!isSelfReference(beanName, candidate)) {
 				addCandidateEntry(result, candidate, descriptor, requiredType);
 			}
 		}
 		if (result.isEmpty()) {
+			if (candidateNames == null) {
+				candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
+						this, requiredType, true, descriptor.isEager());
+			}
 			boolean multiple = indicatesMultipleBeans(requiredType);
 			// Consider fallback matches if the first pass failed to find anything...
 			DependencyDescriptor fallbackDescriptor = descriptor.forFallbackMatch();
@@ -1509,6 +1893,46 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return result;
 	}
 
+	/**
+	 * Determine whether the autowire candidates matching the given injection point
+	 * may be cached: only once the configuration is frozen, and only for field and
+	 * method parameter dependencies.
+	 * @param requiredType the type of bean to match
+	 * @param descriptor the descriptor of the dependency to resolve
+	 * @see #freezeConfiguration()
+	 * @see #getAncestorByTypeCacheGeneration()
+	 */
+	private boolean isAutowireCandidateCacheable(Class<?> requiredType, DependencyDescriptor descriptor) {
+		return (isConfigurationFrozen() && (descriptor.getField() != null || descriptor.getMethodParameter() != null) &&
+				ClassUtils.isCacheSafe(requiredType, getBeanClassLoader()));
+	}
+
+	/**
+	 * Determine the combined generation of the by-type caches of all ancestor
+	 * factories, changing whenever bean definitions or singletons are registered
+	 * or removed in any of them, so that cached autowire candidates including
+	 * beans of ancestor factories can be checked for being up to date.
+	 * @return the combined generation (0 if there is no parent factory), or -1
+	 * if an ancestor factory is not a {@code DefaultListableBeanFactory} with a
+	 * frozen configuration, in which case autowire candidates must not be cached
+	 */
+	private long getAncestorByTypeCacheGeneration() {
+		long generation = 0;
+		BeanFactory parent = getParentBeanFactory();
+		while (parent != null) {
+			if (!(parent instanceof DefaultListableBeanFactory)) {
+				return -1;
+			}
+			DefaultListableBeanFactory parentFactory = (DefaultListableBeanFactory) parent;
+			if (!parentFactory.isConfigurationFrozen()) {
+				return -1;
+			}
+			generation += parentFactory.byTypeCacheGeneration.get();
+			parent = parentFactory.getParentBeanFactory();
+		}
+		return generation;
+	}
+
 	/**
 	 * Add an entry to the candidate map: a bean instance if available or just the resolved
 	 * type, preventing early bean initialization ahead of primary candidate selection.
@@ -1824,6 +2248,66 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Cached autowire candidate names for an injection point, along with the
+	 * generation of the by-type caches of the ancestor factories they were
+	 * resolved against.
+	 */
+	private static final class AutowireCandidateNames {
+
+		final String[] names;
+
+		final long ancestorGeneration;
+
+		AutowireCandidateNames(String[] names, long ancestorGeneration) {
+			this.names = names;
+			this.ancestorGeneration = ancestorGeneration;
+		}
+	}
+
+
+	/**
+	 * Cache key for the autowire candidates matching an injection point,
+	 * holding a copy of the (mutable) dependency descriptor. Self references
+	 * are filtered per requesting bean, so the key is shared by all of them.
+	 */
+	private static final class AutowireCandidatesKey {
+
+		private final Class<?> requiredType;
+
+		private final Class<?> descriptorType;
+
+		private final DependencyDescriptor descriptor;
+
+		private final int hashCode;
+
+		AutowireCandidatesKey(Class<?> requiredType, DependencyDescriptor descriptor) {
+			this.requiredType = requiredType;
+			this.descriptorType = descriptor.getClass();
+			this.descriptor = new DependencyDescriptor(descriptor);
+			this.hashCode = this.requiredType.hashCode() * 31 + this.descriptor.hashCode();
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof AutowireCandidatesKey)) {
+				return false;
+			}
+			AutowireCandidatesKey otherKey = (AutowireCandidatesKey) other;
+			return (this.requiredType == otherKey.requiredType && this.descriptorType == otherKey.descriptorType &&
+					this.descriptor.equals(otherKey.descriptor));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
 	/**
 	 * A dependency descriptor marker for nested elements.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,14 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -70,6 +72,10 @@ import org.springframework.util.StringUtils;
  *///共享bean实例的通用注册表，实现SingletonBeanRegistry。允许注册表的所有调用者共享的单例实例，通过bean名获取。
 public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements SingletonBeanRegistry {
 
+	/** Interval for re-checking a singleton that is being created by another thread. */
+	private static final long SINGLETON_CREATION_WAIT_INTERVAL = 100;
+
+
 	/** Cache of singleton objects: bean name to bean instance. */
 	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<>(256);
 
@@ -77,7 +83,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<>(16);
 
 	/** Cache of early singleton objects: bean name to bean instance. */
-	private final Map<String, Object> earlySingletonObjects = new HashMap<>(16);
+	private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<>(16);
 
 	/** Set of registered singletons, containing the bean names in registration order. */
 	private final Set<String> registeredSingletons = new LinkedHashSet<>(256);
@@ -97,9 +103,24 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Flag that indicates whether we're currently within destroySingletons. */
 	private boolean singletonsCurrentlyInDestruction = false;
 
+	/** Whether singletons may be created by several threads concurrently. */
+	private volatile boolean concurrentSingletonCreation = false;
+
+	/** Threads currently creating a singleton: bean name to creating thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads currently waiting for a singleton: waiting thread to bean name. */
+	private final Map<Thread, String> singletonCreationWaits = new HashMap<>(16);
+
 	/** Disposable bean instances: bean name to disposable instance. */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<>();
 
+	/*
+	 * The Sets in the following maps are never modified once published: they are
+	 * replaced with a modified copy within the map's monitor, allowing for reading
+	 * them without synchronization (e.g. for dependencies registered repeatedly).
+	 */
+
 	/** Map between containing bean names: bean name to Set of bean names that the bean contains. */
 	private final Map<String, Set<String>> containedBeanMap = new ConcurrentHashMap<>(16);
 
@@ -175,28 +196,39 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 *///通过指定beanName和是否允许早期引用(解决循环引用)来获取单例bean
 	@Nullable
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
+		// Quick check for existing instance without full singleton lock
 		//从保存单实例bean的ConcurrentHashMap中获取实例
 		Object singletonObject = this.singletonObjects.get(beanName);//一级缓存
 		//如果没有获取到,并且该bean当前正在创建状态(说明是循环引用)
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
-			synchronized (this.singletonObjects) {
-				//先尝试从二级缓存中获取对应的bean
-				singletonObject = this.earlySingletonObjects.get(beanName);//二级缓存
-				//如果没有获取到 并且 允许循环引用
-				if (singletonObject == null && allowEarlyReference) {
-					//从缓存单例工厂的HashMap中获取对应的单例工厂
-					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);//单例工厂
-					//如果获取到了单例工厂
-					if (singletonFactory != null) {
-						//从单例工厂获取一个对应的单实例bean
-						//在从单例工厂中创建的bean可以返回的是一个代理类,这样,就可以在循环引用中注入代理类
-						//(getObject()方法是可以自定义的,因此可以在获取bean是可以返回一个代理类)
-						//获取到对应的bean实例之后,需要将其进行缓存到二级缓存中,然后将其从singletonFactory中删除(因为他是单例的,不需要每次都使用工厂创建,因为已经缓存了)
-						singletonObject = singletonFactory.getObject();
-						//将从单例工厂中创建的bean缓存到二级缓存中,在下一次来获取时,可以在之前就从二级缓存中直接获取,而不用通过单例工厂在创建依次
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						//将缓存单例工厂的HashMap中的对应的单例工厂删除
-						this.singletonFactories.remove(beanName);
+			if (this.concurrentSingletonCreation && !isSingletonCreationThread(beanName)) {
+				// Early references are only exposed to the thread creating the bean.
+				return this.singletonObjects.get(beanName);
+			}
+			//先尝试从二级缓存中获取对应的bean
+			singletonObject = this.earlySingletonObjects.get(beanName);//二级缓存
+			//如果没有获取到 并且 允许循环引用
+			if (singletonObject == null && allowEarlyReference) {
+				synchronized (this.singletonObjects) {
+					// Consistent creation of early reference within full singleton lock
+					singletonObject = this.singletonObjects.get(beanName);
+					if (singletonObject == null) {
+						singletonObject = this.earlySingletonObjects.get(beanName);
+						if (singletonObject == null) {
+							//从缓存单例工厂的HashMap中获取对应的单例工厂
+							ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);//单例工厂
+							//如果获取到了单例工厂
+							if (singletonFactory != null) {
+								//从单例工厂获取一个对应的单实例bean
+								//在从单例工厂中创建的bean可以返回的是一个代理类,这样,就可以在循环引用中注入代理类
+								//(getObject()方法是可以自定义的,因此可以在获取bean是可以返回一个代理类)
+								singletonObject = singletonFactory.getObject();
+								//将从单例工厂中创建的bean缓存到二级缓存中,在下一次来获取时,可以在之前就从二级缓存中直接获取,而不用通过单例工厂在创建依次
+								this.earlySingletonObjects.put(beanName, singletonObject);
+								//将缓存单例工厂的HashMap中的对应的单例工厂删除
+								this.singletonFactories.remove(beanName);
+							}
+						}
 					}
 				}
 			}
@@ -215,6 +247,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 *///通过指定beanName和单例工厂来获取单例bean
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			//获取对应beanName的单实例bean
 			Object singletonObject = this.singletonObjects.get(beanName);
@@ -272,6 +307,198 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent
+	 * singleton creation: the singleton mutex is only held for bookkeeping,
+	 * not while the {@code ObjectFactory} is running, with the bean name
+	 * serving as a per-bean creation lock for the current thread.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 * @see #setConcurrentSingletonCreation
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.singletonObjects) {
+			Object singletonObject = awaitSingletonCreation(beanName, currentThread);
+			if (singletonObject != null) {
+				return singletonObject;
+			}
+			if (this.singletonsCurrentlyInDestruction) {
+				throw new BeanCreationNotAllowedException(beanName,
+						"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+						"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName +
+						"' in thread '" + currentThread.getName() + "'");
+			}
+			beforeSingletonCreation(beanName);
+			this.singletonCreationThreads.put(beanName, currentThread);
+		}
+		Object singletonObject = null;
+		boolean newSingleton = false;
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		finally {
+			synchronized (this.singletonObjects) {
+				if (newSingleton) {
+					addSingleton(beanName, singletonObject);
+				}
+				this.singletonCreationThreads.remove(beanName);
+				this.singletonObjects.notifyAll();
+				afterSingletonCreation(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Wait for a singleton that is currently being created by another thread.
+	 * <p>Waiting happens on the singleton mutex, releasing it for the creating
+	 * thread even if the current thread entered it further up the call stack.
+	 * A circular wait between threads is resolved through an early singleton
+	 * reference, analogous to a circular reference within a single thread.
+	 * @param beanName the name of the bean
+	 * @param currentThread the current thread
+	 * @return the singleton object created by another thread, or {@code null}
+	 * if the current thread is supposed to create it
+	 * @throws BeanCurrentlyInCreationException if the threads involved in a
+	 * circular wait cannot be unblocked through an early singleton reference
+	 */
+	@Nullable
+	private Object awaitSingletonCreation(String beanName, Thread currentThread) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		while (singletonObject == null) {
+			Thread creationThread = this.singletonCreationThreads.get(beanName);
+			if (creationThread == null || creationThread == currentThread) {
+				return null;
+			}
+			this.singletonCreationWaits.put(currentThread, beanName);
+			try {
+				List<String> cycle = getSingletonCreationCycle(beanName, currentThread);
+				if (cycle != null) {
+					singletonObject = getEarlySingletonReference(beanName);
+					if (singletonObject != null) {
+						return singletonObject;
+					}
+					if (cycle.stream().noneMatch(name ->
+							this.earlySingletonObjects.containsKey(name) || this.singletonFactories.containsKey(name))) {
+						throw new BeanCurrentlyInCreationException(beanName,
+								"Requested bean is currently in creation in another thread: " +
+								"unresolvable circular reference between " + cycle);
+					}
+					// Let the thread waiting for a bean with an early reference proceed.
+					this.singletonObjects.notifyAll();
+				}
+				this.singletonObjects.wait(SINGLETON_CREATION_WAIT_INTERVAL);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new BeanCreationException(beanName,
+						"Interrupted while waiting for singleton creation in another thread");
+			}
+			finally {
+				this.singletonCreationWaits.remove(currentThread);
+			}
+			singletonObject = this.singletonObjects.get(beanName);
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Determine whether waiting for the given bean would block the current thread
+	 * on itself, following the creating threads and the beans they wait for.
+	 * @param beanName the name of the bean to wait for
+	 * @param currentThread the current thread
+	 * @return the names of the beans involved in the circular wait,
+	 * or {@code null} if there is none
+	 */
+	@Nullable
+	private List<String> getSingletonCreationCycle(String beanName, Thread currentThread) {
+		List<String> cycle = new ArrayList<>(4);
+		String current = beanName;
+		while (current != null && cycle.size() <= this.singletonCreationWaits.size()) {
+			Thread creationThread = this.singletonCreationThreads.get(current);
+			if (creationThread == null) {
+				return null;
+			}
+			cycle.add(current);
+			if (creationThread == currentThread) {
+				return cycle;
+			}
+			current = this.singletonCreationWaits.get(creationThread);
+		}
+		return null;
+	}
+
+	/**
+	 * Obtain an early reference to the given singleton, to be called with the
+	 * singleton mutex held.
+	 * @param beanName the name of the bean
+	 * @return the early singleton reference, or {@code null} if none available
+	 */
+	@Nullable
+	private Object getEarlySingletonReference(String beanName) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if (singletonObject == null) {
+			ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+			if (singletonFactory != null) {
+				singletonObject = singletonFactory.getObject();
+				this.earlySingletonObjects.put(beanName, singletonObject);
+				this.singletonFactories.remove(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Specify whether singletons may be created by several threads concurrently.
+	 * <p>Default is "false": singleton creation holds the singleton mutex, which
+	 * effectively serializes it across threads. If "true", the singleton mutex is
+	 * only held for bookkeeping: each singleton is created by exactly one thread,
+	 * with other threads requesting the same singleton waiting for it. Early
+	 * singleton references are only exposed to the creating thread, except for
+	 * resolving a circular wait between threads.
+	 * <p><b>Note:</b> This mode must not be switched while singletons are being
+	 * created, since threads that are already creating singletons would not
+	 * coordinate with threads that started in the other mode.
+	 * @since 5.2.3
+	 * @see #getSingleton(String, ObjectFactory)
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether singletons may be created by several threads concurrently.
+	 * @since 5.2.3
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return this.concurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether the given singleton is being created by the current thread,
+	 * or not registered with a creating thread at all.
+	 * @param beanName the name of the bean
+	 */
+	private boolean isSingletonCreationThread(String beanName) {
+		Thread creationThread = this.singletonCreationThreads.get(beanName);
+		return (creationThread == null || creationThread == Thread.currentThread());
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -398,12 +625,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @see #registerDependentBean
 	 */
 	public void registerContainedBean(String containedBeanName, String containingBeanName) {
-		synchronized (this.containedBeanMap) {
-			Set<String> containedBeans =
-					this.containedBeanMap.computeIfAbsent(containingBeanName, k -> new LinkedHashSet<>(8));
-			if (!containedBeans.add(containedBeanName)) {
-				return;
-			}
+		if (!addToSet(this.containedBeanMap, containingBeanName, containedBeanName)) {
+			return;
 		}
 		registerDependentBean(containedBeanName, containingBeanName);
 	}
@@ -419,20 +642,38 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		//确定原始名称，将别名解析为规范名称
 		String canonicalName = canonicalName(beanName);
 
-		synchronized (this.dependentBeanMap) {
-			//如果还未注册当前bean,则注册当前bean
-			Set<String> dependentBeans =
-					this.dependentBeanMap.computeIfAbsent(canonicalName, k -> new LinkedHashSet<>(8));
-			if (!dependentBeans.add(dependentBeanName)) {
-				return;
-			}
+		//如果还未注册当前bean,则注册当前bean
+		if (!addToSet(this.dependentBeanMap, canonicalName, dependentBeanName)) {
+			return;
 		}
+		//如果还未注册当前bean所依赖的bean,则注册当前bean所依赖的bean
+		addToSet(this.dependenciesForBeanMap, dependentBeanName, canonicalName);
+	}
 
-		synchronized (this.dependenciesForBeanMap) {
-			//如果还未注册当前bean所依赖的bean,则注册当前bean所依赖的bean
-			Set<String> dependenciesForBean =
-					this.dependenciesForBeanMap.computeIfAbsent(dependentBeanName, k -> new LinkedHashSet<>(8));
-			dependenciesForBean.add(canonicalName);
+	/**
+	 * Add the given element to the Set registered under the given key,
+	 * replacing the Set with a modified copy within the map's monitor.
+	 * <p>Checks for an existing element without synchronization first.
+	 * @param map the map of Sets to modify
+	 * @param key the key of the Set
+	 * @param element the element to add
+	 * @return {@code true} if the element was added, or {@code false}
+	 * if it was present already
+	 */
+	private static boolean addToSet(Map<String, Set<String>> map, String key, String element) {
+		Set<String> set = map.get(key);
+		if (set != null && set.contains(element)) {
+			return false;
+		}
+		synchronized (map) {
+			set = map.get(key);
+			if (set != null && set.contains(element)) {
+				return false;
+			}
+			Set<String> newSet = (set != null ? new LinkedHashSet<>(set) : new LinkedHashSet<>(8));
+			newSet.add(element);
+			map.put(key, newSet);
+			return true;
 		}
 	}
 
@@ -444,9 +685,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @since 4.0
 	 */
 	protected boolean isDependent(String beanName, String dependentBeanName) {
-		synchronized (this.dependentBeanMap) {
-			return isDependent(beanName, dependentBeanName, null);
-		}
+		return isDependent(beanName, dependentBeanName, null);
 	}
 
 	private boolean isDependent(String beanName, String dependentBeanName, @Nullable Set<String> alreadySeen) {
@@ -491,9 +730,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (dependentBeans == null) {
 			return new String[0];
 		}
-		synchronized (this.dependentBeanMap) {
-			return StringUtils.toStringArray(dependentBeans);
-		}
+		return StringUtils.toStringArray(dependentBeans);
 	}
 
 	/**
@@ -507,9 +744,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (dependenciesForBean == null) {
 			return new String[0];
 		}
-		synchronized (this.dependenciesForBeanMap) {
-			return StringUtils.toStringArray(dependenciesForBean);
-		}
+		return StringUtils.toStringArray(dependenciesForBean);
 	}
 
 	public void destroySingletons() {
@@ -618,9 +853,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			for (Iterator<Map.Entry<String, Set<String>>> it = this.dependentBeanMap.entrySet().iterator(); it.hasNext();) {
 				Map.Entry<String, Set<String>> entry = it.next();
 				Set<String> dependenciesToClean = entry.getValue();
-				dependenciesToClean.remove(beanName);
-				if (dependenciesToClean.isEmpty()) {
-					it.remove();
+				if (dependenciesToClean.contains(beanName)) {
+					if (dependenciesToClean.size() == 1) {
+						it.remove();
+					}
+					else {
+						Set<String> cleanedDependencies = new LinkedHashSet<>(dependenciesToClean);
+						cleanedDependencies.remove(beanName);
+						entry.setValue(cleanedDependencies);
+					}
 				}
 			}
 		}
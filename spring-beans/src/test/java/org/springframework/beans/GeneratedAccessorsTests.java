@@ -0,0 +1,194 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cglib.reflect.FastConstructor;
+import org.springframework.cglib.reflect.FastMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Unit tests for {@link GeneratedAccessors}.
+ */
+class GeneratedAccessorsTests {
+
+	@Test
+	void constructorAccessor() throws Exception {
+		FastConstructor ctor = GeneratedAccessors.getConstructor(Bean.class.getConstructor(String.class, int.class));
+		assertThat(ctor).isNotNull();
+		Bean bean = (Bean) ctor.newInstance(new Object[] {"name", 42});
+		assertThat(bean.getName()).isEqualTo("name");
+		assertThat(bean.getAge()).isEqualTo(42);
+		assertThat(GeneratedAccessors.getConstructor(Bean.class.getConstructor(String.class, int.class))).isSameAs(ctor);
+	}
+
+	@Test
+	void methodAccessors() throws Exception {
+		Bean bean = new Bean();
+		FastMethod setter = GeneratedAccessors.getMethod(Bean.class.getMethod("setName", String.class));
+		FastMethod getter = GeneratedAccessors.getMethod(Bean.class.getMethod("getName"));
+		assertThat(setter).isNotNull();
+		assertThat(getter).isNotNull();
+		setter.invoke(bean, new Object[] {"name"});
+		assertThat(getter.invoke(bean, new Object[0])).isEqualTo("name");
+	}
+
+	@Test
+	void packageVisibleMembers() throws Exception {
+		FastConstructor ctor = GeneratedAccessors.getConstructor(PackageBean.class.getDeclaredConstructor());
+		FastMethod setter = GeneratedAccessors.getMethod(PackageBean.class.getDeclaredMethod("setValue", long.class));
+		assertThat(ctor).isNotNull();
+		assertThat(setter).isNotNull();
+		PackageBean bean = (PackageBean) ctor.newInstance(new Object[0]);
+		setter.invoke(bean, new Object[] {5L});
+		assertThat(bean.value).isEqualTo(5L);
+	}
+
+	@Test
+	void noAccessorForPrivateMembers() throws Exception {
+		assertThat(GeneratedAccessors.getConstructor(Bean.class.getDeclaredConstructor(int.class))).isNull();
+		assertThat(GeneratedAccessors.getMethod(Bean.class.getDeclaredMethod("reset"))).isNull();
+	}
+
+	@Test
+	void noAccessorForBootstrapClasses() throws Exception {
+		assertThat(GeneratedAccessors.getConstructor(StringBuilder.class.getConstructor())).isNull();
+		assertThat(GeneratedAccessors.getMethod(String.class.getMethod("length"))).isNull();
+	}
+
+	@Test
+	void noAccessorForAbstractClasses() throws Exception {
+		assertThat(GeneratedAccessors.getConstructor(AbstractBean.class.getDeclaredConstructor())).isNull();
+	}
+
+	@Test
+	void argumentsCheckedBeforeInvocation() {
+		Class<?>[] parameterTypes = {String.class, int.class};
+		assertThat(GeneratedAccessors.isInvocableWith(parameterTypes, new Object[] {"name", 42})).isTrue();
+		assertThat(GeneratedAccessors.isInvocableWith(parameterTypes, new Object[] {null, 42})).isTrue();
+		assertThat(GeneratedAccessors.isInvocableWith(parameterTypes, new Object[] {42, "name"})).isFalse();
+		assertThat(GeneratedAccessors.isInvocableWith(parameterTypes, new Object[] {"name", null})).isFalse();
+		assertThat(GeneratedAccessors.isInvocableWith(parameterTypes, new Object[] {"name"})).isFalse();
+	}
+
+	@Test
+	void newInstanceWithMismatchedArgumentsThroughReflection() throws Exception {
+		Constructor<Bean> ctor = Bean.class.getConstructor(String.class, int.class);
+		assertThat(GeneratedAccessors.newInstance(ctor, new Object[] {"name", 42}).getAge()).isEqualTo(42);
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> GeneratedAccessors.newInstance(ctor, new Object[] {42, "name"}));
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> GeneratedAccessors.newInstance(ctor, new Object[] {"name", null}));
+	}
+
+	@Test
+	void invokeWithMismatchedArgumentsThroughReflection() throws Exception {
+		Bean bean = new Bean();
+		Method setter = Bean.class.getMethod("setAge", int.class);
+		GeneratedAccessors.invoke(setter, bean, new Object[] {42});
+		assertThat(GeneratedAccessors.invoke(Bean.class.getMethod("getAge"), bean, new Object[0])).isEqualTo(42);
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> GeneratedAccessors.invoke(setter, bean, new Object[] {null}));
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> GeneratedAccessors.invoke(setter, bean, new Object[] {"42"}));
+	}
+
+	@Test
+	void invokePrivateMethodThroughReflection() throws Exception {
+		Bean bean = new Bean("name", 42);
+		GeneratedAccessors.invoke(Bean.class.getDeclaredMethod("reset"), bean, new Object[0]);
+		assertThat(bean.getName()).isNull();
+	}
+
+	@Test
+	void exceptionWrappedInInvocationTargetException() throws Exception {
+		FastMethod setter = GeneratedAccessors.getMethod(Bean.class.getMethod("setAge", int.class));
+		assertThat(setter).isNotNull();
+		assertThatExceptionOfType(InvocationTargetException.class)
+				.isThrownBy(() -> setter.invoke(new Bean(), new Object[] {-1}))
+				.satisfies(ex -> assertThat(ex.getTargetException()).isInstanceOf(IllegalStateException.class));
+	}
+
+
+	public static class Bean {
+
+		private String name;
+
+		private int age;
+
+		public Bean() {
+		}
+
+		public Bean(String name, int age) {
+			this.name = name;
+			this.age = age;
+		}
+
+		private Bean(int age) {
+			this.age = age;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			if (age < 0) {
+				throw new IllegalStateException("Negative age");
+			}
+			this.age = age;
+		}
+
+		private void reset() {
+			this.name = null;
+		}
+	}
+
+
+	static class PackageBean {
+
+		long value;
+
+		PackageBean() {
+		}
+
+		void setValue(long value) {
+			this.value = value;
+		}
+	}
+
+
+	public abstract static class AbstractBean {
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -56,6 +56,8 @@ import org.springframework.beans.PropertyEditorRegistry;
 import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.AutowiredPropertyMarker;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -1524,6 +1526,121 @@ class DefaultListableBeanFactoryTests {
 		assertThat(bean.getBeanName()).isEqualTo("bd1");
 	}
 
+	@Test
+	void autowireCandidatesResolvedAgainAfterBeanDefinitionChange() {
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBeanRecipient.class, RootBeanDefinition.AUTOWIRE_CONSTRUCTOR, false);
+		rbd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		lbf.registerBeanDefinition("recipient", rbd);
+		lbf.freezeConfiguration();
+		TestBean spouse = lbf.getBean("spouse", TestBean.class);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+
+		RootBeanDefinition primary = new RootBeanDefinition(TestBean.class);
+		primary.setPrimary(true);
+		lbf.registerBeanDefinition("primary", primary);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(lbf.getBean("primary"));
+
+		lbf.removeBeanDefinition("primary");
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+	}
+
+	@Test
+	void autowireCandidatesResolvedAgainAfterParentBeanDefinitionChange() {
+		DefaultListableBeanFactory parent = new DefaultListableBeanFactory();
+		parent.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		parent.freezeConfiguration();
+		lbf.setParentBeanFactory(parent);
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBeanRecipient.class, RootBeanDefinition.AUTOWIRE_CONSTRUCTOR, false);
+		rbd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		lbf.registerBeanDefinition("recipient", rbd);
+		lbf.freezeConfiguration();
+		TestBean spouse = parent.getBean("spouse", TestBean.class);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+
+		RootBeanDefinition primary = new RootBeanDefinition(TestBean.class);
+		primary.setPrimary(true);
+		parent.registerBeanDefinition("primary", primary);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(parent.getBean("primary"));
+
+		parent.removeBeanDefinition("primary");
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(spouse);
+
+		parent.removeBeanDefinition("spouse");
+		TestBean singleton = new TestBean();
+		parent.registerSingleton("singleton", singleton);
+		assertThat(lbf.getBean(TestBeanRecipient.class).testBean).isSameAs(singleton);
+	}
+
+	@Test
+	void compactFrozenConfiguration() {
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(lbf);
+		lbf.addBeanPostProcessor(bpp);
+		lbf.setCompactFrozenConfiguration(true);
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.getPropertyValues().add("name", "spouse");
+		spouse.getPropertyValues().add("age", "99");
+		lbf.registerBeanDefinition("spouse", spouse);
+		lbf.registerBeanDefinition("holder", new RootBeanDefinition(AutowiredFieldHolder.class));
+		lbf.freezeConfiguration();
+		lbf.preInstantiateSingletons();
+
+		assertThat(lbf.getMergedBeanDefinition("spouse").getPropertyValues().isConverted()).isFalse();
+		assertThat(((RootBeanDefinition) lbf.getMergedBeanDefinition("holder")).getResolvedFactoryMethod()).isNull();
+		assertThat(lbf.isTypeMatch("spouse", TestBean.class)).isTrue();
+
+		TestBean spouseBean = lbf.getBean("spouse", TestBean.class);
+		AutowiredFieldHolder holder = lbf.getBean(AutowiredFieldHolder.class);
+		assertThat(holder.dependency).isSameAs(spouseBean);
+		lbf.destroySingleton("spouse");
+		lbf.destroySingleton("holder");
+		assertThat(lbf.getBean("spouse", TestBean.class).getAge()).isEqualTo(99);
+		assertThat(lbf.getBean(AutowiredFieldHolder.class).dependency).isSameAs(lbf.getBean("spouse"));
+	}
+
+	@Test
+	@EnabledForTestGroups(TestGroup.PERFORMANCE)
+	void compactFrozenConfigurationReducesFootprint() {
+		long regular = retainedHeapForSingletons(false);
+		long compacted = retainedHeapForSingletons(true);
+		// System.out.println(regular + " / " + compacted);
+		assertThat(compacted).as("Compacted metadata retained " + compacted + " bytes vs " + regular).isLessThan(regular);
+	}
+
+	private static long retainedHeapForSingletons(boolean compact) {
+		long before = usedHeap();
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(factory);
+		factory.addBeanPostProcessor(bpp);
+		factory.setCompactFrozenConfiguration(compact);
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.setPrimary(true);
+		factory.registerBeanDefinition("spouse", spouse);
+		for (int i = 0; i < 5000; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(AutowiredFieldHolder.class);
+			bd.getPropertyValues().add("name", "holder" + i);
+			bd.getPropertyValues().add("age", String.valueOf(i));
+			factory.registerBeanDefinition("holder" + i, bd);
+		}
+		factory.freezeConfiguration();
+		factory.preInstantiateSingletons();
+		long after = usedHeap();
+		assertThat(factory.getBeanNamesForType(AutowiredFieldHolder.class)).hasSize(5000);
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
 	@Test
 	void getBeanByTypeWithMultiplePriority() {
 		lbf.setDependencyComparator(AnnotationAwareOrderComparator.INSTANCE);
@@ -3364,6 +3481,13 @@ class DefaultListableBeanFactoryTests {
 	}
 
 
+	public static class AutowiredFieldHolder extends TestBean {
+
+		@Autowired
+		public TestBean dependency;
+	}
+
+
 	private static class TestBeanRecipient {
 
 		public TestBean testBean;
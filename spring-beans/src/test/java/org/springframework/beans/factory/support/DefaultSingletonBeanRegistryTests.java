@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -101,4 +101,39 @@ public class DefaultSingletonBeanRegistryTests {
 		assertThat(beanRegistry.isDependent("c", "c")).isTrue();
 	}
 
+	@Test
+	public void testDependentRegistrationAndDestruction() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+
+		beanRegistry.registerDependentBean("a", "b");
+		beanRegistry.registerDependentBean("a", "c");
+		beanRegistry.registerDependentBean("a", "b");
+		beanRegistry.registerDependentBean("d", "c");
+		String[] dependentBeans = beanRegistry.getDependentBeans("a");
+		assertThat(dependentBeans).containsExactly("b", "c");
+		assertThat(beanRegistry.getDependenciesForBean("c")).containsExactly("a", "d");
+
+		beanRegistry.destroySingleton("c");
+		assertThat(beanRegistry.getDependentBeans("a")).containsExactly("b");
+		assertThat(beanRegistry.getDependentBeans("d")).isEmpty();
+		assertThat(beanRegistry.getDependenciesForBean("c")).isEmpty();
+		assertThat(dependentBeans).containsExactly("b", "c");
+	}
+
+	@Test
+	public void testEarlySingletonReference() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+
+		TestBean tb = new TestBean();
+		Object result = beanRegistry.getSingleton("tb", () -> {
+			beanRegistry.addSingletonFactory("tb", () -> tb);
+			assertThat(beanRegistry.getSingleton("tb", false)).isNull();
+			assertThat(beanRegistry.getSingleton("tb", true)).isSameAs(tb);
+			assertThat(beanRegistry.getSingleton("tb", false)).isSameAs(tb);
+			return tb;
+		});
+		assertThat(result).isSameAs(tb);
+		assertThat(beanRegistry.getSingleton("tb", false)).isSameAs(tb);
+	}
+
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for parallel singleton pre-instantiation in {@link DefaultListableBeanFactory}.
+ *
+ * @see DefaultListableBeanFactory#setBootstrapExecutor
+ */
+class ParallelPreInstantiationTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private ExecutorService executor;
+
+
+	@BeforeEach
+	void setup() {
+		this.executor = new ForkJoinPool(4);
+		this.beanFactory.setBootstrapExecutor(this.executor);
+	}
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		this.executor.shutdownNow();
+		this.executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+
+	@Test
+	void declaredDependenciesShareSingletons() {
+		for (int i = 0; i < 20; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.getPropertyValues().add("spouse", new RuntimeBeanReference("shared"));
+			this.beanFactory.registerBeanDefinition("bean" + i, bd);
+		}
+		this.beanFactory.registerBeanDefinition("shared", new RootBeanDefinition(TestBean.class));
+		this.beanFactory.preInstantiateSingletons();
+
+		TestBean shared = this.beanFactory.getBean("shared", TestBean.class);
+		for (int i = 0; i < 20; i++) {
+			assertThat(this.beanFactory.getBean("bean" + i, TestBean.class).getSpouse()).isSameAs(shared);
+		}
+	}
+
+	@Test
+	void independentSingletonsCreatedInParallel() {
+		Map<String, Thread> creationThreads = new ConcurrentHashMap<>();
+		CountDownLatch latch = new CountDownLatch(2);
+		for (String beanName : new String[] {"first", "second"}) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class, () -> {
+				creationThreads.put(beanName, Thread.currentThread());
+				await(latch);
+				return new TestBean(beanName);
+			});
+			this.beanFactory.registerBeanDefinition(beanName, bd);
+		}
+		this.beanFactory.preInstantiateSingletons();
+
+		assertThat(creationThreads.get("first")).isNotSameAs(creationThreads.get("second"));
+		assertThat(this.beanFactory.isConcurrentSingletonCreation()).isFalse();
+		assertThat(this.beanFactory.getBean("first", TestBean.class).getName()).isEqualTo("first");
+		assertThat(this.beanFactory.getBean("second", TestBean.class).getName()).isEqualTo("second");
+	}
+
+	@Test
+	void undeclaredCircularReferenceAcrossThreads() {
+		CountDownLatch latch = new CountDownLatch(2);
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(
+				CircularBean.class, () -> new CircularBean("second", latch)));
+		this.beanFactory.registerBeanDefinition("second", new RootBeanDefinition(
+				CircularBean.class, () -> new CircularBean("first", latch)));
+		this.beanFactory.preInstantiateSingletons();
+
+		CircularBean first = this.beanFactory.getBean("first", CircularBean.class);
+		CircularBean second = this.beanFactory.getBean("second", CircularBean.class);
+		assertThat(first.other).isSameAs(second);
+		assertThat(second.other).isSameAs(first);
+	}
+
+	@Test
+	void unresolvableCircularReferenceAcrossThreads() {
+		CountDownLatch latch = new CountDownLatch(2);
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(TestBean.class, () -> {
+			await(latch);
+			return new TestBean(this.beanFactory.getBean("second", TestBean.class));
+		}));
+		this.beanFactory.registerBeanDefinition("second", new RootBeanDefinition(TestBean.class, () -> {
+			await(latch);
+			return new TestBean(this.beanFactory.getBean("first", TestBean.class));
+		}));
+
+		assertThatExceptionOfType(BeanCreationException.class)
+				.isThrownBy(this.beanFactory::preInstantiateSingletons)
+				.satisfies(ex -> assertThat(ex.contains(BeanCurrentlyInCreationException.class)).isTrue());
+	}
+
+	@Test
+	void failureReportedForFirstFailingBeanInRegistrationOrder() {
+		CountDownLatch latch = new CountDownLatch(2);
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(TestBean.class, () -> {
+			await(latch);
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			throw new IllegalStateException("first failed");
+		}));
+		this.beanFactory.registerBeanDefinition("second", new RootBeanDefinition(TestBean.class, () -> {
+			await(latch);
+			throw new IllegalStateException("second failed");
+		}));
+
+		assertThatExceptionOfType(BeanCreationException.class)
+				.isThrownBy(this.beanFactory::preInstantiateSingletons)
+				.satisfies(ex -> {
+					assertThat(ex.getBeanName()).isEqualTo("first");
+					assertThat(ex.getRelatedCauses()).hasSize(1);
+					assertThat(((BeanCreationException) ex.getRelatedCauses()[0]).getBeanName()).isEqualTo("second");
+				});
+		assertThat(this.beanFactory.isConcurrentSingletonCreation()).isFalse();
+	}
+
+	@Test
+	void interruptWaitsForRunningTasksAndSkipsRemainingSingletons() throws InterruptedException {
+		ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+		this.beanFactory.setBootstrapExecutor(singleThreadExecutor);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(TestBean.class, () -> {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return new TestBean("first");
+		}));
+		this.beanFactory.registerBeanDefinition("second", new RootBeanDefinition(TestBean.class));
+		Thread callingThread = Thread.currentThread();
+		Thread interrupter = new Thread(() -> {
+			try {
+				started.await(5, TimeUnit.SECONDS);
+				callingThread.interrupt();
+				Thread.sleep(50);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				release.countDown();
+			}
+		});
+		interrupter.start();
+
+		try {
+			assertThatExceptionOfType(BeanCreationException.class)
+					.isThrownBy(this.beanFactory::preInstantiateSingletons)
+					.withCauseInstanceOf(InterruptedException.class);
+			assertThat(Thread.interrupted()).isTrue();
+			assertThat(this.beanFactory.containsSingleton("first")).isTrue();
+			assertThat(this.beanFactory.containsSingleton("second")).isFalse();
+			assertThat(this.beanFactory.isConcurrentSingletonCreation()).isFalse();
+		}
+		finally {
+			interrupter.join(5000);
+			singleThreadExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	void smartInitializingSingletonsInvokedInCallingThread() {
+		this.beanFactory.registerBeanDefinition("bean", new RootBeanDefinition(SmartBean.class));
+		this.beanFactory.preInstantiateSingletons();
+
+		assertThat(this.beanFactory.getBean(SmartBean.class).callbackThread).isSameAs(Thread.currentThread());
+	}
+
+
+	private static void await(CountDownLatch latch) {
+		latch.countDown();
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	static class CircularBean implements BeanFactoryAware {
+
+		private final String otherName;
+
+		private final CountDownLatch latch;
+
+		CircularBean other;
+
+		CircularBean(String otherName, CountDownLatch latch) {
+			this.otherName = otherName;
+			this.latch = latch;
+		}
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			await(this.latch);
+			this.other = beanFactory.getBean(this.otherName, CircularBean.class);
+		}
+	}
+
+
+	static class SmartBean implements SmartInitializingSingleton {
+
+		Thread callbackThread;
+
+		@Override
+		public void afterSingletonsInstantiated() {
+			this.callbackThread = Thread.currentThread();
+		}
+	}
+
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Record the class metadata of a candidate, that is its declaration, its member
+ * classes and the runtime-visible annotations of the type and of its annotated
+ * methods (including {@code @Bean} methods and any {@code @Conditional}
+ * declarations), so that it can be read at runtime without parsing the class file.
+ *
+ * <p>The recording mirrors the events that an ASM class reader would report for
+ * the compiled class, in the binary format of spring-core's
+ * {@code org.springframework.core.type.classreading.RecordingClassVisitor}: both
+ * have to be kept in sync. {@code ClassMetadataRecorderTests} reads recordings
+ * back through spring-core to verify that they are.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ */
+class ClassMetadataRecorder {
+
+	// Format version and event tags: keep in sync with spring-core's RecordingClassVisitor
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte CLASS_END = 0;
+
+	private static final byte CLASS = 1;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte METHOD_END = 6;
+
+	private static final byte VALUE = 10;
+
+	private static final byte ENUM = 11;
+
+	private static final byte NESTED_ANNOTATION = 12;
+
+	private static final byte ARRAY = 13;
+
+	private static final byte ANNOTATION_END = 14;
+
+	private static final int ACC_PUBLIC = 0x0001;
+
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private static final int ACC_PROTECTED = 0x0004;
+
+	private static final int ACC_STATIC = 0x0008;
+
+	private static final int ACC_FINAL = 0x0010;
+
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ACC_INTERFACE = 0x0200;
+
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private static final int ACC_ANNOTATION = 0x2000;
+
+	private static final int ACC_ENUM = 0x4000;
+
+
+	private final Elements elements;
+
+	private final Types types;
+
+
+	public ClassMetadataRecorder(ProcessingEnvironment env) {
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+	}
+
+
+	/**
+	 * Record the class metadata of the specified type.
+	 * @param type the candidate type
+	 * @return the Base64-encoded recording, or {@code null} if the metadata of
+	 * the type cannot be recorded (e.g. as it refers to types that are not
+	 * available in the current build)
+	 */
+	public String record(TypeElement type) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(buffer);
+		try {
+			out.writeByte(FORMAT_VERSION);
+			writeClass(out, type);
+			out.flush();
+			return Base64.getEncoder().encodeToString(buffer.toByteArray());
+		}
+		catch (IOException | IllegalArgumentException ex) {
+			// Unresolvable type or value too long for modified UTF-8 -> not recordable.
+			return null;
+		}
+	}
+
+	private void writeClass(DataOutputStream out, TypeElement type) throws IOException {
+		TypeMirror superclass = type.getSuperclass();
+		out.writeByte(CLASS);
+		out.writeInt(getClassAccess(type));
+		out.writeUTF(getInternalName(type));
+		if (type.getKind().isInterface()) {
+			writeNullableUTF(out, "java/lang/Object");
+		}
+		else if (superclass.getKind() == TypeKind.NONE) {
+			writeNullableUTF(out, null);
+		}
+		else {
+			writeNullableUTF(out, getInternalName(superclass));
+		}
+		List<? extends TypeMirror> interfaces = type.getInterfaces();
+		out.writeShort(interfaces.size());
+		for (TypeMirror interfaceType : interfaces) {
+			out.writeUTF(getInternalName(interfaceType));
+		}
+
+		if (type.getNestingKind() == NestingKind.MEMBER) {
+			writeInnerClass(out, type);
+		}
+		List<ExecutableElement> methods = new ArrayList<>();
+		for (Element element : type.getEnclosedElements()) {
+			if (element instanceof TypeElement) {
+				writeInnerClass(out, (TypeElement) element);
+			}
+			else if (element.getKind() == ElementKind.METHOD || element.getKind() == ElementKind.CONSTRUCTOR) {
+				methods.add((ExecutableElement) element);
+			}
+		}
+
+		for (AnnotationMirror annotation : getVisibleAnnotations(type)) {
+			out.writeByte(ANNOTATION);
+			writeAnnotation(out, annotation);
+		}
+		for (ExecutableElement method : methods) {
+			List<AnnotationMirror> annotations = getVisibleAnnotations(method);
+			if (!annotations.isEmpty()) {
+				out.writeByte(METHOD);
+				out.writeInt(getModifierAccess(method.getModifiers()));
+				out.writeUTF(method.getKind() == ElementKind.CONSTRUCTOR ?
+						"<init>" : method.getSimpleName().toString());
+				out.writeUTF(getMethodDescriptor(method));
+				for (AnnotationMirror annotation : annotations) {
+					out.writeByte(ANNOTATION);
+					writeAnnotation(out, annotation);
+				}
+				out.writeByte(METHOD_END);
+			}
+		}
+		out.writeByte(CLASS_END);
+	}
+
+	private void writeInnerClass(DataOutputStream out, TypeElement type) throws IOException {
+		Set<Modifier> modifiers = type.getModifiers();
+		int access = getModifierAccess(modifiers) |
+				(getClassAccess(type) & (ACC_INTERFACE | ACC_ABSTRACT | ACC_ANNOTATION | ACC_ENUM));
+		if (modifiers.contains(Modifier.STATIC) || type.getKind() != ElementKind.CLASS ||
+				type.getEnclosingElement().getKind().isInterface()) {
+			access |= ACC_STATIC;
+		}
+		out.writeByte(INNER_CLASS);
+		out.writeUTF(getInternalName(type));
+		writeNullableUTF(out, getInternalName((TypeElement) type.getEnclosingElement()));
+		writeNullableUTF(out, type.getSimpleName().toString());
+		out.writeInt(access);
+	}
+
+	private void writeAnnotation(DataOutputStream out, AnnotationMirror annotation) throws IOException {
+		out.writeUTF(getDescriptor(annotation.getAnnotationType()));
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+				annotation.getElementValues().entrySet()) {
+			ExecutableElement attribute = entry.getKey();
+			writeAttribute(out, attribute.getSimpleName().toString(),
+					attribute.getReturnType(), entry.getValue().getValue());
+		}
+		out.writeByte(ANNOTATION_END);
+	}
+
+	private void writeAttribute(DataOutputStream out, String name, TypeMirror type, Object value)
+			throws IOException {
+
+		if (value instanceof List) {
+			List<?> values = (List<?>) value;
+			TypeMirror componentType = ((ArrayType) type).getComponentType();
+			if (componentType.getKind().isPrimitive() && !values.isEmpty()) {
+				out.writeByte(VALUE);
+				writeNullableUTF(out, name);
+				writePrimitiveArray(out, componentType.getKind(), values);
+			}
+			else {
+				out.writeByte(ARRAY);
+				writeNullableUTF(out, name);
+				for (Object element : values) {
+					writeAttribute(out, null, componentType, ((AnnotationValue) element).getValue());
+				}
+				out.writeByte(ANNOTATION_END);
+			}
+		}
+		else if (value instanceof VariableElement) {
+			VariableElement enumConstant = (VariableElement) value;
+			out.writeByte(ENUM);
+			writeNullableUTF(out, name);
+			out.writeUTF(getDescriptor(enumConstant.asType()));
+			out.writeUTF(enumConstant.getSimpleName().toString());
+		}
+		else if (value instanceof AnnotationMirror) {
+			out.writeByte(NESTED_ANNOTATION);
+			writeNullableUTF(out, name);
+			writeAnnotation(out, (AnnotationMirror) value);
+		}
+		else {
+			out.writeByte(VALUE);
+			writeNullableUTF(out, name);
+			writeValue(out, value);
+		}
+	}
+
+	private void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof String) {
+			out.writeByte('s');
+			out.writeUTF((String) value);
+		}
+		else if (value instanceof TypeMirror) {
+			out.writeByte('T');
+			out.writeUTF(getDescriptor((TypeMirror) value));
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte('Z');
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte('B');
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte('C');
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte('S');
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte('I');
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte('J');
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte('F');
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte('D');
+			out.writeDouble((Double) value);
+		}
+		else {
+			throw new IOException("Unsupported annotation value: " + value);
+		}
+	}
+
+	private void writePrimitiveArray(DataOutputStream out, TypeKind kind, List<?> values) throws IOException {
+		switch (kind) {
+			case BOOLEAN:
+				out.writeByte('z');
+				break;
+			case BYTE:
+				out.writeByte('b');
+				break;
+			case CHAR:
+				out.writeByte('c');
+				break;
+			case SHORT:
+				out.writeByte('h');
+				break;
+			case INT:
+				out.writeByte('i');
+				break;
+			case LONG:
+				out.writeByte('j');
+				break;
+			case FLOAT:
+				out.writeByte('f');
+				break;
+			case DOUBLE:
+				out.writeByte('d');
+				break;
+			default:
+				throw new IOException("Unsupported array component type: " + kind);
+		}
+		out.writeInt(values.size());
+		for (Object element : values) {
+			Object value = ((AnnotationValue) element).getValue();
+			switch (kind) {
+				case BOOLEAN:
+					out.writeBoolean((Boolean) value);
+					break;
+				case BYTE:
+					out.writeByte(((Number) value).byteValue());
+					break;
+				case CHAR:
+					out.writeChar((Character) value);
+					break;
+				case SHORT:
+					out.writeShort(((Number) value).shortValue());
+					break;
+				case INT:
+					out.writeInt(((Number) value).intValue());
+					break;
+				case LONG:
+					out.writeLong(((Number) value).longValue());
+					break;
+				case FLOAT:
+					out.writeFloat(((Number) value).floatValue());
+					break;
+				default:
+					out.writeDouble(((Number) value).doubleValue());
+			}
+		}
+	}
+
+	private void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Return the annotations of the specified element that are retained at runtime,
+	 * i.e. that end up as runtime-visible annotations in the class file.
+	 */
+	private List<AnnotationMirror> getVisibleAnnotations(Element element) {
+		List<AnnotationMirror> result = new ArrayList<>();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (annotation.getAnnotationType().getKind() == TypeKind.ERROR) {
+				throw new IllegalArgumentException("Unresolvable annotation type: " + annotation);
+			}
+			Element annotationType = annotation.getAnnotationType().asElement();
+			Retention retention = annotationType.getAnnotation(Retention.class);
+			if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+				result.add(annotation);
+			}
+		}
+		return result;
+	}
+
+	private int getClassAccess(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PUBLIC;
+		}
+		switch (type.getKind()) {
+			case ANNOTATION_TYPE:
+				return access | ACC_ANNOTATION | ACC_INTERFACE | ACC_ABSTRACT;
+			case INTERFACE:
+				return access | ACC_INTERFACE | ACC_ABSTRACT;
+			case ENUM:
+				access |= ACC_ENUM;
+				break;
+			default:
+				break;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		return access | ACC_SUPER;
+	}
+
+	private int getModifierAccess(Set<Modifier> modifiers) {
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			access |= ACC_PUBLIC;
+		}
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			access |= ACC_PRIVATE;
+		}
+		if (modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PROTECTED;
+		}
+		if (modifiers.contains(Modifier.STATIC)) {
+			access |= ACC_STATIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		return access;
+	}
+
+	private String getMethodDescriptor(ExecutableElement method) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (VariableElement parameter : method.getParameters()) {
+			descriptor.append(getDescriptor(parameter.asType()));
+		}
+		return descriptor.append(')').append(getDescriptor(method.getReturnType())).toString();
+	}
+
+	private String getDescriptor(TypeMirror type) {
+		switch (type.getKind()) {
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case CHAR:
+				return "C";
+			case SHORT:
+				return "S";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case VOID:
+				return "V";
+			case ARRAY:
+				return "[" + getDescriptor(((ArrayType) type).getComponentType());
+			default:
+				return "L" + getInternalName(type) + ";";
+		}
+	}
+
+	private String getInternalName(TypeMirror type) {
+		TypeMirror erasure = this.types.erasure(type);
+		if (erasure.getKind() != TypeKind.DECLARED) {
+			throw new IllegalArgumentException("Unresolvable type: " + type);
+		}
+		return getInternalName((TypeElement) ((DeclaredType) erasure).asElement());
+	}
+
+	private String getInternalName(TypeElement type) {
+		return this.elements.getBinaryName(type).toString().replace('.', '/');
+	}
+
+}
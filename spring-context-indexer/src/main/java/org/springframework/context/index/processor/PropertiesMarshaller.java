@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,19 @@ abstract class PropertiesMarshaller {
 		props.store(out, null);
 	}
 
+	/**
+	 * Write the recorded class metadata of the candidates, if any.
+	 * @since 5.2.3
+	 */
+	public static void writeClassMetadata(CandidateComponentsMetadata metadata, OutputStream out)
+			throws IOException {
+
+		Properties props = new SortedProperties(true);
+		metadata.getItems().stream().filter(m -> m.getClassMetadata() != null)
+				.forEach(m -> props.put(m.getType(), m.getClassMetadata()));
+		props.store(out, null);
+	}
+
 	public static CandidateComponentsMetadata read(InputStream in) throws IOException {
 		CandidateComponentsMetadata result = new CandidateComponentsMetadata();
 		Properties props = new Properties();
@@ -50,4 +63,19 @@ abstract class PropertiesMarshaller {
 		return result;
 	}
 
+	/**
+	 * Read recorded class metadata, merging it with the specified metadata.
+	 * @since 5.2.3
+	 */
+	public static CandidateComponentsMetadata readClassMetadata(CandidateComponentsMetadata metadata,
+			InputStream in) throws IOException {
+
+		CandidateComponentsMetadata result = new CandidateComponentsMetadata();
+		Properties props = new Properties();
+		props.load(in);
+		metadata.getItems().forEach(m -> result.add(new ItemMetadata(m.getType(), m.getStereotypes(),
+				props.getProperty(m.getType()))));
+		return result;
+	}
+
 }
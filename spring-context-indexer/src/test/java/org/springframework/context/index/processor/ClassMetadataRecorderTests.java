@@ -0,0 +1,168 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.index.sample.SampleAttributes;
+import org.springframework.context.index.sample.SampleAttributesComponent;
+import org.springframework.context.index.sample.SampleComponent;
+import org.springframework.context.index.sample.SampleConfiguration;
+import org.springframework.context.index.test.TestCompiler;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ClassMetadataRecorder}, replaying the recorded metadata
+ * against the metadata read from the class file.
+ *
+ * <p>Recordings are read back by spring-core's {@code RecordingClassVisitor},
+ * which verifies that both sides of the binary format are kept in sync.
+ */
+class ClassMetadataRecorderTests {
+
+	private final SimpleMetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory();
+
+	private TestCompiler compiler;
+
+
+	@BeforeEach
+	void createCompiler(@TempDir Path tempDir) throws IOException {
+		this.compiler = new TestCompiler(tempDir);
+	}
+
+
+	@Test
+	void recordedMetadataMatchesClassFile() throws IOException {
+		CandidateComponentsMetadata metadata = compile(SampleConfiguration.class);
+		assertSameMetadata(metadata, SampleConfiguration.class.getName());
+	}
+
+	@Test
+	void recordedMetadataOfNestedClassMatchesClassFile() throws IOException {
+		CandidateComponentsMetadata metadata = compile(SampleConfiguration.class);
+		assertSameMetadata(metadata, SampleConfiguration.class.getName() + "$NestedConfiguration");
+	}
+
+	@Test
+	void recordedMetadataContainsConditionsAndBeanMethods() throws IOException {
+		CandidateComponentsMetadata metadata = compile(SampleConfiguration.class);
+		AnnotationMetadata replayed = replay(metadata, SampleConfiguration.class.getName());
+
+		assertThat(replayed.getAnnotationAttributes(Profile.class.getName()))
+				.containsEntry("value", new String[] {"dev", "test"});
+		assertThat(replayed.getAnnotatedMethods(Bean.class.getName()))
+				.extracting(MethodMetadata::getMethodName).containsExactly("one", "two", "three");
+	}
+
+	@Test
+	void recordedMetadataWithAllKindsOfValuesMatchesClassFile() throws IOException {
+		CandidateComponentsMetadata metadata = compile(SampleAttributesComponent.class);
+		String type = SampleAttributesComponent.class.getName();
+		AnnotationMetadata replayed = replay(metadata, type);
+		AnnotationMetadata expected = this.metadataReaderFactory.getMetadataReader(type).getAnnotationMetadata();
+
+		assertThat(replayed.getAnnotations().get(SampleAttributes.class).synthesize())
+				.isEqualTo(expected.getAnnotations().get(SampleAttributes.class).synthesize())
+				.isEqualTo(SampleAttributesComponent.class.getAnnotation(SampleAttributes.class));
+		Set<MethodMetadata> replayedMethods = replayed.getAnnotatedMethods(SampleAttributes.class.getName());
+		Set<MethodMetadata> expectedMethods = expected.getAnnotatedMethods(SampleAttributes.class.getName());
+		assertThat(replayedMethods).hasSize(1);
+		assertThat(replayedMethods.iterator().next().getAnnotations().get(SampleAttributes.class).synthesize())
+				.isEqualTo(expectedMethods.iterator().next().getAnnotations().get(SampleAttributes.class).synthesize());
+	}
+
+	@Test
+	void recordedMetadataMergedInIncrementalBuild() throws IOException {
+		compile(SampleConfiguration.class);
+		CandidateComponentsMetadata metadata = compile(SampleComponent.class);
+		assertThat(replay(metadata, SampleConfiguration.class.getName()).getClassName())
+				.isEqualTo(SampleConfiguration.class.getName());
+		assertThat(replay(metadata, SampleComponent.class.getName()).getClassName())
+				.isEqualTo(SampleComponent.class.getName());
+	}
+
+	private void assertSameMetadata(CandidateComponentsMetadata metadata, String type) throws IOException {
+		AnnotationMetadata replayed = replay(metadata, type);
+		AnnotationMetadata expected = this.metadataReaderFactory.getMetadataReader(type).getAnnotationMetadata();
+
+		assertThat(replayed.getClassName()).isEqualTo(expected.getClassName());
+		assertThat(replayed.getSuperClassName()).isEqualTo(expected.getSuperClassName());
+		assertThat(replayed.getInterfaceNames()).isEqualTo(expected.getInterfaceNames());
+		assertThat(replayed.getEnclosingClassName()).isEqualTo(expected.getEnclosingClassName());
+		assertThat(replayed.getMemberClassNames()).isEqualTo(expected.getMemberClassNames());
+		assertThat(replayed.isIndependent()).isEqualTo(expected.isIndependent());
+		assertThat(replayed.isInterface()).isEqualTo(expected.isInterface());
+		assertThat(replayed.isAbstract()).isEqualTo(expected.isAbstract());
+		assertThat(replayed.isFinal()).isEqualTo(expected.isFinal());
+		assertThat(replayed.getAnnotationTypes()).isEqualTo(expected.getAnnotationTypes());
+		for (String annotationType : expected.getAnnotationTypes()) {
+			assertThat(String.valueOf(replayed.getAnnotationAttributes(annotationType)))
+					.isEqualTo(String.valueOf(expected.getAnnotationAttributes(annotationType)));
+		}
+		assertThat(describe(replayed.getAnnotatedMethods(Bean.class.getName())))
+				.isEqualTo(describe(expected.getAnnotatedMethods(Bean.class.getName())));
+	}
+
+	private AnnotationMetadata replay(CandidateComponentsMetadata metadata, String type) throws IOException {
+		ItemMetadata item = metadata.getItems().stream()
+				.filter(candidate -> candidate.getType().equals(type))
+				.findFirst().orElseThrow(() -> new AssertionError("No candidate " + type));
+		assertThat(item.getClassMetadata()).isNotNull();
+		byte[] recordedMetadata = Base64.getDecoder().decode(item.getClassMetadata());
+		return this.metadataReaderFactory.getMetadataReader(recordedMetadata).getAnnotationMetadata();
+	}
+
+	private static List<String> describe(Iterable<MethodMetadata> methods) {
+		return StreamSupport.stream(methods.spliterator(), false)
+				.map(method -> method.getMethodName() + ":" + method.getReturnTypeName() + ":" +
+						method.isStatic() + ":" + method.isOverridable() + ":" +
+						method.getAnnotations().stream().map(annotation -> annotation.getType().getName() +
+								annotation.asAnnotationAttributes()).collect(Collectors.toList()))
+				.collect(Collectors.toList());
+	}
+
+	private CandidateComponentsMetadata compile(Class<?>... types) throws IOException {
+		this.compiler.getTask(types).call(new CandidateComponentsIndexer());
+		File outputLocation = this.compiler.getOutputLocation();
+		CandidateComponentsMetadata metadata;
+		try (FileInputStream in = new FileInputStream(new File(outputLocation, MetadataStore.METADATA_PATH))) {
+			metadata = PropertiesMarshaller.read(in);
+		}
+		try (FileInputStream in = new FileInputStream(new File(outputLocation, MetadataStore.CLASS_METADATA_PATH))) {
+			return PropertiesMarshaller.readClassMetadata(metadata, in);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test annotation declaring attributes of all kinds of annotation values.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SampleAttributes {
+
+	boolean flag() default false;
+
+	byte byteValue() default 0;
+
+	char charValue() default ' ';
+
+	short shortValue() default 0;
+
+	int intValue() default 0;
+
+	long longValue() default 0;
+
+	float floatValue() default 0;
+
+	double doubleValue() default 0;
+
+	String text() default "";
+
+	Class<?> type() default Void.class;
+
+	TimeUnit unit() default TimeUnit.SECONDS;
+
+	boolean[] flags() default {};
+
+	byte[] bytes() default {};
+
+	char[] chars() default {};
+
+	short[] shorts() default {};
+
+	int[] ints() default {};
+
+	long[] longs() default {};
+
+	float[] floats() default {};
+
+	double[] doubles() default {};
+
+	String[] texts() default {};
+
+	Class<?>[] types() default {};
+
+	TimeUnit[] units() default {};
+
+	Nested nested() default @Nested;
+
+	Nested[] nestedArray() default {};
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Nested {
+
+		String value() default "";
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Test candidate with annotation attributes of all kinds of values, covering
+ * every tag of the recorded class metadata format.
+ */
+@Component
+@SampleAttributes(flag = true, byteValue = 1, charValue = 'c', shortValue = 2, intValue = 3, longValue = 4L,
+		floatValue = 5.5f, doubleValue = 6.5d, text = "text", type = String.class, unit = TimeUnit.MINUTES,
+		flags = {true, false}, bytes = {1, 2}, chars = {'a', 'b'}, shorts = {3, 4}, ints = {5, 6},
+		longs = {7L, 8L}, floats = {9.5f}, doubles = {10.5d}, texts = {"a", "b"},
+		types = {Integer.class, int[].class}, units = {TimeUnit.HOURS, TimeUnit.DAYS},
+		nested = @SampleAttributes.Nested("nested"),
+		nestedArray = {@SampleAttributes.Nested("first"), @SampleAttributes.Nested("second")})
+public class SampleAttributesComponent {
+
+	@SampleAttributes(ints = {}, texts = {})
+	public void emptyArrays() {
+	}
+
+}
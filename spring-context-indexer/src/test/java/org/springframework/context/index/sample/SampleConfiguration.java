@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Test candidate for a {@link Configuration} class with conditions and
+ * {@link Bean} methods.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile({"dev", "test"})
+@SuppressWarnings("serial")
+public class SampleConfiguration implements Serializable {
+
+	@Bean(name = {"one", "first"}, initMethod = "toString")
+	@Lazy
+	public String one() {
+		return "one";
+	}
+
+	@Bean
+	@Primary
+	@DependsOn("one")
+	public static Integer two(String one, int[] values) {
+		return values.length;
+	}
+
+	@Bean
+	@Order(1)
+	@Scope(proxyMode = ScopedProxyMode.INTERFACES)
+	protected <T> List<T> three() {
+		return Collections.emptyList();
+	}
+
+	public String notABean() {
+		return "none";
+	}
+
+
+	@Configuration
+	@Profile("!dev")
+	static class NestedConfiguration {
+
+		@Bean
+		public char[] four() {
+			return new char[0];
+		}
+	}
+
+}
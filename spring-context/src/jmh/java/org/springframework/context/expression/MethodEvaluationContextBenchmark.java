@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.expression;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.OverlayEvaluationContext;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Benchmarks for evaluating an expression against the arguments of a method
+ * invocation, with a new {@link MethodBasedEvaluationContext} per invocation
+ * versus a {@link MethodBasedOverlayEvaluationContext} on a shared context.
+ * <p>Run with {@code -prof gc} for the allocation rate per invocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MethodEvaluationContextBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"#p0", "#name + '-' + #id", "#root.prefix + #name.length()"})
+		public String expressionString;
+
+		public Expression expression;
+
+		public Method method;
+
+		public ParameterNameDiscoverer parameterNameDiscoverer;
+
+		public MethodParameterIndex parameterIndex;
+
+		public EvaluationContext sharedContext;
+
+		public Object rootObject;
+
+		public Object[] arguments;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.expression = new SpelExpressionParser().parseExpression(this.expressionString);
+			this.method = ReflectionUtils.findMethod(Service.class, "find", String.class, long.class);
+			this.parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+			this.parameterIndex = new MethodParameterIndex(this.method, this.parameterNameDiscoverer);
+			this.sharedContext = OverlayEvaluationContext.createSharedContext();
+			this.rootObject = new Service();
+			this.arguments = new Object[] {"spring", 42L};
+		}
+	}
+
+
+	@Benchmark
+	public void methodBasedEvaluationContext(BenchmarkState state, Blackhole bh) {
+		EvaluationContext context = new MethodBasedEvaluationContext(
+				state.rootObject, state.method, state.arguments, state.parameterNameDiscoverer);
+		bh.consume(state.expression.getValue(context));
+	}
+
+	@Benchmark
+	public void methodBasedOverlayEvaluationContext(BenchmarkState state, Blackhole bh) {
+		EvaluationContext context = new MethodBasedOverlayEvaluationContext(
+				state.sharedContext, state.rootObject, state.parameterIndex, state.arguments);
+		bh.consume(state.expression.getValue(context));
+	}
+
+
+	public static class Service {
+
+		public String getPrefix() {
+			return "service-";
+		}
+
+		public Object find(String name, long id) {
+			return name + id;
+		}
+	}
+
+}
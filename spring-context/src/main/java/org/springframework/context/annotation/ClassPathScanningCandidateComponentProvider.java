@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,6 +49,7 @@ import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
@@ -384,7 +385,7 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			boolean traceEnabled = logger.isTraceEnabled();
 			boolean debugEnabled = logger.isDebugEnabled();
 			for (String type : types) {
-				MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				MetadataReader metadataReader = getMetadataReader(index, type);
 				if (isCandidateComponent(metadataReader)) {
 					AnnotatedGenericBeanDefinition sbd = new AnnotatedGenericBeanDefinition(
 							metadataReader.getAnnotationMetadata());
@@ -413,6 +414,28 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return candidates;
 	}
 
+	/**
+	 * Obtain the MetadataReader for the given indexed candidate, replaying its
+	 * class metadata from the index if recorded there, or reading the class file.
+	 */
+	private MetadataReader getMetadataReader(CandidateComponentsIndex index, String type) throws IOException {
+		MetadataReaderFactory metadataReaderFactory = getMetadataReaderFactory();
+		if (metadataReaderFactory instanceof SimpleMetadataReaderFactory) {
+			try {
+				byte[] recordedMetadata = index.getCandidateMetadata(type);
+				if (recordedMetadata != null) {
+					return ((SimpleMetadataReaderFactory) metadataReaderFactory).getMetadataReader(recordedMetadata);
+				}
+			}
+			catch (IOException | RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring invalid class metadata from index for " + type, ex);
+				}
+			}
+		}
+		return metadataReaderFactory.getMetadataReader(type);
+	}
+
 	private Set<BeanDefinition> scanCandidateComponents(String basePackage) {
 		Set<BeanDefinition> candidates = new LinkedHashSet<>();
 		try {
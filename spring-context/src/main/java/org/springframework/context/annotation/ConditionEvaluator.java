@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.context.annotation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -49,6 +51,9 @@ class ConditionEvaluator {
 
 	private final ConditionContextImpl context;
 
+	/** Resolved condition classes, keyed by class name. */
+	private final Map<String, Class<?>> conditionClassCache = new ConcurrentHashMap<>(16);
+
 
 	/**
 	 * Create a new {@link ConditionEvaluator} instance.
@@ -121,7 +126,11 @@ class ConditionEvaluator {
 	}
 
 	private Condition getCondition(String conditionClassName, @Nullable ClassLoader classloader) {
-		Class<?> conditionClass = ClassUtils.resolveClassName(conditionClassName, classloader);
+		// The same conditions tend to be evaluated for many configuration classes
+		// and bean methods: resolve each class once, but keep instantiating it
+		// per evaluation since Condition implementations may hold state.
+		Class<?> conditionClass = this.conditionClassCache.computeIfAbsent(conditionClassName,
+				className -> ClassUtils.resolveClassName(className, classloader));
 		return (Condition) BeanUtils.instantiateClass(conditionClass);
 	}
 
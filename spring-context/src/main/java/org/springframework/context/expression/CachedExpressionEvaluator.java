@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,21 @@
 
 package org.springframework.context.expression;
 
+import java.lang.reflect.Method;
 import java.util.Map;
 
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.OverlayEvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -38,8 +45,15 @@ public abstract class CachedExpressionEvaluator {
 
 	private final SpelExpressionParser parser;
 
+	private final SpelExpressionCache expressionCache = new SpelExpressionCache();
+
 	private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	private final Map<Method, MethodParameterIndex> parameterIndexCache = new ConcurrentReferenceHashMap<>(64);
+
+	@Nullable
+	private volatile SharedEvaluationContext sharedEvaluationContext;
+
 
 	/**
 	 * Create a new instance with the specified {@link SpelExpressionParser}.
@@ -73,20 +87,104 @@ public abstract class CachedExpressionEvaluator {
 	}
 
 
+	/**
+	 * Return the bounded cache of parsed expressions held by this evaluator,
+	 * e.g. for monitoring its {@linkplain SpelExpressionCache#getHitCount() hit}
+	 * and {@linkplain SpelExpressionCache#getMissCount() miss} counts.
+	 * @since 5.2.3
+	 * @see #getExpression
+	 */
+	public SpelExpressionCache getExpressionCache() {
+		return this.expressionCache;
+	}
+
+	/**
+	 * Clear the parsed expressions, the parameter indexes and the shared
+	 * evaluation context held by this evaluator.
+	 * <p>Subclasses holding further caches are expected to clear them as well.
+	 * @since 5.2.3
+	 */
+	protected void clearCaches() {
+		this.expressionCache.clear();
+		this.parameterIndexCache.clear();
+		this.sharedEvaluationContext = null;
+	}
+
+	/**
+	 * Return the shared {@link MethodParameterIndex} for the given method.
+	 * @param method the method to resolve arguments for
+	 * @since 5.2.3
+	 */
+	protected MethodParameterIndex getParameterIndex(Method method) {
+		MethodParameterIndex parameterIndex = this.parameterIndexCache.get(method);
+		if (parameterIndex == null) {
+			parameterIndex = new MethodParameterIndex(method, getParameterNameDiscoverer());
+			this.parameterIndexCache.put(method, parameterIndex);
+		}
+		return parameterIndex;
+	}
+
+	/**
+	 * Return an {@link EvaluationContext} to be shared by the
+	 * {@link OverlayEvaluationContext overlays} for individual evaluations,
+	 * resolving bean references against the given bean factory.
+	 * <p>The context is created on first use and recreated when called with
+	 * a different bean factory.
+	 * @param beanFactory the bean factory to resolve bean references against
+	 * (may be {@code null})
+	 * @since 5.2.3
+	 * @see #createSharedEvaluationContext
+	 */
+	protected EvaluationContext getSharedEvaluationContext(@Nullable BeanFactory beanFactory) {
+		SharedEvaluationContext shared = this.sharedEvaluationContext;
+		if (shared == null || shared.beanFactory != beanFactory) {
+			shared = new SharedEvaluationContext(beanFactory, createSharedEvaluationContext(beanFactory));
+			this.sharedEvaluationContext = shared;
+		}
+		return shared.context;
+	}
+
+	/**
+	 * Create the shared {@link EvaluationContext} for the given bean factory.
+	 * <p>The default implementation creates a {@link StandardEvaluationContext}
+	 * with a {@link BeanFactoryResolver} if a bean factory is given. Subclasses
+	 * may register further accessors or resolvers, as long as the returned
+	 * context is not modified afterwards.
+	 * @param beanFactory the bean factory to resolve bean references against
+	 * (may be {@code null})
+	 * @since 5.2.3
+	 * @see OverlayEvaluationContext#createSharedContext()
+	 */
+	protected EvaluationContext createSharedEvaluationContext(@Nullable BeanFactory beanFactory) {
+		StandardEvaluationContext context = OverlayEvaluationContext.createSharedContext();
+		if (beanFactory != null) {
+			context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+		}
+		return context;
+	}
+
 	/**
 	 * Return the {@link Expression} for the specified SpEL value
-	 * <p>Parse the expression if it hasn't been already.
-	 * @param cache the cache to use
+	 * <p>Parse the expression if it hasn't been already. As of 5.2.3, expressions
+	 * are held in the bounded {@link #getExpressionCache() expression cache} of
+	 * this evaluator, so that the same expression is parsed only once across all
+	 * elements, and the given cache is only used if the parser is not
+	 * {@linkplain SpelExpressionCache#supports supported} by the expression cache.
+	 * @param cache the cache to use for parsers not supported by the expression cache
 	 * @param elementKey the element on which the expression is defined
 	 * @param expression the expression to parse
 	 */
 	protected Expression getExpression(Map<ExpressionKey, Expression> cache,
 			AnnotatedElementKey elementKey, String expression) {
 
+		SpelExpressionParser parser = getParser();
+		if (this.expressionCache.supports(parser)) {
+			return this.expressionCache.getExpression(parser, expression);
+		}
 		ExpressionKey expressionKey = createKey(elementKey, expression);
 		Expression expr = cache.get(expressionKey);
 		if (expr == null) {
-			expr = getParser().parseExpression(expression);
+			expr = parser.parseExpression(expression);
 			cache.put(expressionKey, expr);
 		}
 		return expr;
@@ -97,6 +195,23 @@ public abstract class CachedExpressionEvaluator {
 	}
 
 
+	/**
+	 * A shared evaluation context along with the bean factory it was created for.
+	 */
+	private static final class SharedEvaluationContext {
+
+		@Nullable
+		final BeanFactory beanFactory;
+
+		final EvaluationContext context;
+
+		SharedEvaluationContext(@Nullable BeanFactory beanFactory, EvaluationContext context) {
+			this.beanFactory = beanFactory;
+			this.context = context;
+		}
+	}
+
+
 	/**
 	 * An expression key.
 	 */
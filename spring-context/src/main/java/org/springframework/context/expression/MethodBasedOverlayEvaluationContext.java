@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.expression;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.OverlayEvaluationContext;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A method-based {@link OverlayEvaluationContext}: a lightweight alternative to
+ * {@link MethodBasedEvaluationContext} for a single method invocation, sharing
+ * accessors and resolvers with other invocations through a shared context.
+ *
+ * <p>Exposes the actual method arguments under the same variable names as
+ * {@link MethodBasedEvaluationContext}, resolved on lookup through a
+ * {@link MethodParameterIndex} that is shared by all invocations of the method
+ * instead of being registered as variables per invocation.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see CachedExpressionEvaluator#getSharedEvaluationContext
+ * @see CachedExpressionEvaluator#getParameterIndex
+ */
+public class MethodBasedOverlayEvaluationContext extends OverlayEvaluationContext {
+
+	private final MethodParameterIndex parameterIndex;
+
+	private final Object[] arguments;
+
+
+	/**
+	 * Create a new {@code MethodBasedOverlayEvaluationContext}.
+	 * @param sharedContext the shared context to delegate to
+	 * @param rootObject the root object to use
+	 * @param parameterIndex the parameter index of the invoked method
+	 * @param arguments the actual method arguments
+	 */
+	public MethodBasedOverlayEvaluationContext(EvaluationContext sharedContext, Object rootObject,
+			MethodParameterIndex parameterIndex, Object[] arguments) {
+
+		super(sharedContext, rootObject);
+		Assert.notNull(parameterIndex, "MethodParameterIndex must not be null");
+		this.parameterIndex = parameterIndex;
+		this.arguments = arguments;
+	}
+
+
+	@Override
+	@Nullable
+	public Object lookupVariable(String name) {
+		Object variable = super.lookupVariable(name);
+		if (variable != null) {
+			return variable;
+		}
+		return this.parameterIndex.resolveArgument(name, this.arguments);
+	}
+
+}
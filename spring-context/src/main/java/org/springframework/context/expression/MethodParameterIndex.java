@@ -0,0 +1,164 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.expression;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Index of the variable names that refer to the parameters of a method, for
+ * resolving method arguments by variable name without registering a variable
+ * per argument. Supports the same variable names as
+ * {@link MethodBasedEvaluationContext}:
+ * <ol>
+ * <li>pX where X is the index of the argument (p0 for the first argument)</li>
+ * <li>aX where X is the index of the argument (a1 for the second argument)</li>
+ * <li>the name of the parameter as discovered by the given {@link ParameterNameDiscoverer}</li>
+ * </ol>
+ *
+ * <p>An index is meant to be created once per method and shared: parameter
+ * names are discovered on first use and kept for subsequent lookups.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see MethodBasedOverlayEvaluationContext
+ */
+public final class MethodParameterIndex {
+
+	private static final String[] NO_PARAMETER_NAMES = new String[0];
+
+
+	private final Method method;
+
+	private final ParameterNameDiscoverer parameterNameDiscoverer;
+
+	private final int parameterCount;
+
+	@Nullable
+	private volatile String[] parameterNames;
+
+
+	/**
+	 * Create a new {@code MethodParameterIndex} for the given method.
+	 * @param method the method whose arguments to resolve
+	 * @param parameterNameDiscoverer the discoverer for the parameter names
+	 */
+	public MethodParameterIndex(Method method, ParameterNameDiscoverer parameterNameDiscoverer) {
+		Assert.notNull(method, "Method must not be null");
+		Assert.notNull(parameterNameDiscoverer, "ParameterNameDiscoverer must not be null");
+		this.method = method;
+		this.parameterNameDiscoverer = parameterNameDiscoverer;
+		this.parameterCount = method.getParameterCount();
+	}
+
+
+	/**
+	 * Return the method that this index refers to.
+	 */
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return the index of the parameter that the given variable name refers to.
+	 * <p>If a parameter name clashes with the index-based name of another
+	 * parameter, the parameter with the higher index wins, consistent with
+	 * {@link MethodBasedEvaluationContext}.
+	 * @param variableName the name of the variable
+	 * @return the index of the parameter, or -1 if the variable name does not
+	 * refer to a parameter
+	 */
+	public int getParameterIndex(String variableName) {
+		int index = getIndexForAlias(variableName);
+		String[] names = getParameterNames();
+		for (int i = names.length - 1; i > index; i--) {
+			if (variableName.equals(names[i])) {
+				return i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Resolve the argument that the given variable name refers to.
+	 * <p>If the method is invoked with more arguments than it declares
+	 * parameters, the remaining arguments are exposed as an array for the
+	 * last parameter.
+	 * @param variableName the name of the variable
+	 * @param arguments the actual method arguments
+	 * @return the argument, or {@code null} if the variable name does not
+	 * refer to a parameter or if no argument was given for the parameter
+	 */
+	@Nullable
+	public Object resolveArgument(String variableName, Object[] arguments) {
+		int argsCount = arguments.length;
+		if (argsCount == 0) {
+			return null;
+		}
+		int index = getParameterIndex(variableName);
+		if (index < 0) {
+			return null;
+		}
+		if (argsCount > this.parameterCount && index == this.parameterCount - 1) {
+			// Expose remaining arguments as vararg array for last parameter
+			return Arrays.copyOfRange(arguments, index, argsCount);
+		}
+		return (argsCount > index ? arguments[index] : null);
+	}
+
+	private int getIndexForAlias(String variableName) {
+		int length = variableName.length();
+		if (length < 2 || length > 10) {
+			return -1;
+		}
+		char prefix = variableName.charAt(0);
+		if ((prefix != 'a' && prefix != 'p') || (variableName.charAt(1) == '0' && length > 2)) {
+			return -1;
+		}
+		int index = 0;
+		for (int i = 1; i < length; i++) {
+			char ch = variableName.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return -1;
+			}
+			index = index * 10 + (ch - '0');
+		}
+		return (index < this.parameterCount ? index : -1);
+	}
+
+	private String[] getParameterNames() {
+		String[] names = this.parameterNames;
+		if (names == null) {
+			names = this.parameterNameDiscoverer.getParameterNames(this.method);
+			if (names == null) {
+				names = NO_PARAMETER_NAMES;
+			}
+			this.parameterNames = names;
+		}
+		return names;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " for " + this.method;
+	}
+
+}
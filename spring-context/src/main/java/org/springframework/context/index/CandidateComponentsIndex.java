@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,16 @@
 
 package org.springframework.context.index;
 
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -52,9 +56,16 @@ public class CandidateComponentsIndex {
 
 	private final MultiValueMap<String, Entry> index;
 
+	private final Map<String, String> metadata;
+
 
 	CandidateComponentsIndex(List<Properties> content) {
+		this(content, Collections.emptyList());
+	}
+
+	CandidateComponentsIndex(List<Properties> content, List<Properties> metadata) {
 		this.index = parseIndex(content);
+		this.metadata = parseMetadata(metadata);
 	}
 
 
@@ -76,6 +87,32 @@ public class CandidateComponentsIndex {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Return the class metadata that has been recorded for the specified
+	 * candidate type, if any.
+	 * <p>Such metadata is written next to the index by the
+	 * {@code spring-context-indexer} annotation processor and can be turned into
+	 * a {@link org.springframework.core.type.classreading.MetadataReader} via
+	 * {@link org.springframework.core.type.classreading.SimpleMetadataReaderFactory#getMetadataReader(byte[])},
+	 * avoiding to read the class file of the candidate.
+	 * @param type the candidate type, as returned from {@link #getCandidateTypes}
+	 * @return the recorded class metadata, or {@code null} if none is available
+	 * @since 5.2.3
+	 */
+	@Nullable
+	public byte[] getCandidateMetadata(String type) {
+		String metadata = this.metadata.get(type);
+		return (metadata != null ? Base64.getDecoder().decode(metadata) : null);
+	}
+
+	private static Map<String, String> parseMetadata(List<Properties> content) {
+		Map<String, String> metadata = new HashMap<>();
+		for (Properties entry : content) {
+			entry.forEach((type, value) -> metadata.put((String) type, (String) value));
+		}
+		return metadata;
+	}
+
 	private static MultiValueMap<String, Entry> parseIndex(List<Properties> content) {
 		MultiValueMap<String, Entry> index = new LinkedMultiValueMap<>();
 		for (Properties entry : content) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.aop.framework;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.rmi.MarshalException;
@@ -80,6 +82,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author Rod Johnson
@@ -187,6 +190,42 @@ public abstract class AbstractAopProxyTests {
 		}
 	}
 
+	@Test
+	@EnabledForTestGroups(TestGroup.PERFORMANCE)
+	public void testInterceptorChainAllocation() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+
+		long unadvised = allocatedBytesPerCall((com.sun.management.ThreadMXBean) threadMXBean, 0);
+		long advised = allocatedBytesPerCall((com.sun.management.ThreadMXBean) threadMXBean, 3);
+		// No per-call cache key or empty argument array, and only the
+		// MethodInvocation itself for the interceptor chain
+		assertThat(unadvised).as("Allocated bytes per unadvised call").isZero();
+		assertThat(advised).as("Allocated bytes per advised call").isLessThanOrEqualTo(64);
+	}
+
+	private long allocatedBytesPerCall(com.sun.management.ThreadMXBean threadMXBean, int interceptors) {
+		int calls = 100000;
+		TestBean target = new TestBean("tb");
+		ProxyFactory pf = new ProxyFactory(target);
+		for (int i = 0; i < interceptors; i++) {
+			pf.addAdvice(new NopInterceptor());
+		}
+		ITestBean proxy = (ITestBean) createProxy(pf);
+		long threadId = Thread.currentThread().getId();
+		int length = 0;
+		for (int i = 0; i < calls; i++) {
+			length += proxy.getName().length();
+		}
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < calls; i++) {
+			length += proxy.getName().length();
+		}
+		long after = threadMXBean.getThreadAllocatedBytes(threadId);
+		assertThat(length).isEqualTo(2 * 2 * calls);
+		return (after - before) / calls;
+	}
+
 	@Test
 	public void testSerializationAdviceAndTargetNotSerializable() throws Exception {
 		TestBean tb = new TestBean();
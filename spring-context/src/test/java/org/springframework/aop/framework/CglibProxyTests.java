@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,10 @@ import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.cglib.core.FingerprintNamingPolicy;
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.NoOp;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
@@ -393,6 +397,32 @@ public class CglibProxyTests extends AbstractAopProxyTests implements Serializab
 		assertThat(proxy.doWithVarargs(MyEnum.A, MyOtherEnum.C)).isTrue();
 	}
 
+	@Test
+	public void testFingerprintNamingPolicy() {
+		CallbackFilter filter = method -> 0;
+		CallbackFilter otherFilter = method -> (method.getName().equals("getName") ? 1 : 0);
+		Class<?>[] interfaces = new Class<?>[] {Serializable.class};
+		Class<?>[] callbackTypes = new Class<?>[] {NoOp.class, NoOp.class};
+
+		String name = createFingerprintedClass(filter, interfaces, callbackTypes).getName();
+		assertThat(createFingerprintedClass(filter, interfaces, callbackTypes).getName()).isEqualTo(name + "_2");
+		assertThat(createFingerprintedClass(otherFilter, interfaces, callbackTypes).getName())
+				.startsWith(MyBean.class.getName() + "$$").isNotEqualTo(name).doesNotEndWith("_2");
+		assertThat(createFingerprintedClass(filter, new Class<?>[0], callbackTypes).getName())
+				.isNotEqualTo(name).doesNotEndWith("_2");
+	}
+
+	private Class<?> createFingerprintedClass(CallbackFilter filter, Class<?>[] interfaces, Class<?>[] callbackTypes) {
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(MyBean.class);
+		enhancer.setInterfaces(interfaces);
+		enhancer.setCallbackFilter(filter);
+		enhancer.setCallbackTypes(callbackTypes);
+		enhancer.setUseCache(false);
+		enhancer.setNamingPolicy(new FingerprintNamingPolicy(MyBean.class, interfaces, filter, callbackTypes));
+		return enhancer.createClass();
+	}
+
 
 	public static class MyBean {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,13 +22,17 @@ import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.ProxyMethodInvocation;
 import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.tests.aop.interceptor.NopInterceptor;
 import org.springframework.tests.sample.beans.IOther;
 import org.springframework.tests.sample.beans.ITestBean;
 import org.springframework.tests.sample.beans.TestBean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -147,6 +151,57 @@ public class JdkDynamicProxyTests extends AbstractAopProxyTests implements Seria
 		assertThat(proxy.doWithVarargs(MyEnum.A, MyOtherEnum.C)).isTrue();
 	}
 
+	@Test
+	public void testFixedChainWithFrozenConfiguration() throws Throwable {
+		TestBean target = new TestBean();
+		NopInterceptor nop = new NopInterceptor();
+		AdvisedSupport pc = new AdvisedSupport(ITestBean.class);
+		pc.addAdvice(nop);
+		pc.addAdvice((MethodInterceptor) invocation -> {
+			if (invocation.getMethod().getName().equals("setAge")) {
+				((ProxyMethodInvocation) invocation).setArguments(99);
+			}
+			return invocation.proceed();
+		});
+		pc.setTarget(target);
+		pc.setFrozen(true);
+		ITestBean proxy = (ITestBean) createAopProxy(pc).getProxy();
+
+		proxy.setAge(25);
+		assertThat(target.getAge()).isEqualTo(99);
+		assertThat(proxy.getAge()).isEqualTo(99);
+		assertThat(nop.getCount()).isEqualTo(2);
+		Exception ex = new Exception();
+		assertThatExceptionOfType(Exception.class).isThrownBy(() -> proxy.exceptional(ex)).isSameAs(ex);
+		assertThat(nop.getCount()).isEqualTo(3);
+
+		pc.setFrozen(false);
+		NopInterceptor nop2 = new NopInterceptor();
+		pc.addAdvice(nop2);
+		pc.setFrozen(true);
+		proxy.getAge();
+		assertThat(nop.getCount()).isEqualTo(4);
+		assertThat(nop2.getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testFixedChainWithInvalidArguments() {
+		TestBean target = new TestBean();
+		AdvisedSupport pc = new AdvisedSupport(ITestBean.class);
+		pc.addAdvice((MethodInterceptor) invocation -> {
+			Object argument = (Integer.valueOf(25).equals(invocation.getArguments()[0]) ? "99" : null);
+			((ProxyMethodInvocation) invocation).setArguments(new Object[] {argument});
+			return invocation.proceed();
+		});
+		pc.setTarget(target);
+		pc.setFrozen(true);
+		ITestBean proxy = (ITestBean) createAopProxy(pc).getProxy();
+
+		assertThatExceptionOfType(AopInvocationException.class).isThrownBy(() -> proxy.setAge(25));
+		assertThatExceptionOfType(AopInvocationException.class).isThrownBy(() -> proxy.setAge(26));
+		assertThat(target.getAge()).isEqualTo(0);
+	}
+
 
 	public interface Foo {
 
@@ -95,6 +95,22 @@ public class ExpressionEvaluatorTests {
 		assertThat(keyB).isEqualTo(args[1]);
 	}
 
+	@Test
+	public void clearRemovesParsedExpressions() {
+		Method method = ReflectionUtils.findMethod(AnnotatedClass.class, "multipleCaching", Object.class, Object.class);
+		Object[] args = new Object[] {new Object(), new Object()};
+		EvaluationContext evalCtx = this.eval.createEvaluationContext(Collections.emptySet(), method, args,
+				new AnnotatedClass(), AnnotatedClass.class, method, CacheOperationExpressionEvaluator.NO_RESULT, null);
+		AnnotatedElementKey key = new AnnotatedElementKey(method, AnnotatedClass.class);
+
+		assertThat(this.eval.key("#p0", key, evalCtx)).isSameAs(args[0]);
+		assertThat(this.eval.condition("#p0 != null", key, evalCtx)).isTrue();
+		assertThat(this.eval.getExpressionCache().size()).isEqualTo(2);
+
+		this.eval.clear();
+		assertThat(this.eval.getExpressionCache().size()).isEqualTo(0);
+	}
+
 	@Test
 	public void withReturnValue() {
 		EvaluationContext context = createEvaluationContext("theResult");
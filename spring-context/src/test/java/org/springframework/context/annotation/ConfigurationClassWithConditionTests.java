@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
@@ -157,6 +158,17 @@ public class ConfigurationClassWithConditionTests {
 		assertThat(beans.keySet().iterator().next()).isEqualTo("baz");
 	}
 
+	@Test
+	public void conditionClassLoadedOnceButInstantiatedPerEvaluation() {
+		ConditionEvaluator evaluator = new ConditionEvaluator(null, null, null);
+		CountingCondition.instances.set(0);
+		assertThat(evaluator.shouldSkip(AnnotationMetadata.introspect(CountingConditionBean.class))).isFalse();
+		assertThat(evaluator.shouldSkip(AnnotationMetadata.introspect(CountingConditionBean.class))).isFalse();
+		assertThat(evaluator.shouldSkip(AnnotationMetadata.introspect(OtherCountingConditionBean.class))).isFalse();
+		assertThat(CountingCondition.instances.get()).isEqualTo(3);
+		assertThat(CountingCondition.initializations.get()).isEqualTo(1);
+	}
+
 
 	@Configuration
 	static class BeanOneConfiguration {
@@ -265,6 +277,39 @@ public class ConfigurationClassWithConditionTests {
 		}
 	}
 
+	static class CountingCondition implements Condition {
+
+		static final AtomicInteger initializations = new AtomicInteger();
+
+		static final AtomicInteger instances = new AtomicInteger();
+
+		static {
+			initializations.incrementAndGet();
+		}
+
+		private boolean evaluated;
+
+		CountingCondition() {
+			instances.incrementAndGet();
+		}
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			// Only matches once per instance: stateful conditions must not be shared
+			boolean matches = !this.evaluated;
+			this.evaluated = true;
+			return matches;
+		}
+	}
+
+	@Conditional(CountingCondition.class)
+	static class CountingConditionBean {
+	}
+
+	@Conditional(CountingCondition.class)
+	static class OtherCountingConditionBean {
+	}
+
 	@Component
 	@MetaNever
 	static class NonConfigurationClass {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -66,6 +66,38 @@ public class CachedExpressionEvaluatorTests {
 		assertThat(expressionEvaluator.testCache.size()).as("Cached expression should be based on type").isEqualTo(2);
 	}
 
+	@Test
+	public void shareExpressionAcrossElementsOnly() {
+		Method method = ReflectionUtils.findMethod(getClass(), "toString");
+		DefaultExpressionEvaluator first = new DefaultExpressionEvaluator();
+		DefaultExpressionEvaluator second = new DefaultExpressionEvaluator();
+		Expression expression = first.getTestExpression("'shared'", method, getClass());
+		assertThat(first.getTestExpression("'shared'", method, Object.class)).isSameAs(expression);
+		assertThat(second.getTestExpression("'shared'", method, getClass())).isNotSameAs(expression);
+	}
+
+	@Test
+	public void expressionCacheIsOnlyStore() {
+		Method method = ReflectionUtils.findMethod(getClass(), "toString");
+		DefaultExpressionEvaluator evaluator = new DefaultExpressionEvaluator();
+		evaluator.getTestExpression("true", method, getClass());
+		evaluator.getTestExpression("true", method, Object.class);
+		assertThat(evaluator.testCache).isEmpty();
+		assertThat(evaluator.getExpressionCache().size()).isEqualTo(1);
+		assertThat(evaluator.getExpressionCache().getMissCount()).isEqualTo(1);
+		assertThat(evaluator.getExpressionCache().getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearCaches() {
+		Method method = ReflectionUtils.findMethod(getClass(), "toString");
+		DefaultExpressionEvaluator evaluator = new DefaultExpressionEvaluator();
+		Expression expression = evaluator.getTestExpression("true", method, getClass());
+		evaluator.clearCaches();
+		assertThat(evaluator.getExpressionCache().size()).isEqualTo(0);
+		assertThat(evaluator.getTestExpression("true", method, getClass())).isNotSameAs(expression);
+	}
+
 	private void hasParsedExpression(String expression) {
 		verify(expressionEvaluator.getParser(), times(1)).parseExpression(expression);
 	}
@@ -88,4 +120,14 @@ public class CachedExpressionEvaluatorTests {
 		}
 	}
 
+
+	private static class DefaultExpressionEvaluator extends CachedExpressionEvaluator {
+
+		private final Map<ExpressionKey, Expression> testCache = new ConcurrentHashMap<>();
+
+		public Expression getTestExpression(String expression, Method method, Class<?> type) {
+			return getExpression(this.testCache, new AnnotatedElementKey(method, type), expression);
+		}
+	}
+
 }
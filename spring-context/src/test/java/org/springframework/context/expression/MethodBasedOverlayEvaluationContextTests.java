@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.expression;
+
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.OverlayEvaluationContext;
+import org.springframework.util.ReflectionUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link MethodBasedOverlayEvaluationContext} and {@link MethodParameterIndex}.
+ */
+class MethodBasedOverlayEvaluationContextTests {
+
+	private final ParameterNameDiscoverer paramDiscover = new DefaultParameterNameDiscoverer();
+
+	private final EvaluationContext sharedContext = OverlayEvaluationContext.createSharedContext();
+
+
+	@Test
+	void simpleArguments() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", String.class, Boolean.class);
+		EvaluationContext context = createEvaluationContext(method, "test", true);
+
+		assertThat(context.lookupVariable("a0")).isEqualTo("test");
+		assertThat(context.lookupVariable("p0")).isEqualTo("test");
+		assertThat(context.lookupVariable("foo")).isEqualTo("test");
+
+		assertThat(context.lookupVariable("a1")).isEqualTo(true);
+		assertThat(context.lookupVariable("p1")).isEqualTo(true);
+		assertThat(context.lookupVariable("flag")).isEqualTo(true);
+
+		assertThat(context.lookupVariable("a2")).isNull();
+		assertThat(context.lookupVariable("p2")).isNull();
+		assertThat(context.lookupVariable("p00")).isNull();
+		assertThat(context.lookupVariable("b0")).isNull();
+		assertThat(context.lookupVariable("other")).isNull();
+	}
+
+	@Test
+	void nullArgument() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", String.class, Boolean.class);
+		EvaluationContext context = createEvaluationContext(method, null, null);
+
+		assertThat(context.lookupVariable("a0")).isNull();
+		assertThat(context.lookupVariable("foo")).isNull();
+		assertThat(context.lookupVariable("p1")).isNull();
+		assertThat(context.lookupVariable("flag")).isNull();
+	}
+
+	@Test
+	void varArgSingle() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", Boolean.class, String[].class);
+		EvaluationContext context = createEvaluationContext(method, null, "hello");
+
+		assertThat(context.lookupVariable("flag")).isNull();
+		assertThat(context.lookupVariable("a1")).isEqualTo("hello");
+		assertThat(context.lookupVariable("vararg")).isEqualTo("hello");
+	}
+
+	@Test
+	void varArgMultiple() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", Boolean.class, String[].class);
+		EvaluationContext context = createEvaluationContext(method, null, "hello", "hi");
+
+		assertThat(context.lookupVariable("p0")).isNull();
+		assertThat(context.lookupVariable("p1")).isEqualTo(new Object[] {"hello", "hi"});
+		assertThat(context.lookupVariable("vararg")).isEqualTo(new Object[] {"hello", "hi"});
+	}
+
+	@Test
+	void parameterNameClashingWithIndex() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "clash", String.class, String.class);
+		EvaluationContext context = createEvaluationContext(method, "first", "second");
+
+		// Consistent with MethodBasedEvaluationContext: the higher index wins
+		assertThat(context.lookupVariable("p1")).isEqualTo("second");
+		assertThat(context.lookupVariable("p0")).isEqualTo("second");
+	}
+
+	@Test
+	void variableTakesPrecedenceOverArgument() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", String.class, Boolean.class);
+		EvaluationContext context = createEvaluationContext(method, "test", true);
+		context.setVariable("foo", "bar");
+
+		assertThat(context.lookupVariable("foo")).isEqualTo("bar");
+		assertThat(context.lookupVariable("p0")).isEqualTo("test");
+	}
+
+	@Test
+	void evaluateExpression() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", String.class, Boolean.class);
+		MethodParameterIndex parameterIndex = new MethodParameterIndex(method, this.paramDiscover);
+		SpelExpressionParser parser = new SpelExpressionParser();
+
+		EvaluationContext context = new MethodBasedOverlayEvaluationContext(
+				this.sharedContext, new SampleMethods(), parameterIndex, new Object[] {"test", true});
+		assertThat(parser.parseExpression("#foo.length() + name.length()").getValue(context)).isEqualTo(10);
+
+		context = new MethodBasedOverlayEvaluationContext(
+				this.sharedContext, new SampleMethods(), parameterIndex, new Object[] {"other", true});
+		assertThat(parser.parseExpression("#flag ? #foo + name : null").getValue(context)).isEqualTo("othersample");
+	}
+
+	private EvaluationContext createEvaluationContext(Method method, Object... args) {
+		MethodParameterIndex parameterIndex = new MethodParameterIndex(method, this.paramDiscover);
+		return new MethodBasedOverlayEvaluationContext(this.sharedContext, this, parameterIndex, args);
+	}
+
+
+	@SuppressWarnings("unused")
+	private static class SampleMethods {
+
+		public String getName() {
+			return "sample";
+		}
+
+		private void hello(String foo, Boolean flag) {
+		}
+
+		private void hello(Boolean flag, String... vararg){
+		}
+
+		private void clash(String p1, String p0) {
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.context.index;
 
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Properties;
 import java.util.Set;
@@ -80,6 +81,16 @@ public class CandidateComponentsIndexTests {
 				.contains("com.example.Foo");
 	}
 
+	@Test
+	public void getCandidateMetadata() {
+		byte[] metadata = {1, 2, 3};
+		CandidateComponentsIndex index = new CandidateComponentsIndex(
+				Collections.singletonList(createSampleProperties()), Collections.singletonList(
+						createProperties("com.example.service.One", Base64.getEncoder().encodeToString(metadata))));
+		assertThat(index.getCandidateMetadata("com.example.service.One")).isEqualTo(metadata);
+		assertThat(index.getCandidateMetadata("com.example.service.Three")).isNull();
+	}
+
 	private static Properties createProperties(String key, String stereotypes) {
 		Properties properties = new Properties();
 		properties.put(key, String.join(",", stereotypes));
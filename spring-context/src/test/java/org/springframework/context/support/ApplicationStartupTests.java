@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationStartupAware;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.BufferingApplicationStartup;
+import org.springframework.core.metrics.BufferingApplicationStartup.RecordedStep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for recording {@link ApplicationStartup} steps during context refresh.
+ */
+class ApplicationStartupTests {
+
+	@Test
+	void refreshRecordsStartupSteps() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(1000);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(applicationStartup);
+		context.register(Config.class);
+		context.refresh();
+
+		List<RecordedStep> steps = applicationStartup.getRecordedSteps();
+		Map<Long, RecordedStep> stepsById = steps.stream().collect(Collectors.toMap(RecordedStep::getId, step -> step));
+		assertThat(steps).extracting(RecordedStep::getName).contains(
+				"spring.context.component-classes.register", "spring.context.refresh",
+				"spring.context.beans.post-process", "spring.context.beandef-registry.post-process",
+				"spring.context.config-classes.parse", "spring.context.config-classes.enhance",
+				"spring.beans.instantiate", "spring.beans.smart-initialize");
+
+		RecordedStep refresh = steps.stream().filter(step -> step.getName().equals("spring.context.refresh"))
+				.findFirst().get();
+		RecordedStep smartInitialize = steps.stream()
+				.filter(step -> step.getName().equals("spring.beans.smart-initialize"))
+				.filter(step -> step.getTags().iterator().next().getValue().equals("smartBean"))
+				.findFirst().get();
+		RecordedStep ancestor = smartInitialize;
+		while (ancestor.getParentId() != null) {
+			ancestor = stepsById.get(ancestor.getParentId());
+		}
+		assertThat(ancestor).isSameAs(refresh);
+
+		assertThat(context.getBean(ConfigurableApplicationContext.APPLICATION_STARTUP_BEAN_NAME)).isSameAs(applicationStartup);
+		assertThat(context.getBean(StartupAwareBean.class).applicationStartup).isSameAs(applicationStartup);
+		assertThat(context.getDefaultListableBeanFactory().getApplicationStartup()).isSameAs(applicationStartup);
+		context.close();
+	}
+
+	@Test
+	void defaultApplicationStartup() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class);
+		assertThat(context.getApplicationStartup()).isSameAs(ApplicationStartup.DEFAULT);
+		assertThat(context.getBean(StartupAwareBean.class).applicationStartup).isSameAs(ApplicationStartup.DEFAULT);
+		context.close();
+	}
+
+
+	@Configuration
+	static class Config {
+
+		@Bean
+		public StartupAwareBean startupAwareBean() {
+			return new StartupAwareBean();
+		}
+
+		@Bean
+		public SmartInitializingSingleton smartBean() {
+			return () -> { };
+		}
+	}
+
+
+	static class StartupAwareBean implements ApplicationStartupAware {
+
+		ApplicationStartup applicationStartup;
+
+		@Override
+		public void setApplicationStartup(ApplicationStartup applicationStartup) {
+			this.applicationStartup = applicationStartup;
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link ResolvableType} creation and generics resolution.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ResolvableTypeBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public Field mapField;
+
+		@Setup
+		public void setup() throws Exception {
+			this.mapField = Sample.class.getDeclaredField("map");
+		}
+	}
+
+
+	@Benchmark
+	public void forClass(Blackhole bh) {
+		bh.consume(ResolvableType.forClass(StringList.class));
+	}
+
+	@Benchmark
+	public void forClassResolveGeneric(Blackhole bh) {
+		bh.consume(ResolvableType.forClass(StringList.class).as(List.class).resolveGeneric(0));
+	}
+
+	@Benchmark
+	public void forClassWithGenerics(Blackhole bh) {
+		bh.consume(ResolvableType.forClassWithGenerics(Map.class, String.class, Integer.class));
+	}
+
+	@Benchmark
+	public void forField(BenchmarkData data, Blackhole bh) {
+		bh.consume(ResolvableType.forField(data.mapField).resolveGeneric(1, 0));
+	}
+
+	@Benchmark
+	public void isAssignableFrom(Blackhole bh) {
+		ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, String.class);
+		bh.consume(listType.isAssignableFrom(ResolvableType.forClass(StringList.class)));
+	}
+
+
+	@SuppressWarnings("serial")
+	static class StringList extends java.util.ArrayList<String> {
+	}
+
+
+	static class Sample {
+
+		Map<String, List<Integer>> map;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+
+/**
+ * Benchmarks for {@link MergedAnnotations#from} lookups on classes and methods,
+ * with and without meta-annotations.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MergedAnnotationsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public Method annotatedMethod;
+
+		public Method plainMethod;
+
+		@Setup
+		public void setup() throws Exception {
+			this.annotatedMethod = Annotated.class.getDeclaredMethod("handle");
+			this.plainMethod = Plain.class.getDeclaredMethod("handle");
+		}
+	}
+
+
+	@Benchmark
+	public void fromClassDirect(Blackhole bh) {
+		bh.consume(MergedAnnotations.from(Annotated.class).isPresent(Component.class));
+	}
+
+	@Benchmark
+	public void fromClassTypeHierarchy(Blackhole bh) {
+		bh.consume(MergedAnnotations.from(AnnotatedSubclass.class, SearchStrategy.TYPE_HIERARCHY)
+				.get(Component.class).getString("value"));
+	}
+
+	@Benchmark
+	public void fromClassWithoutAnnotations(Blackhole bh) {
+		bh.consume(MergedAnnotations.from(Plain.class, SearchStrategy.TYPE_HIERARCHY).isPresent(Component.class));
+	}
+
+	@Benchmark
+	public void fromMethod(BenchmarkData data, Blackhole bh) {
+		bh.consume(MergedAnnotations.from(data.annotatedMethod, SearchStrategy.TYPE_HIERARCHY)
+				.isPresent(Component.class));
+	}
+
+	@Benchmark
+	public void fromMethodWithoutAnnotations(BenchmarkData data, Blackhole bh) {
+		bh.consume(MergedAnnotations.from(data.plainMethod, SearchStrategy.TYPE_HIERARCHY)
+				.isPresent(Component.class));
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	@interface Component {
+
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@Component
+	@interface Service {
+
+		@AliasFor(annotation = Component.class)
+		String value() default "";
+	}
+
+
+	@Service("annotated")
+	static class Annotated {
+
+		@Service
+		public void handle() {
+		}
+	}
+
+
+	static class AnnotatedSubclass extends Annotated {
+	}
+
+
+	static class Plain {
+
+		public void handle() {
+		}
+	}
+
+}
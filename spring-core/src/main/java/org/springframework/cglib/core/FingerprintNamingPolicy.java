@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cglib.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Variant of {@link SpringNamingPolicy} for {@link Enhancer}-generated classes,
+ * deriving the hash in the class name from a fingerprint of the generated class
+ * instead of from the identity-based hash code of CGLIB's cache key. The same
+ * class therefore gets the same name in every JVM run.
+ *
+ * <p>The fingerprint covers everything that the generated bytecode depends on:
+ * the superclass and its constructors, the interfaces, the callback types and
+ * the signature of each method to intercept along with the callback index that
+ * the {@link CallbackFilter} assigns to it. It is only computed when CGLIB
+ * actually generates a class, i.e. not for classes found in CGLIB's cache.
+ *
+ * <p>This allows for generating classes at build time and loading them at
+ * runtime: see {@link #configure}. If the
+ * {@value #PREGENERATED_CLASSES_PROPERTY_NAME} property is set to "true",
+ * enhancers configured through this class attempt to load a class with the
+ * expected name from their ClassLoader before generating it. The class files
+ * can be written while initializing the application at build time, through
+ * CGLIB's {@code cglib.debugLocation} system property, and packaged along with
+ * the application classes. Since the name includes the fingerprint, a class
+ * found under that name matches the class that would otherwise be generated.
+ *
+ * @since 5.2.3
+ * @see Enhancer#setAttemptLoad
+ * @see DebuggingClassWriter#DEBUG_LOCATION_PROPERTY
+ */
+public class FingerprintNamingPolicy extends SpringNamingPolicy {
+
+	/**
+	 * System property that instructs Spring to use classes pre-generated at build
+	 * time for configuration classes and class-based AOP proxies, if available:
+	 * "spring.cglib.pregenerated-classes".
+	 */
+	public static final String PREGENERATED_CLASSES_PROPERTY_NAME = "spring.cglib.pregenerated-classes";
+
+	private static final boolean pregeneratedClasses =
+			SpringProperties.getFlag(PREGENERATED_CLASSES_PROPERTY_NAME);
+
+
+	private final Class<?> superclass;
+
+	private final Class<?>[] interfaces;
+
+	@Nullable
+	private final CallbackFilter filter;
+
+	private final Class<?>[] callbackTypes;
+
+
+	/**
+	 * Create a new {@code FingerprintNamingPolicy} for the given enhancer settings.
+	 * @param superclass the superclass of the generated class
+	 * @param interfaces the interfaces that the generated class implements
+	 * @param filter the callback filter to apply (may be {@code null})
+	 * @param callbackTypes the callback types
+	 */
+	public FingerprintNamingPolicy(Class<?> superclass, Class<?>[] interfaces,
+			@Nullable CallbackFilter filter, Class<?>[] callbackTypes) {
+
+		this.superclass = superclass;
+		this.interfaces = interfaces;
+		this.filter = filter;
+		this.callbackTypes = callbackTypes;
+	}
+
+
+	@Override
+	public String getClassName(@Nullable String prefix, String source, Object key, Predicate names) {
+		if (prefix == null) {
+			prefix = "org.springframework.cglib.empty.Object";
+		}
+		else if (prefix.startsWith("java")) {
+			prefix = "$" + prefix;
+		}
+		String base = prefix + "$$" + source.substring(source.lastIndexOf('.') + 1) +
+				getTag() + "$$" + getFingerprint();
+		String attempt = base;
+		int index = 2;
+		while (names.evaluate(attempt)) {
+			attempt = base + "_" + index++;
+		}
+		return attempt;
+	}
+
+	private String getFingerprint() {
+		List<String> members = new ArrayList<>();
+		for (Constructor<?> ctor : this.superclass.getDeclaredConstructors()) {
+			if (!Modifier.isPrivate(ctor.getModifiers())) {
+				members.add(ctor.toString());
+			}
+		}
+		List<Method> methods = new ArrayList<>();
+		Enhancer.getMethods(this.superclass, this.interfaces, methods);
+		for (Method method : methods) {
+			members.add(method + "=" + (this.filter != null ? this.filter.accept(method) : 0));
+		}
+		// Reflection does not guarantee any particular order
+		Collections.sort(members);
+
+		StringBuilder sb = new StringBuilder(this.superclass.getName());
+		for (Class<?> ifc : this.interfaces) {
+			sb.append(';').append(ifc.getName());
+		}
+		for (Class<?> callbackType : this.callbackTypes) {
+			sb.append(';').append(callbackType.getName());
+		}
+		for (String member : members) {
+			sb.append(';').append(member);
+		}
+		return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Configure the given enhancer for the given settings: with a
+	 * {@code FingerprintNamingPolicy} and an attempt to load pre-generated
+	 * classes if the {@value #PREGENERATED_CLASSES_PROPERTY_NAME} property is
+	 * set, or with the regular {@link SpringNamingPolicy} otherwise.
+	 * <p>The settings need to match the ones that the enhancer uses, and any
+	 * other enhancer settings affecting the generated bytecode need to be the
+	 * same for all classes with the given callback types.
+	 * @param enhancer the enhancer to configure
+	 * @param superclass the superclass of the generated class
+	 * @param interfaces the interfaces that the generated class implements
+	 * @param filter the callback filter to apply (may be {@code null})
+	 * @param callbackTypes the callback types
+	 */
+	public static void configure(Enhancer enhancer, Class<?> superclass, Class<?>[] interfaces,
+			@Nullable CallbackFilter filter, Class<?>[] callbackTypes) {
+
+		if (pregeneratedClasses) {
+			enhancer.setNamingPolicy(new FingerprintNamingPolicy(superclass, interfaces, filter, callbackTypes));
+			enhancer.setAttemptLoad(true);
+		}
+		else {
+			enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+		}
+	}
+
+}
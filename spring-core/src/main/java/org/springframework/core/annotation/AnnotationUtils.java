@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -173,6 +173,60 @@ public abstract class AnnotationUtils {
 		return true;
 	}
 
+	/**
+	 * Determine whether the given class is a candidate for carrying one of the
+	 * specified annotations on the class itself, on one of its superclasses or
+	 * interfaces, or on any of their methods, either directly or as a
+	 * meta-annotation.
+	 * <p>In contrast to {@link #isCandidateClass(Class, Collection)}, this
+	 * introspects the type hierarchy of application classes as well: once per
+	 * class, caching the annotation types found for any subsequent check.
+	 * This pays off for classes checked against several annotation types, e.g.
+	 * when pre-filtering classes for annotation-based pointcuts before
+	 * introspecting each of their methods.
+	 * @param clazz the class to introspect
+	 * @param annotationTypes the searchable annotation types
+	 * @return {@code false} if the class is known to have no such annotations in
+	 * its type hierarchy; {@code true} otherwise. Callers will usually perform
+	 * full introspection if {@code true} is being returned here.
+	 * @since 5.2.3
+	 * @see #isCandidateTypeHierarchy(Class, Class)
+	 * @see #isCandidateClass(Class, Collection)
+	 */
+	public static boolean isCandidateTypeHierarchy(
+			Class<?> clazz, Collection<Class<? extends Annotation>> annotationTypes) {
+
+		if (!isCandidateClass(clazz, annotationTypes)) {
+			return false;
+		}
+		Set<String> presentTypes = AnnotationsScanner.getTypeHierarchyAnnotationTypes(clazz);
+		if (presentTypes == null) {
+			return true;
+		}
+		for (Class<? extends Annotation> annotationType : annotationTypes) {
+			if (AnnotationFilter.PLAIN.matches(annotationType) || presentTypes.contains(annotationType.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determine whether the given class is a candidate for carrying the specified
+	 * annotation on the class itself, on one of its superclasses or interfaces,
+	 * or on any of their methods, either directly or as a meta-annotation.
+	 * @param clazz the class to introspect
+	 * @param annotationType the searchable annotation type
+	 * @return {@code false} if the class is known to have no such annotations in
+	 * its type hierarchy; {@code true} otherwise. Callers will usually perform
+	 * full introspection if {@code true} is being returned here.
+	 * @since 5.2.3
+	 * @see #isCandidateTypeHierarchy(Class, Collection)
+	 */
+	public static boolean isCandidateTypeHierarchy(Class<?> clazz, Class<? extends Annotation> annotationType) {
+		return isCandidateTypeHierarchy(clazz, Collections.singleton(annotationType));
+	}
+
 	/**
 	 * Get a single {@link Annotation} of {@code annotationType} from the supplied
 	 * annotation: either the given annotation itself or a direct meta-annotation
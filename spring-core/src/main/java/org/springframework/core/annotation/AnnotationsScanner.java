@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,10 @@ import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiPredicate;
 
 import org.springframework.core.BridgeMethodResolver;
@@ -49,6 +52,9 @@ abstract class AnnotationsScanner {
 
 	private static final Method[] NO_METHODS = {};
 
+	/** Marker for a type hierarchy that could not be introspected completely. */
+	private static final Set<String> INCOMPLETE_ANNOTATION_TYPES = Collections.unmodifiableSet(new HashSet<>());
+
 
 	private static final Map<AnnotatedElement, Annotation[]> declaredAnnotationCache =
 			new ConcurrentReferenceHashMap<>(256);
@@ -56,6 +62,9 @@ abstract class AnnotationsScanner {
 	private static final Map<Class<?>, Method[]> baseTypeMethodsCache =
 			new ConcurrentReferenceHashMap<>(256);
 
+	private static final Map<Class<?>, Set<String>> typeHierarchyAnnotationTypesCache =
+			new ConcurrentReferenceHashMap<>(256);
+
 
 	private AnnotationsScanner() {
 	}
@@ -561,6 +570,64 @@ abstract class AnnotationsScanner {
 		return (type.getName().startsWith("java.") || type == Ordered.class);
 	}
 
+	/**
+	 * Return the names of all annotation types declared on the given class, its
+	 * superclasses and interfaces, or any of their methods, including
+	 * meta-annotation types and the annotation types in repeatable containers.
+	 * <p>The result is computed once per class and cached.
+	 * @param type the class to introspect
+	 * @return the names of the annotation types found, or {@code null} if the
+	 * type hierarchy could not be introspected completely
+	 */
+	@Nullable
+	static Set<String> getTypeHierarchyAnnotationTypes(Class<?> type) {
+		Set<String> annotationTypes = typeHierarchyAnnotationTypesCache.get(type);
+		if (annotationTypes == null) {
+			Set<String> collected = new HashSet<>();
+			try {
+				collectTypeHierarchyAnnotationTypes(type, collected, new HashSet<>());
+				annotationTypes = (collected.isEmpty() ? Collections.emptySet() : collected);
+			}
+			catch (Throwable ex) {
+				// Leave it up to the regular introspection to report the failure
+				annotationTypes = INCOMPLETE_ANNOTATION_TYPES;
+			}
+			typeHierarchyAnnotationTypesCache.put(type, annotationTypes);
+		}
+		return (annotationTypes != INCOMPLETE_ANNOTATION_TYPES ? annotationTypes : null);
+	}
+
+	private static void collectTypeHierarchyAnnotationTypes(
+			@Nullable Class<?> type, Set<String> annotationTypes, Set<Class<?>> visited) {
+
+		if (type == null || hasPlainJavaAnnotationsOnly(type) || !visited.add(type)) {
+			return;
+		}
+		collectAnnotationTypes(getDeclaredAnnotations(type, false), annotationTypes);
+		ReflectionUtils.doWithLocalMethods(type, method ->
+				collectAnnotationTypes(getDeclaredAnnotations(method, false), annotationTypes));
+		collectTypeHierarchyAnnotationTypes(type.getSuperclass(), annotationTypes, visited);
+		for (Class<?> interfaceType : type.getInterfaces()) {
+			collectTypeHierarchyAnnotationTypes(interfaceType, annotationTypes, visited);
+		}
+	}
+
+	private static void collectAnnotationTypes(Annotation[] annotations, Set<String> annotationTypes) {
+		for (Annotation annotation : annotations) {
+			if (annotation != null) {
+				AnnotationTypeMappings mappings = AnnotationTypeMappings.forAnnotationType(annotation.annotationType());
+				for (int i = 0; i < mappings.size(); i++) {
+					annotationTypes.add(mappings.get(i).getAnnotationType().getName());
+				}
+				Annotation[] repeatedAnnotations =
+						RepeatableContainers.standardRepeatables().findRepeatedAnnotations(annotation);
+				if (repeatedAnnotations != null) {
+					collectAnnotationTypes(repeatedAnnotations, annotationTypes);
+				}
+			}
+		}
+	}
+
 	private static boolean isWithoutHierarchy(AnnotatedElement source, SearchStrategy searchStrategy) {
 		if (source == Object.class) {
 			return true;
@@ -583,6 +650,7 @@ abstract class AnnotationsScanner {
 	static void clearCache() {
 		declaredAnnotationCache.clear();
 		baseTypeMethodsCache.clear();
+		typeHierarchyAnnotationTypesCache.clear();
 	}
 
 }
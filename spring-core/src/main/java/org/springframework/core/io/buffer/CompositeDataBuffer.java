@@ -0,0 +1,726 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntPredicate;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link DataBuffer} that exposes a sequence of buffers as one logical
+ * buffer, without copying their contents. Used by
+ * {@link DataBufferUtils#join(org.reactivestreams.Publisher)} to aggregate
+ * the buffers of a {@link DefaultDataBufferFactory}, much like Netty's
+ * {@code CompositeByteBuf} is used for a {@link NettyDataBufferFactory}.
+ *
+ * <p>Reading, {@link #asInputStream()}, {@link #asByteBuffers()} and
+ * {@link #toString(int, int, Charset)} operate on the components directly.
+ * {@link #asByteBuffer(int, int)} returns a shared view if the range is within
+ * a single component, but a copy if the range spans multiple components.
+ * Writing beyond the {@linkplain #capacity() capacity} adds components
+ * allocated from the {@linkplain #factory() factory}.
+ *
+ * <p>A composite buffer owns its components: they are released once the
+ * composite buffer itself is released. Slices share the reference count of
+ * the composite buffer that they were created from.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see DataBufferUtils#compose(List)
+ */
+public class CompositeDataBuffer implements PooledDataBuffer {
+
+	private static final int MIN_COMPONENT_CAPACITY = DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY;
+
+	private static final Component[] NO_COMPONENTS = new Component[0];
+
+	private static final AtomicIntegerFieldUpdater<CompositeDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(CompositeDataBuffer.class, "refCount");
+
+
+	private final DataBufferFactory dataBufferFactory;
+
+	@Nullable
+	private final CompositeDataBuffer parent;
+
+	private Component[] components;
+
+	private int componentCount;
+
+	private int capacity;
+
+	private int readPosition;
+
+	private int writePosition;
+
+	private volatile int refCount = 1;
+
+
+	/**
+	 * Create a new {@code CompositeDataBuffer} with the readable bytes of the
+	 * given buffers as content. The composite buffer takes over ownership of
+	 * the given buffers, and releases them when it is released itself.
+	 * @param dataBufferFactory the factory to allocate additional components with
+	 * @param dataBuffers the buffers to compose
+	 */
+	public CompositeDataBuffer(DataBufferFactory dataBufferFactory, List<? extends DataBuffer> dataBuffers) {
+		Assert.notNull(dataBufferFactory, "DataBufferFactory must not be null");
+		Assert.notNull(dataBuffers, "DataBuffer List must not be null");
+		this.dataBufferFactory = dataBufferFactory;
+		this.parent = null;
+		this.components = new Component[Math.max(dataBuffers.size(), 4)];
+		for (DataBuffer dataBuffer : dataBuffers) {
+			int length = dataBuffer.readableByteCount();
+			if (length > 0) {
+				addComponent(dataBuffer, dataBuffer.readPosition(), length);
+			}
+			else {
+				DataBufferUtils.release(dataBuffer);
+			}
+		}
+		this.writePosition = this.capacity;
+	}
+
+	private CompositeDataBuffer(CompositeDataBuffer parent, Component[] components, int length) {
+		this.dataBufferFactory = parent.dataBufferFactory;
+		this.parent = parent;
+		this.components = components;
+		this.componentCount = components.length;
+		this.capacity = length;
+		this.writePosition = length;
+	}
+
+
+	@Override
+	public DataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	/**
+	 * Return the readable bytes of this buffer as one {@link ByteBuffer} per
+	 * component, sharing their contents with this buffer.
+	 */
+	public ByteBuffer[] asByteBuffers() {
+		return asByteBuffers(this.readPosition, readableByteCount());
+	}
+
+	private ByteBuffer[] asByteBuffers(int index, int length) {
+		if (length == 0) {
+			return new ByteBuffer[0];
+		}
+		int first = componentIndex(index);
+		int last = componentIndex(index + length - 1);
+		ByteBuffer[] byteBuffers = new ByteBuffer[last - first + 1];
+		for (int i = first; i <= last; i++) {
+			Component component = this.components[i];
+			int start = Math.max(index, component.offset);
+			int end = Math.min(index + length, component.end());
+			byteBuffers[i - first] = component.asByteBuffer(start, end - start);
+		}
+		return byteBuffers;
+	}
+
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		int i = fromIndex;
+		for (int c = componentIndex(fromIndex); i < this.writePosition; c++) {
+			Component component = this.components[c];
+			int end = Math.min(component.end(), this.writePosition);
+			for (; i < end; i++) {
+				if (predicate.test(component.getByte(i))) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		int i = Math.min(fromIndex, this.writePosition - 1);
+		if (i < 0) {
+			return -1;
+		}
+		for (int c = componentIndex(i); i >= 0; c--) {
+			Component component = this.components[c];
+			for (; i >= component.offset; i--) {
+				if (predicate.test(component.getByte(i))) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return this.capacity - this.writePosition;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= this.capacity, "'writePosition' %d must be <= %d",
+				writePosition, this.capacity);
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public int capacity() {
+		return this.capacity;
+	}
+
+	@Override
+	public CompositeDataBuffer capacity(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException(String.format("'newCapacity' %d must be higher than 0", newCapacity));
+		}
+		if (this.parent != null) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+		assertAllocated();
+		if (newCapacity > this.capacity) {
+			DataBuffer dataBuffer = this.dataBufferFactory.allocateBuffer(newCapacity - this.capacity);
+			dataBuffer.writePosition(newCapacity - this.capacity);
+			addComponent(dataBuffer, 0, newCapacity - this.capacity);
+		}
+		else if (newCapacity < this.capacity) {
+			int last = componentIndex(newCapacity - 1);
+			for (int i = last + 1; i < this.componentCount; i++) {
+				DataBufferUtils.release(this.components[i].dataBuffer);
+				this.components[i] = null;
+			}
+			Component component = this.components[last];
+			component.length = newCapacity - component.offset;
+			this.componentCount = last + 1;
+			this.capacity = newCapacity;
+			if (this.readPosition < newCapacity) {
+				if (this.writePosition > newCapacity) {
+					this.writePosition = newCapacity;
+				}
+			}
+			else {
+				this.readPosition = newCapacity;
+				this.writePosition = newCapacity;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer ensureCapacity(int length) {
+		int missing = length - writableByteCount();
+		if (missing > 0) {
+			capacity(this.capacity + Math.max(missing, MIN_COMPONENT_CAPACITY));
+		}
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		return this.components[componentIndex(index)].getByte(index);
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		byte b = getByte(this.readPosition);
+		this.readPosition++;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		read(destination, 0, destination.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+		for (ByteBuffer byteBuffer : asByteBuffers(this.readPosition, length)) {
+			int remaining = byteBuffer.remaining();
+			byteBuffer.get(destination, offset, remaining);
+			offset += remaining;
+		}
+		this.readPosition += length;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte b) {
+		ensureCapacity(1);
+		int pos = this.writePosition;
+		Component component = this.components[componentIndex(pos)];
+		component.asByteBuffer(pos, 1).put(b);
+		this.writePosition = pos + 1;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(source, 0, source.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source, int offset, int length) {
+		Assert.notNull(source, "Byte array must not be null");
+		ensureCapacity(length);
+		write(ByteBuffer.wrap(source, offset, length));
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(DataBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = 0;
+			for (DataBuffer buffer : buffers) {
+				capacity += buffer.readableByteCount();
+			}
+			ensureCapacity(capacity);
+			for (DataBuffer buffer : buffers) {
+				if (buffer instanceof CompositeDataBuffer) {
+					for (ByteBuffer byteBuffer : ((CompositeDataBuffer) buffer).asByteBuffers()) {
+						write(byteBuffer);
+					}
+				}
+				else {
+					write(buffer.asByteBuffer());
+				}
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(ByteBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = 0;
+			for (ByteBuffer buffer : buffers) {
+				capacity += buffer.remaining();
+			}
+			ensureCapacity(capacity);
+			for (ByteBuffer buffer : buffers) {
+				write(buffer);
+			}
+		}
+		return this;
+	}
+
+	private void write(ByteBuffer source) {
+		int pos = this.writePosition;
+		int length = source.remaining();
+		if (length == 0) {
+			return;
+		}
+		for (ByteBuffer target : asByteBuffers(pos, length)) {
+			ByteBuffer chunk = source.duplicate();
+			// Explicit access via Buffer base type for compatibility
+			// with covariant return type on JDK 9's ByteBuffer...
+			((Buffer) chunk).limit(chunk.position() + target.remaining());
+			target.put(chunk);
+			((Buffer) source).position(chunk.position());
+		}
+		this.writePosition = pos + length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This implementation encodes into a temporary buffer, since the
+	 * writable bytes of this buffer may span multiple components.
+	 */
+	@Override
+	public CompositeDataBuffer write(CharSequence charSequence, Charset charset) {
+		Assert.notNull(charSequence, "CharSequence must not be null");
+		Assert.notNull(charset, "Charset must not be null");
+		if (charSequence.length() != 0) {
+			ByteBuffer encoded = charset.encode(CharBuffer.wrap(charSequence));
+			ensureCapacity(encoded.remaining());
+			write(encoded);
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		Component[] components = NO_COMPONENTS;
+		if (length > 0) {
+			int first = componentIndex(index);
+			int last = componentIndex(index + length - 1);
+			components = new Component[last - first + 1];
+			for (int i = first; i <= last; i++) {
+				Component component = this.components[i];
+				int start = Math.max(index, component.offset);
+				int end = Math.min(index + length, component.end());
+				components[i - first] = new Component(component.dataBuffer,
+						component.start + (start - component.offset), end - start, start - index);
+			}
+		}
+		return new CompositeDataBuffer((this.parent != null ? this.parent : this), components, length);
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This implementation returns a copy if the given range spans more
+	 * than one component.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkIndex(index, length);
+		ByteBuffer[] byteBuffers = asByteBuffers(index, length);
+		if (byteBuffers.length == 1) {
+			return byteBuffers[0];
+		}
+		ByteBuffer result = ByteBuffer.allocate(length);
+		for (ByteBuffer byteBuffer : byteBuffers) {
+			result.put(byteBuffer);
+		}
+		((Buffer) result).flip();
+		return result;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream(false);
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		return new CompositeDataBufferInputStream(releaseOnClose);
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return new CompositeDataBufferOutputStream();
+	}
+
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		checkIndex(index, length);
+		Assert.notNull(charset, "Charset must not be null");
+		if (length == 0) {
+			return "";
+		}
+		int first = componentIndex(index);
+		Component component = this.components[first];
+		if (index + length <= component.end()) {
+			return component.dataBuffer.toString(component.start + (index - component.offset), length, charset);
+		}
+		return decode(asByteBuffers(index, length), length, charset);
+	}
+
+	/**
+	 * Decode the given buffers as one sequence of bytes, carrying over
+	 * characters that are split across buffers.
+	 */
+	private static String decode(ByteBuffer[] byteBuffers, int length, Charset charset) {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer output = CharBuffer.allocate((int) Math.ceil(length * (double) decoder.maxCharsPerByte()));
+		ByteBuffer carry = ByteBuffer.allocate(16);
+		for (int i = 0; i < byteBuffers.length; i++) {
+			ByteBuffer input = byteBuffers[i];
+			boolean endOfInput = (i == byteBuffers.length - 1);
+			while (carry.position() > 0 && input.hasRemaining()) {
+				carry.put(input.get());
+				((Buffer) carry).flip();
+				decoder.decode(carry, output, endOfInput && !input.hasRemaining());
+				carry.compact();
+			}
+			decoder.decode(input, output, endOfInput);
+			if (input.hasRemaining()) {
+				carry.put(input);
+			}
+		}
+		decoder.flush(output);
+		((Buffer) output).flip();
+		return output.toString();
+	}
+
+
+	@Override
+	public boolean isAllocated() {
+		return (this.parent != null ? this.parent.isAllocated() : this.refCount > 0);
+	}
+
+	@Override
+	public CompositeDataBuffer retain() {
+		if (this.parent != null) {
+			this.parent.retain();
+			return this;
+		}
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount + 1)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public boolean release() {
+		if (this.parent != null) {
+			return this.parent.release();
+		}
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount - 1)) {
+				if (refCount == 1) {
+					deallocate();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	private void deallocate() {
+		for (int i = 0; i < this.componentCount; i++) {
+			DataBufferUtils.release(this.components[i].dataBuffer);
+		}
+		this.components = NO_COMPONENTS;
+		this.componentCount = 0;
+		this.capacity = 0;
+		this.readPosition = 0;
+		this.writePosition = 0;
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, components: %d)",
+				this.readPosition, this.writePosition, this.capacity, this.componentCount);
+	}
+
+
+	private void addComponent(DataBuffer dataBuffer, int start, int length) {
+		if (this.componentCount == this.components.length) {
+			Component[] components = new Component[Math.max(this.componentCount * 2, 4)];
+			System.arraycopy(this.components, 0, components, 0, this.componentCount);
+			this.components = components;
+		}
+		this.components[this.componentCount++] = new Component(dataBuffer, start, length, this.capacity);
+		this.capacity += length;
+	}
+
+	/**
+	 * Return the index of the component that contains the given index.
+	 */
+	private int componentIndex(int index) {
+		int low = 0;
+		int high = this.componentCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.components[mid].offset <= index) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private void assertAllocated() {
+		if (!isAllocated()) {
+			throw new IllegalStateException("DataBuffer has already been released");
+		}
+	}
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index + length <= this.capacity, "index %d and length %d must be <= %d",
+				index, length, this.capacity);
+	}
+
+	private void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+
+	/**
+	 * A range of bytes of a component buffer, at a given offset in the
+	 * composite buffer.
+	 */
+	private static final class Component {
+
+		final DataBuffer dataBuffer;
+
+		final int start;
+
+		int length;
+
+		final int offset;
+
+		Component(DataBuffer dataBuffer, int start, int length, int offset) {
+			this.dataBuffer = dataBuffer;
+			this.start = start;
+			this.length = length;
+			this.offset = offset;
+		}
+
+		int end() {
+			return this.offset + this.length;
+		}
+
+		byte getByte(int index) {
+			return this.dataBuffer.getByte(this.start + (index - this.offset));
+		}
+
+		ByteBuffer asByteBuffer(int index, int length) {
+			return this.dataBuffer.asByteBuffer(this.start + (index - this.offset), length);
+		}
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		private final boolean releaseOnClose;
+
+		private boolean closed;
+
+		CompositeDataBufferInputStream(boolean releaseOnClose) {
+			this.releaseOnClose = releaseOnClose;
+		}
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			int available = available();
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public long skip(long n) {
+			int skipped = (int) Math.min(Math.max(n, 0), available());
+			readPosition(readPosition() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public void close() {
+			if (this.releaseOnClose && !this.closed) {
+				this.closed = true;
+				DataBufferUtils.release(CompositeDataBuffer.this);
+			}
+		}
+	}
+
+
+	private class CompositeDataBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+			CompositeDataBuffer.this.write((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) {
+			CompositeDataBuffer.this.write(bytes, off, len);
+		}
+	}
+
+}
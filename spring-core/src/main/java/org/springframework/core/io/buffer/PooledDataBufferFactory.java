@@ -0,0 +1,617 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DefaultDataBufferFactory} that allocates reference-counted
+ * {@link PooledDataBuffer PooledDataBuffers} from a pool of recycled memory,
+ * for non-Netty runtimes (i.e. Servlet, Undertow) where allocating a new
+ * {@link ByteBuffer} per read or write adds to GC pressure or, for direct
+ * buffers, to the cost of allocating and freeing native memory.
+ *
+ * <p>Requested capacities are rounded up to a power-of-two size class, from
+ * 64 bytes up to the {@linkplain #getMaxPooledCapacity() max pooled capacity}.
+ * Each size class has a shared arena that carves chunks from larger slabs and
+ * keeps a bounded number of released chunks, fronted by a small per-thread
+ * cache so that most allocations and releases do not contend. Buffers with a
+ * larger capacity are allocated and released like any other buffer, but are
+ * still reference-counted for consistency.
+ *
+ * <p>A buffer returns its memory to the pool when its reference count drops
+ * to 0, typically through {@link DataBufferUtils#release(DataBuffer)}; slices
+ * share the reference count of the buffer that they were created from, and
+ * become empty along with it once released. Memory that slices or
+ * {@link DataBuffer#asByteBuffer() ByteBuffer views} refer to is kept out of
+ * the pool until then, even if the buffer itself has been expanded in the
+ * meantime. A released buffer must not be used anymore, and neither must any
+ * ByteBuffer view obtained from it. Buffers that are garbage collected
+ * without having been released do not return their memory to the pool; such
+ * leaks can be reported through {@link #setLeakDetection(boolean)}.
+ *
+ * <p>{@link #wrap(ByteBuffer)} and {@link #wrap(byte[])} return non-pooled
+ * buffers, as for {@link DefaultDataBufferFactory}.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see org.springframework.http.server.reactive.ServletHttpHandlerAdapter#setDataBufferFactory
+ * @see org.springframework.http.server.reactive.UndertowHttpHandlerAdapter#setDataBufferFactory
+ */
+public class PooledDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers.
+	 * @see #PooledDataBufferFactory(boolean, int, int)
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	private static final int MIN_CHUNK_SHIFT = 6;
+
+	private static final int MIN_CHUNK_SIZE = 1 << MIN_CHUNK_SHIFT;
+
+	private static final int SLAB_SIZE = 128 * 1024;
+
+	private static final int MAX_ARENA_BYTES = 2 * 1024 * 1024;
+
+	private static final int MAX_THREAD_CACHE_BYTES = 32 * 1024;
+
+	private static final int MAX_THREAD_CACHE_CHUNKS = 32;
+
+	private static final int NOT_POOLED = -1;
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private static final Log logger = LogFactory.getLog(PooledDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private final ThreadLocal<ThreadCache> threadCache;
+
+	private final LongAdder allocatedBuffers = new LongAdder();
+
+	private volatile boolean leakDetection;
+
+	private final Set<LeakTracker> leakTrackers = ConcurrentHashMap.newKeySet();
+
+	private final ReferenceQueue<Object> leakQueue = new ReferenceQueue<>();
+
+	private final LongAdder leakedBuffers = new LongAdder();
+
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} with default settings,
+	 * pooling direct buffers.
+	 */
+	public PooledDataBufferFactory() {
+		this(true);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_POOLED_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled, what the capacity is to be used for
+	 * {@link #allocateBuffer()}, and up to which capacity buffers are pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param defaultInitialCapacity the capacity to use for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the maximum capacity of pooled buffers, rounded
+	 * up to the next power of two
+	 */
+	public PooledDataBufferFactory(boolean preferDirect, int defaultInitialCapacity, int maxPooledCapacity) {
+		super(preferDirect, defaultInitialCapacity);
+		Assert.isTrue(maxPooledCapacity > 0 && maxPooledCapacity <= (1 << 30),
+				"'maxPooledCapacity' should be larger than 0 and at most 2^30");
+		this.preferDirect = preferDirect;
+		int sizeClassCount = sizeClassFor(maxPooledCapacity) + 1;
+		this.maxPooledCapacity = getChunkSize(sizeClassCount - 1);
+		this.arenas = new Arena[sizeClassCount];
+		for (int i = 0; i < sizeClassCount; i++) {
+			this.arenas[i] = new Arena(getChunkSize(i), preferDirect);
+		}
+		Arena[] arenas = this.arenas;
+		this.threadCache = ThreadLocal.withInitial(() -> new ThreadCache(arenas));
+	}
+
+
+	/**
+	 * Return the maximum capacity of pooled buffers.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+	/**
+	 * Enable or disable the detection of buffers that are garbage collected
+	 * without having been released. When enabled, the stack trace of every
+	 * allocation is recorded and leaks are logged at error level along with
+	 * the stack trace of the leaked allocation.
+	 * <p>By default this is set to {@code false}, as recording the stack trace
+	 * of every allocation is expensive.
+	 * @see #getLeakedBufferCount()
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Return whether the detection of leaked buffers is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the number of buffers that have been allocated and not released yet.
+	 */
+	public long getAllocatedBufferCount() {
+		return this.allocatedBuffers.sum();
+	}
+
+	/**
+	 * Return the number of leaked buffers detected so far, i.e. buffers that
+	 * have been garbage collected without having been released, while
+	 * {@linkplain #setLeakDetection(boolean) leak detection} was enabled.
+	 * <p>Leaks are detected on allocation, or on invocation of this method.
+	 */
+	public long getLeakedBufferCount() {
+		detectLeaks();
+		return this.leakedBuffers.sum();
+	}
+
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' must not be negative");
+		if (this.leakDetection || !this.leakTrackers.isEmpty()) {
+			detectLeaks();
+		}
+		int sizeClass = getSizeClass(initialCapacity);
+		ByteBuffer chunk = allocateChunk(sizeClass, initialCapacity);
+		PooledBuffer dataBuffer = new PooledBuffer(this, chunk, sizeClass, initialCapacity);
+		if (this.leakDetection) {
+			LeakTracker leakTracker = new LeakTracker(dataBuffer, this.leakQueue);
+			this.leakTrackers.add(leakTracker);
+			dataBuffer.leakTracker = leakTracker;
+		}
+		this.allocatedBuffers.increment();
+		return dataBuffer;
+	}
+
+	private int getSizeClass(int capacity) {
+		return (capacity <= this.maxPooledCapacity ? sizeClassFor(capacity) : NOT_POOLED);
+	}
+
+	private static int sizeClassFor(int capacity) {
+		if (capacity <= MIN_CHUNK_SIZE) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_CHUNK_SHIFT;
+	}
+
+	private static int getChunkSize(int sizeClass) {
+		return MIN_CHUNK_SIZE << sizeClass;
+	}
+
+	private ByteBuffer allocateChunk(int sizeClass, int capacity) {
+		if (sizeClass == NOT_POOLED) {
+			return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+		}
+		return this.threadCache.get().allocate(sizeClass);
+	}
+
+	private void releaseChunk(ByteBuffer chunk, int sizeClass) {
+		if (sizeClass != NOT_POOLED) {
+			this.threadCache.get().release(chunk, sizeClass);
+		}
+	}
+
+	private void detectLeaks() {
+		Reference<?> reference;
+		while ((reference = this.leakQueue.poll()) != null) {
+			LeakTracker leakTracker = (LeakTracker) reference;
+			if (this.leakTrackers.remove(leakTracker)) {
+				this.leakedBuffers.increment();
+				this.allocatedBuffers.decrement();
+				logger.error("DataBuffer was garbage collected without having been released, " +
+						"its memory is lost to the pool. Allocated at:", leakTracker.allocationSite);
+			}
+		}
+	}
+
+	/**
+	 * Return a view of the given chunk with exactly the given capacity.
+	 */
+	private static ByteBuffer view(ByteBuffer chunk, int capacity) {
+		ByteBuffer view = chunk.duplicate();
+		// Explicit access via Buffer base type for compatibility
+		// with covariant return type on JDK 9's ByteBuffer...
+		((Buffer) view).clear().limit(capacity);
+		return view.slice();
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * The shared pool of chunks of a size class.
+	 */
+	private static final class Arena {
+
+		private final int chunkSize;
+
+		private final boolean direct;
+
+		private final int maxFreeChunks;
+
+		private final ArrayDeque<ByteBuffer> freeChunks = new ArrayDeque<>();
+
+		@Nullable
+		private ByteBuffer slab;
+
+		private int slabOffset;
+
+		Arena(int chunkSize, boolean direct) {
+			this.chunkSize = chunkSize;
+			this.direct = direct;
+			this.maxFreeChunks = Math.max(1, MAX_ARENA_BYTES / chunkSize);
+		}
+
+		synchronized ByteBuffer allocate() {
+			ByteBuffer chunk = this.freeChunks.pollLast();
+			if (chunk != null) {
+				return chunk;
+			}
+			ByteBuffer slab = this.slab;
+			if (slab == null || this.slabOffset == slab.capacity()) {
+				int slabSize = Math.max(this.chunkSize, SLAB_SIZE);
+				slab = (this.direct ? ByteBuffer.allocateDirect(slabSize) : ByteBuffer.allocate(slabSize));
+				this.slab = slab;
+				this.slabOffset = 0;
+			}
+			chunk = slab.duplicate();
+			((Buffer) chunk).position(this.slabOffset).limit(this.slabOffset + this.chunkSize);
+			this.slabOffset += this.chunkSize;
+			return chunk.slice();
+		}
+
+		synchronized void release(ByteBuffer chunk) {
+			// Beyond the limit, leave the chunk to the garbage collector
+			if (this.freeChunks.size() < this.maxFreeChunks) {
+				this.freeChunks.addLast(chunk);
+			}
+		}
+	}
+
+
+	/**
+	 * Per-thread cache of chunks in front of the arenas.
+	 * <p>Deliberately static and without reference to the factory, so that
+	 * thread-local entries do not keep a discarded factory reachable.
+	 */
+	private static final class ThreadCache {
+
+		private final Arena[] arenas;
+
+		private final ByteBuffer[][] chunks;
+
+		private final int[] counts;
+
+		ThreadCache(Arena[] arenas) {
+			this.arenas = arenas;
+			this.chunks = new ByteBuffer[arenas.length][];
+			this.counts = new int[arenas.length];
+		}
+
+		ByteBuffer allocate(int sizeClass) {
+			int count = this.counts[sizeClass];
+			if (count > 0) {
+				ByteBuffer[] stack = this.chunks[sizeClass];
+				ByteBuffer chunk = stack[--count];
+				stack[count] = null;
+				this.counts[sizeClass] = count;
+				return chunk;
+			}
+			return this.arenas[sizeClass].allocate();
+		}
+
+		void release(ByteBuffer chunk, int sizeClass) {
+			ByteBuffer[] stack = this.chunks[sizeClass];
+			if (stack == null) {
+				int chunkSize = getChunkSize(sizeClass);
+				stack = new ByteBuffer[Math.min(MAX_THREAD_CACHE_CHUNKS, MAX_THREAD_CACHE_BYTES / chunkSize)];
+				this.chunks[sizeClass] = stack;
+			}
+			int count = this.counts[sizeClass];
+			if (count < stack.length) {
+				stack[count] = chunk;
+				this.counts[sizeClass] = count + 1;
+			}
+			else {
+				this.arenas[sizeClass].release(chunk);
+			}
+		}
+	}
+
+
+	/**
+	 * Tracks an allocated buffer for leak detection.
+	 */
+	private static final class LeakTracker extends PhantomReference<Object> {
+
+		private final Throwable allocationSite = new Throwable("DataBuffer allocation");
+
+		LeakTracker(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+		}
+	}
+
+
+	/**
+	 * Reference-counted buffer backed by a chunk of the pool.
+	 */
+	private static final class PooledBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private static final AtomicIntegerFieldUpdater<PooledBuffer> REF_COUNT_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(PooledBuffer.class, "refCount");
+
+		private final PooledDataBufferFactory factory;
+
+		@Nullable
+		private ByteBuffer chunk;
+
+		private int sizeClass;
+
+		/** Whether memory of the current chunk has been exposed through a slice or view. */
+		private boolean shared;
+
+		/** Chunks replaced on a change of capacity while shared, released along with this buffer. */
+		@Nullable
+		private List<ByteBuffer> retiredChunks;
+
+		/** Slices of this buffer, to be emptied when it is released. */
+		@Nullable
+		private List<PooledSlice> slices;
+
+		private volatile int refCount = 1;
+
+		@Nullable
+		LeakTracker leakTracker;
+
+		PooledBuffer(PooledDataBufferFactory factory, ByteBuffer chunk, int sizeClass, int capacity) {
+			super(factory, view(chunk, capacity));
+			this.factory = factory;
+			this.chunk = chunk;
+			this.sizeClass = sizeClass;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.refCount > 0;
+		}
+
+		@Override
+		public PooledBuffer retain() {
+			while (true) {
+				int refCount = this.refCount;
+				if (refCount <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount + 1)) {
+					return this;
+				}
+			}
+		}
+
+		@Override
+		public boolean release() {
+			while (true) {
+				int refCount = this.refCount;
+				if (refCount <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount - 1)) {
+					if (refCount == 1) {
+						deallocate();
+						return true;
+					}
+					return false;
+				}
+			}
+		}
+
+		private void deallocate() {
+			ByteBuffer chunk = this.chunk;
+			this.chunk = null;
+			readPosition(0);
+			writePosition(0);
+			setNativeBuffer(EMPTY_BUFFER);
+			List<PooledSlice> slices = this.slices;
+			if (slices != null) {
+				this.slices = null;
+				for (PooledSlice slice : slices) {
+					slice.invalidate();
+				}
+			}
+			if (this.leakTracker != null) {
+				this.factory.leakTrackers.remove(this.leakTracker);
+				this.leakTracker.clear();
+				this.leakTracker = null;
+			}
+			this.factory.allocatedBuffers.decrement();
+			if (chunk != null) {
+				this.factory.releaseChunk(chunk, this.sizeClass);
+			}
+			List<ByteBuffer> retiredChunks = this.retiredChunks;
+			if (retiredChunks != null) {
+				this.retiredChunks = null;
+				for (ByteBuffer retiredChunk : retiredChunks) {
+					this.factory.releaseChunk(retiredChunk, sizeClassFor(retiredChunk.capacity()));
+				}
+			}
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			if (!isAllocated()) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+			ByteBuffer oldChunk = this.chunk;
+			int oldSizeClass = this.sizeClass;
+			super.capacity(newCapacity);
+			if (oldChunk != null && this.chunk != oldChunk && oldSizeClass != NOT_POOLED) {
+				if (this.shared) {
+					// Slices or views may still refer to the old chunk: keep it until released
+					if (this.retiredChunks == null) {
+						this.retiredChunks = new ArrayList<>(2);
+					}
+					this.retiredChunks.add(oldChunk);
+					this.shared = false;
+				}
+				else {
+					this.factory.releaseChunk(oldChunk, oldSizeClass);
+				}
+			}
+			return this;
+		}
+
+		@Override
+		ByteBuffer allocate(int capacity, boolean direct) {
+			int sizeClass = this.factory.getSizeClass(capacity);
+			ByteBuffer chunk = this.factory.allocateChunk(sizeClass, capacity);
+			this.chunk = chunk;
+			this.sizeClass = sizeClass;
+			return view(chunk, capacity);
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			PooledSlice slice = new PooledSlice(this, asByteBuffer(index, length));
+			addSlice(slice);
+			return slice;
+		}
+
+		void addSlice(PooledSlice slice) {
+			if (this.slices == null) {
+				this.slices = new ArrayList<>(4);
+			}
+			this.slices.add(slice);
+		}
+
+		@Override
+		public ByteBuffer asByteBuffer(int index, int length) {
+			this.shared = true;
+			return super.asByteBuffer(index, length);
+		}
+
+		@Override
+		public ByteBuffer getNativeBuffer() {
+			this.shared = true;
+			return super.getNativeBuffer();
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledBuffer}, sharing its reference count.
+	 */
+	private static final class PooledSlice extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledBuffer parent;
+
+		PooledSlice(PooledBuffer parent, ByteBuffer byteBuffer) {
+			super(parent.factory, byteBuffer);
+			this.parent = parent;
+			writePosition(byteBuffer.remaining());
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledSlice retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			PooledSlice slice = new PooledSlice(this.parent, asByteBuffer(index, length));
+			this.parent.addSlice(slice);
+			return slice;
+		}
+
+		/**
+		 * Empty this slice once the parent buffer has been released,
+		 * so that it does not refer to memory recycled by the pool.
+		 */
+		void invalidate() {
+			readPosition(0);
+			writePosition(0);
+			setNativeBuffer(EMPTY_BUFFER);
+		}
+	}
+
+}
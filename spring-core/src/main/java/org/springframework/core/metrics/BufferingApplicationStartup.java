@@ -0,0 +1,400 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that buffers {@link StartupStep steps}
+ * in memory and records their start time and duration with nanosecond precision.
+ *
+ * <p>Steps are nested per thread: a step started while another step is still
+ * running on the same thread is recorded as its child. The number of recorded
+ * steps is bounded by the configured capacity; steps ending once the buffer is
+ * full are discarded. A {@link #addFilter filter} can be used to only record
+ * steps of interest, for example all steps but {@code "spring.beans.instantiate"}.
+ *
+ * <p>Recorded steps can be {@link #getRecordedSteps() inspected} directly or
+ * {@link #writeJson(Writer) written as JSON} for offline analysis.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see org.springframework.core.metrics.jfr.FlightRecorderApplicationStartup
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+	private final int capacity;
+
+	private final long startTime = System.nanoTime();
+
+	private final AtomicLong idSequence = new AtomicLong();
+
+	private final ThreadLocal<BufferedStartupStep> currentStep =
+			new NamedThreadLocal<>("Current startup step");
+
+	private final ConcurrentLinkedQueue<RecordedStep> recordedSteps = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger recordedCount = new AtomicInteger();
+
+	private volatile Predicate<StartupStep> filter = step -> true;
+
+
+	/**
+	 * Create a new buffering {@link ApplicationStartup} with a limited capacity.
+	 * @param capacity the maximum number of steps to record
+	 */
+	public BufferingApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * Add a predicate filter to the list of existing ones.
+	 * <p>A {@link StartupStep step} that doesn't match all filters will not be recorded.
+	 * @param filter the predicate filter to add
+	 */
+	public void addFilter(Predicate<StartupStep> filter) {
+		Assert.notNull(filter, "Filter must not be null");
+		this.filter = this.filter.and(filter);
+	}
+
+	@Override
+	public StartupStep start(String name) {
+		BufferedStartupStep parent = this.currentStep.get();
+		BufferedStartupStep step = new BufferedStartupStep(
+				this.idSequence.incrementAndGet(), name, parent, System.nanoTime());
+		this.currentStep.set(step);
+		return step;
+	}
+
+	private void record(BufferedStartupStep step, long endTime) {
+		if (this.currentStep.get() == step) {
+			if (step.parent != null) {
+				this.currentStep.set(step.parent);
+			}
+			else {
+				this.currentStep.remove();
+			}
+		}
+		if (this.filter.test(step) && reserveSlot()) {
+			this.recordedSteps.add(new RecordedStep(step, step.startTime - this.startTime, endTime - step.startTime));
+		}
+	}
+
+	private boolean reserveSlot() {
+		int count;
+		do {
+			count = this.recordedCount.get();
+			if (count >= this.capacity) {
+				return false;
+			}
+		}
+		while (!this.recordedCount.compareAndSet(count, count + 1));
+		return true;
+	}
+
+	/**
+	 * Return the maximum number of steps that can be recorded.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Return the steps recorded so far, in the order in which they ended.
+	 * <p>Steps that are still running are not included.
+	 */
+	public List<RecordedStep> getRecordedSteps() {
+		return Collections.unmodifiableList(new ArrayList<>(this.recordedSteps));
+	}
+
+	/**
+	 * Return the steps recorded so far and remove them from the buffer,
+	 * making room for new steps.
+	 */
+	public List<RecordedStep> drainRecordedSteps() {
+		List<RecordedStep> drained = new ArrayList<>();
+		RecordedStep step;
+		while ((step = this.recordedSteps.poll()) != null) {
+			drained.add(step);
+			this.recordedCount.decrementAndGet();
+		}
+		return Collections.unmodifiableList(drained);
+	}
+
+	/**
+	 * Write the {@link #getRecordedSteps() recorded steps} as a JSON document
+	 * to the given {@link Writer}.
+	 * <p>The document contains a {@code "steps"} array; each step exposes its
+	 * {@code id}, {@code parentId}, {@code name}, {@code startTime} (nanoseconds
+	 * since this {@code ApplicationStartup} was created), {@code duration} in
+	 * nanoseconds and its {@code tags}.
+	 * @param writer the writer to write to (not closed by this method)
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\"steps\":[");
+		Iterator<RecordedStep> iterator = this.recordedSteps.iterator();
+		while (iterator.hasNext()) {
+			RecordedStep step = iterator.next();
+			writer.write("{\"id\":");
+			writer.write(Long.toString(step.getId()));
+			writer.write(",\"parentId\":");
+			writer.write(step.getParentId() != null ? step.getParentId().toString() : "null");
+			writer.write(",\"name\":");
+			writeJsonString(writer, step.getName());
+			writer.write(",\"startTime\":");
+			writer.write(Long.toString(step.getStartTime()));
+			writer.write(",\"duration\":");
+			writer.write(Long.toString(step.getDuration()));
+			writer.write(",\"tags\":[");
+			Iterator<StartupStep.Tag> tags = step.getTags().iterator();
+			while (tags.hasNext()) {
+				StartupStep.Tag tag = tags.next();
+				writer.write("{\"key\":");
+				writeJsonString(writer, tag.getKey());
+				writer.write(",\"value\":");
+				writeJsonString(writer, tag.getValue());
+				writer.write(tags.hasNext() ? "}," : "}");
+			}
+			writer.write(iterator.hasNext() ? "]}," : "]}");
+		}
+		writer.write("]}");
+		writer.flush();
+	}
+
+	private static void writeJsonString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					writer.write("\\\"");
+					break;
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						writer.write(String.format("\\u%04x", (int) c));
+					}
+					else {
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+
+
+	/**
+	 * Immutable view of a {@link StartupStep} that ended and was recorded
+	 * by a {@link BufferingApplicationStartup}.
+	 */
+	public static final class RecordedStep {
+
+		private final long id;
+
+		@Nullable
+		private final Long parentId;
+
+		private final String name;
+
+		private final StartupStep.Tags tags;
+
+		private final long startTime;
+
+		private final long duration;
+
+		RecordedStep(BufferedStartupStep step, long startTime, long duration) {
+			this.id = step.getId();
+			this.parentId = step.getParentId();
+			this.name = step.getName();
+			this.tags = step.getTags();
+			this.startTime = startTime;
+			this.duration = duration;
+		}
+
+		/**
+		 * Return the unique id of the step.
+		 */
+		public long getId() {
+			return this.id;
+		}
+
+		/**
+		 * Return the id of the parent step, if any.
+		 */
+		@Nullable
+		public Long getParentId() {
+			return this.parentId;
+		}
+
+		/**
+		 * Return the name of the step.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the tags attached to the step.
+		 */
+		public StartupStep.Tags getTags() {
+			return this.tags;
+		}
+
+		/**
+		 * Return the start time of the step, in nanoseconds relative to the
+		 * creation of the {@link BufferingApplicationStartup}.
+		 */
+		public long getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the duration of the step in nanoseconds.
+		 */
+		public long getDuration() {
+			return this.duration;
+		}
+
+		@Override
+		public String toString() {
+			return "RecordedStep[id=" + this.id + ", parentId=" + this.parentId + ", name='" + this.name +
+					"', duration=" + this.duration + "ns]";
+		}
+	}
+
+
+	private class BufferedStartupStep implements StartupStep {
+
+		private final long id;
+
+		private final String name;
+
+		@Nullable
+		private final BufferedStartupStep parent;
+
+		private final long startTime;
+
+		private final List<Tag> tags = new ArrayList<>();
+
+		private boolean ended;
+
+		BufferedStartupStep(long id, String name, @Nullable BufferedStartupStep parent, long startTime) {
+			this.id = id;
+			this.name = name;
+			this.parent = parent;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public long getId() {
+			return this.id;
+		}
+
+		@Override
+		@Nullable
+		public Long getParentId() {
+			return (this.parent != null ? this.parent.id : null);
+		}
+
+		@Override
+		public StartupStep tag(String key, String value) {
+			Assert.state(!this.ended, "StartupStep has already ended.");
+			this.tags.add(new DefaultTag(key, value));
+			return this;
+		}
+
+		@Override
+		public StartupStep tag(String key, Supplier<String> value) {
+			return tag(key, value.get());
+		}
+
+		@Override
+		public Tags getTags() {
+			List<Tag> copy = Collections.unmodifiableList(new ArrayList<>(this.tags));
+			return copy::iterator;
+		}
+
+		@Override
+		public void end() {
+			Assert.state(!this.ended, "StartupStep has already ended.");
+			this.ended = true;
+			record(this, System.nanoTime());
+		}
+	}
+
+
+	private static class DefaultTag implements StartupStep.Tag {
+
+		private final String key;
+
+		private final String value;
+
+		DefaultTag(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public String getValue() {
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + this.value;
+		}
+	}
+
+}
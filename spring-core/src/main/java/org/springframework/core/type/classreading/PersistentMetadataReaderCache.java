@@ -0,0 +1,362 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * File-based cache of class metadata that survives JVM restarts, allowing a
+ * {@link CachingMetadataReaderFactory} to skip class file parsing for classes
+ * that have not changed since the cache was written.
+ *
+ * <p>Entries are keyed by the URL of the class file resource and validated
+ * against its last-modified timestamp, i.e. the timestamp of the class file
+ * itself or of the jar file containing it. The cache file is read into memory
+ * when first accessed; newly parsed classes are kept in memory until
+ * {@link #save()} is called, which only writes the classes requested from
+ * this cache instance, dropping entries for classes that are gone.
+ *
+ * <p>The annotation types referenced by cached metadata are resolved against
+ * the current ClassLoader on every read, just like for parsed class files.
+ *
+ * <p>A shared cache for all {@link CachingMetadataReaderFactory} instances
+ * can be activated through the {@value #CACHE_FILE_PROPERTY_NAME} system
+ * property (or Spring property), specifying the location of the cache file.
+ * Such a shared cache is saved on JVM shutdown.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see CachingMetadataReaderFactory#setPersistentCache
+ */
+public class PersistentMetadataReaderCache {
+
+	/**
+	 * System property that specifies the location of a cache file to use for
+	 * all {@link CachingMetadataReaderFactory} instances: {@value}.
+	 * @see #getSharedInstance(File)
+	 */
+	public static final String CACHE_FILE_PROPERTY_NAME = "spring.metadata-reader.cache-file";
+
+	private static final int MAGIC = 0x53504d52;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataReaderCache.class);
+
+	private static final Map<File, PersistentMetadataReaderCache> sharedInstances = new ConcurrentHashMap<>(4);
+
+
+	private final File file;
+
+	@Nullable
+	private volatile Map<String, Entry> storedEntries;
+
+	/** Entries requested from this cache: either validated stored entries or newly recorded ones. */
+	private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>(256);
+
+	private final AtomicBoolean modified = new AtomicBoolean();
+
+
+	/**
+	 * Create a new {@code PersistentMetadataReaderCache} for the given file,
+	 * which does not need to exist yet.
+	 * @param file the cache file
+	 */
+	public PersistentMetadataReaderCache(File file) {
+		Assert.notNull(file, "File must not be null");
+		this.file = file;
+	}
+
+
+	/**
+	 * Return the cache file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Return the metadata for the given class file resource, either replayed
+	 * from this cache or parsed (and recorded for the next {@link #save()}).
+	 * @param resource the class file resource
+	 * @param classLoader the ClassLoader to resolve annotation types against
+	 */
+	MetadataReader getMetadataReader(Resource resource, @Nullable ClassLoader classLoader) throws IOException {
+		String key = null;
+		String stamp = null;
+		try {
+			long lastModified = resource.lastModified();
+			if (lastModified > 0) {
+				key = resource.getURL().toString();
+				stamp = Long.toString(lastModified);
+			}
+		}
+		catch (IOException ex) {
+			// Not resolvable in the file system -> not cacheable.
+		}
+		if (key == null || stamp == null) {
+			return new SimpleMetadataReader(resource, classLoader);
+		}
+
+		Entry entry = this.usedEntries.get(key);
+		if (entry == null) {
+			entry = getStoredEntries().get(key);
+		}
+		if (entry != null && entry.stamp.equals(stamp)) {
+			SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+			try {
+				RecordingClassVisitor.replay(entry.getData(), visitor);
+				this.usedEntries.putIfAbsent(key, entry);
+				return new SimpleMetadataReader(resource, visitor.getMetadata());
+			}
+			catch (IOException | RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to read cached metadata for " + resource + " - parsing class file", ex);
+				}
+			}
+		}
+
+		SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+		RecordingClassVisitor recorder = new RecordingClassVisitor(visitor);
+		SimpleMetadataReader.accept(resource, recorder);
+		byte[] recording = recorder.getRecording();
+		if (recording != null) {
+			this.usedEntries.put(key, new Entry(stamp, ByteBuffer.wrap(recording)));
+			this.modified.set(true);
+		}
+		return new SimpleMetadataReader(resource, visitor.getMetadata());
+	}
+
+	/**
+	 * Write the metadata of all classes requested from this cache to the cache
+	 * file, if any class was parsed or any stored entry was not requested.
+	 * <p>Stored entries that have not been requested from this cache instance
+	 * are dropped, so that the file does not keep growing with classes that
+	 * have been removed or are not scanned anymore. Nothing is written if no
+	 * class has been requested at all.
+	 * <p>The file is replaced atomically where supported by the file system.
+	 * @throws IOException if the cache file could not be written
+	 */
+	public synchronized void save() throws IOException {
+		Map<String, Entry> entries = new HashMap<>(this.usedEntries);
+		Map<String, Entry> storedEntries = this.storedEntries;
+		boolean modified = this.modified.getAndSet(false);
+		if (entries.isEmpty() ||
+				(!modified && (storedEntries == null || storedEntries.size() == entries.size()))) {
+			return;
+		}
+
+		Path target = this.file.getAbsoluteFile().toPath();
+		Path directory = target.getParent();
+		Assert.state(directory != null, "No parent directory for cache file");
+		Files.createDirectories(directory);
+		Path tempFile = Files.createTempFile(directory, this.file.getName(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(entries.size());
+				for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+					ByteBuffer data = entry.getValue().data.duplicate();
+					byte[] bytes = new byte[data.remaining()];
+					data.get(bytes);
+					out.writeUTF(entry.getKey());
+					out.writeUTF(entry.getValue().stamp);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+			try {
+				Files.move(tempFile, target,
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+		this.storedEntries = Collections.unmodifiableMap(entries);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Saved metadata of " + entries.size() + " classes to " + this.file);
+		}
+	}
+
+	private Map<String, Entry> getStoredEntries() {
+		Map<String, Entry> entries = this.storedEntries;
+		if (entries == null) {
+			synchronized (this) {
+				entries = this.storedEntries;
+				if (entries == null) {
+					entries = readStoredEntries();
+					this.storedEntries = entries;
+				}
+			}
+		}
+		return entries;
+	}
+
+	private Map<String, Entry> readStoredEntries() {
+		if (!this.file.isFile()) {
+			return Collections.emptyMap();
+		}
+		try {
+			// Read into the heap rather than memory-mapping the file,
+			// since save() replaces the file while entries are still in use
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(this.file.toPath()));
+			DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring metadata cache file in unsupported format: " + this.file);
+				}
+				return Collections.emptyMap();
+			}
+			int count = in.readInt();
+			Map<String, Entry> entries = new HashMap<>((int) (count / 0.75f) + 1);
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				String stamp = in.readUTF();
+				int length = in.readInt();
+				ByteBuffer data = buffer.slice();
+				((Buffer) data).limit(length);
+				((Buffer) buffer).position(buffer.position() + length);
+				entries.put(key, new Entry(stamp, data));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded metadata of " + count + " classes from " + this.file);
+			}
+			return entries;
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring unreadable metadata cache file: " + this.file, ex);
+			}
+			return Collections.emptyMap();
+		}
+	}
+
+
+	/**
+	 * Return the shared cache for the given file, to be saved on JVM shutdown.
+	 * @param file the cache file
+	 */
+	public static PersistentMetadataReaderCache getSharedInstance(File file) {
+		return sharedInstances.computeIfAbsent(file.getAbsoluteFile(), key -> {
+			PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(key);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					cache.save();
+				}
+				catch (IOException ex) {
+					logger.warn("Failed to save metadata cache file: " + key, ex);
+				}
+			}, "MetadataReaderCacheSaver"));
+			return cache;
+		});
+	}
+
+	/**
+	 * Return the shared cache for the file specified through the
+	 * {@value #CACHE_FILE_PROPERTY_NAME} property, if any.
+	 */
+	@Nullable
+	static PersistentMetadataReaderCache getDefaultInstance() {
+		String location = SpringProperties.getProperty(CACHE_FILE_PROPERTY_NAME);
+		return (StringUtils.hasText(location) ? getSharedInstance(new File(location)) : null);
+	}
+
+
+	/**
+	 * A cached recording of class metadata, with the timestamp it is valid for.
+	 */
+	private static final class Entry {
+
+		final String stamp;
+
+		final ByteBuffer data;
+
+		Entry(String stamp, ByteBuffer data) {
+			this.stamp = stamp;
+			this.data = data;
+		}
+
+		DataInputStream getData() {
+			return new DataInputStream(new ByteBufferInputStream(this.data.duplicate()));
+		}
+	}
+
+
+	/**
+	 * {@link InputStream} reading from a {@link ByteBuffer}, advancing its position.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+
+}
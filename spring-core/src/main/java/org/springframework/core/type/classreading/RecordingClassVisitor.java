@@ -0,0 +1,628 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+
+/**
+ * ASM {@link ClassVisitor} that records the class metadata events relevant for
+ * {@link SimpleAnnotationMetadataReadingVisitor} in a compact binary form while
+ * delegating to it, allowing for {@link #replay replaying} those events later
+ * on without parsing the class file again.
+ *
+ * <p>Recorded are the class declaration, enclosing and inner classes, and the
+ * runtime-visible annotations of the class and of its annotated methods.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see PersistentMetadataReaderCache
+ * @see SimpleMetadataReaderFactory#getMetadataReader(byte[])
+ */
+final class RecordingClassVisitor extends ClassVisitor {
+
+	/**
+	 * Version of the recording format, as prefixed to build-time recordings.
+	 * <p>The {@code spring-context-indexer} annotation processor writes the same
+	 * format in {@code org.springframework.context.index.processor.ClassMetadataRecorder}:
+	 * any change to the version, the event tags or the encoding of values needs to
+	 * be reflected there.
+	 * @see SimpleMetadataReaderFactory#getMetadataReader(byte[])
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	// Event tags: keep in sync with ClassMetadataRecorder in spring-context-indexer
+
+	private static final byte CLASS_END = 0;
+
+	private static final byte CLASS = 1;
+
+	private static final byte OUTER_CLASS = 2;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte METHOD_END = 6;
+
+	private static final byte VALUE = 10;
+
+	private static final byte ENUM = 11;
+
+	private static final byte NESTED_ANNOTATION = 12;
+
+	private static final byte ARRAY = 13;
+
+	private static final byte ANNOTATION_END = 14;
+
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+	private final DataOutputStream out = new DataOutputStream(this.buffer);
+
+	private boolean failed;
+
+
+	RecordingClassVisitor(ClassVisitor classVisitor) {
+		super(SpringAsmInfo.ASM_VERSION, classVisitor);
+	}
+
+
+	@Override
+	public void visit(int version, int access, String name, String signature,
+			@Nullable String supername, String[] interfaces) {
+
+		record(this.out, out -> {
+			out.writeByte(CLASS);
+			out.writeInt(access);
+			out.writeUTF(name);
+			writeNullableUTF(out, supername);
+			out.writeShort(interfaces.length);
+			for (String interfaceName : interfaces) {
+				out.writeUTF(interfaceName);
+			}
+		});
+		super.visit(version, access, name, signature, supername, interfaces);
+	}
+
+	@Override
+	public void visitOuterClass(String owner, @Nullable String name, @Nullable String descriptor) {
+		record(this.out, out -> {
+			out.writeByte(OUTER_CLASS);
+			out.writeUTF(owner);
+			writeNullableUTF(out, name);
+			writeNullableUTF(out, descriptor);
+		});
+		super.visitOuterClass(owner, name, descriptor);
+	}
+
+	@Override
+	public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int access) {
+		record(this.out, out -> {
+			out.writeByte(INNER_CLASS);
+			out.writeUTF(name);
+			writeNullableUTF(out, outerName);
+			writeNullableUTF(out, innerName);
+			out.writeInt(access);
+		});
+		super.visitInnerClass(name, outerName, innerName, access);
+	}
+
+	@Override
+	@Nullable
+	public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+		AnnotationVisitor annotationVisitor = super.visitAnnotation(descriptor, visible);
+		if (!visible) {
+			return annotationVisitor;
+		}
+		record(this.out, out -> {
+			out.writeByte(ANNOTATION);
+			out.writeUTF(descriptor);
+		});
+		return new RecordingAnnotationVisitor(this.out, annotationVisitor);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(
+			int access, String name, String descriptor, String signature, String[] exceptions) {
+
+		MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+		return new RecordingMethodVisitor(access, name, descriptor, methodVisitor);
+	}
+
+	@Override
+	public void visitEnd() {
+		record(this.out, out -> out.writeByte(CLASS_END));
+		super.visitEnd();
+	}
+
+	/**
+	 * Return the recorded events, or {@code null} if they could not be recorded.
+	 */
+	@Nullable
+	public byte[] getRecording() {
+		return (this.failed ? null : this.buffer.toByteArray());
+	}
+
+	private void record(DataOutputStream out, Recording recording) {
+		if (!this.failed) {
+			try {
+				recording.write(out);
+			}
+			catch (IOException ex) {
+				// e.g. an annotation String attribute too long for modified UTF-8
+				this.failed = true;
+			}
+		}
+	}
+
+
+	/**
+	 * Replay recorded events to the given {@link ClassVisitor}.
+	 * @param in the recorded events, as returned from {@link #getRecording()}
+	 * @param classVisitor the visitor to replay the events to
+	 * @throws IOException in case of an invalid recording
+	 */
+	public static void replay(DataInput in, ClassVisitor classVisitor) throws IOException {
+		while (true) {
+			byte event = in.readByte();
+			switch (event) {
+				case CLASS:
+					int access = in.readInt();
+					String name = in.readUTF();
+					String supername = readNullableUTF(in);
+					String[] interfaces = new String[in.readUnsignedShort()];
+					for (int i = 0; i < interfaces.length; i++) {
+						interfaces[i] = in.readUTF();
+					}
+					classVisitor.visit(0, access, name, null, supername, interfaces);
+					break;
+				case OUTER_CLASS:
+					classVisitor.visitOuterClass(in.readUTF(), readNullableUTF(in), readNullableUTF(in));
+					break;
+				case INNER_CLASS:
+					classVisitor.visitInnerClass(in.readUTF(), readNullableUTF(in), readNullableUTF(in), in.readInt());
+					break;
+				case ANNOTATION:
+					replayAnnotation(in, classVisitor.visitAnnotation(in.readUTF(), true));
+					break;
+				case METHOD:
+					replayMethod(in, classVisitor.visitMethod(in.readInt(), in.readUTF(), in.readUTF(), null, null));
+					break;
+				case CLASS_END:
+					classVisitor.visitEnd();
+					return;
+				default:
+					throw new IOException("Invalid class metadata event: " + event);
+			}
+		}
+	}
+
+	private static void replayMethod(DataInput in, @Nullable MethodVisitor methodVisitor) throws IOException {
+		while (true) {
+			byte event = in.readByte();
+			if (event == ANNOTATION) {
+				String descriptor = in.readUTF();
+				replayAnnotation(in, (methodVisitor != null ? methodVisitor.visitAnnotation(descriptor, true) : null));
+			}
+			else if (event == METHOD_END) {
+				if (methodVisitor != null) {
+					methodVisitor.visitEnd();
+				}
+				return;
+			}
+			else {
+				throw new IOException("Invalid method metadata event: " + event);
+			}
+		}
+	}
+
+	private static void replayAnnotation(DataInput in, @Nullable AnnotationVisitor annotationVisitor)
+			throws IOException {
+
+		while (true) {
+			byte event = in.readByte();
+			switch (event) {
+				case VALUE: {
+					String name = readNullableUTF(in);
+					Object value = readValue(in);
+					if (annotationVisitor != null) {
+						annotationVisitor.visit(name, value);
+					}
+					break;
+				}
+				case ENUM: {
+					String name = readNullableUTF(in);
+					String descriptor = in.readUTF();
+					String value = in.readUTF();
+					if (annotationVisitor != null) {
+						annotationVisitor.visitEnum(name, descriptor, value);
+					}
+					break;
+				}
+				case NESTED_ANNOTATION: {
+					String name = readNullableUTF(in);
+					String descriptor = in.readUTF();
+					replayAnnotation(in, (annotationVisitor != null ?
+							annotationVisitor.visitAnnotation(name, descriptor) : null));
+					break;
+				}
+				case ARRAY: {
+					String name = readNullableUTF(in);
+					replayAnnotation(in, (annotationVisitor != null ? annotationVisitor.visitArray(name) : null));
+					break;
+				}
+				case ANNOTATION_END:
+					if (annotationVisitor != null) {
+						annotationVisitor.visitEnd();
+					}
+					return;
+				default:
+					throw new IOException("Invalid annotation metadata event: " + event);
+			}
+		}
+	}
+
+
+	private static void writeNullableUTF(DataOutputStream out, @Nullable String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	@Nullable
+	private static String readNullableUTF(DataInput in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	/**
+	 * Write a value as passed to {@link AnnotationVisitor#visit}: a primitive
+	 * wrapper, a {@code String}, a {@link Type} or a primitive array.
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof String) {
+			out.writeByte('s');
+			out.writeUTF((String) value);
+		}
+		else if (value instanceof Type) {
+			out.writeByte('T');
+			out.writeUTF(((Type) value).getDescriptor());
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte('Z');
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte('B');
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte('C');
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte('S');
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte('I');
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte('J');
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte('F');
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte('D');
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			out.writeByte('z');
+			out.writeInt(array.length);
+			for (boolean element : array) {
+				out.writeBoolean(element);
+			}
+		}
+		else if (value instanceof byte[]) {
+			byte[] array = (byte[]) value;
+			out.writeByte('b');
+			out.writeInt(array.length);
+			out.write(array);
+		}
+		else if (value instanceof char[]) {
+			char[] array = (char[]) value;
+			out.writeByte('c');
+			out.writeInt(array.length);
+			for (char element : array) {
+				out.writeChar(element);
+			}
+		}
+		else if (value instanceof short[]) {
+			short[] array = (short[]) value;
+			out.writeByte('h');
+			out.writeInt(array.length);
+			for (short element : array) {
+				out.writeShort(element);
+			}
+		}
+		else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			out.writeByte('i');
+			out.writeInt(array.length);
+			for (int element : array) {
+				out.writeInt(element);
+			}
+		}
+		else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			out.writeByte('j');
+			out.writeInt(array.length);
+			for (long element : array) {
+				out.writeLong(element);
+			}
+		}
+		else if (value instanceof float[]) {
+			float[] array = (float[]) value;
+			out.writeByte('f');
+			out.writeInt(array.length);
+			for (float element : array) {
+				out.writeFloat(element);
+			}
+		}
+		else if (value instanceof double[]) {
+			double[] array = (double[]) value;
+			out.writeByte('d');
+			out.writeInt(array.length);
+			for (double element : array) {
+				out.writeDouble(element);
+			}
+		}
+		else {
+			throw new IOException("Unsupported annotation value type: " + value.getClass().getName());
+		}
+	}
+
+	private static Object readValue(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case 's':
+				return in.readUTF();
+			case 'T':
+				return Type.getType(in.readUTF());
+			case 'Z':
+				return in.readBoolean();
+			case 'B':
+				return in.readByte();
+			case 'C':
+				return in.readChar();
+			case 'S':
+				return in.readShort();
+			case 'I':
+				return in.readInt();
+			case 'J':
+				return in.readLong();
+			case 'F':
+				return in.readFloat();
+			case 'D':
+				return in.readDouble();
+			case 'z': {
+				boolean[] array = new boolean[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readBoolean();
+				}
+				return array;
+			}
+			case 'b': {
+				byte[] array = new byte[in.readInt()];
+				in.readFully(array);
+				return array;
+			}
+			case 'c': {
+				char[] array = new char[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readChar();
+				}
+				return array;
+			}
+			case 'h': {
+				short[] array = new short[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readShort();
+				}
+				return array;
+			}
+			case 'i': {
+				int[] array = new int[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readInt();
+				}
+				return array;
+			}
+			case 'j': {
+				long[] array = new long[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readLong();
+				}
+				return array;
+			}
+			case 'f': {
+				float[] array = new float[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readFloat();
+				}
+				return array;
+			}
+			case 'd': {
+				double[] array = new double[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readDouble();
+				}
+				return array;
+			}
+			default:
+				throw new IOException("Invalid annotation value type: " + type);
+		}
+	}
+
+
+	@FunctionalInterface
+	private interface Recording {
+
+		void write(DataOutputStream out) throws IOException;
+	}
+
+
+	/**
+	 * {@link MethodVisitor} recording the runtime-visible annotations of a method,
+	 * only adding the method to the recording if it is annotated.
+	 */
+	private final class RecordingMethodVisitor extends MethodVisitor {
+
+		private final int access;
+
+		private final String name;
+
+		private final String descriptor;
+
+		@Nullable
+		private ByteArrayOutputStream annotationBuffer;
+
+		@Nullable
+		private DataOutputStream annotationOut;
+
+		RecordingMethodVisitor(int access, String name, String descriptor, @Nullable MethodVisitor methodVisitor) {
+			super(SpringAsmInfo.ASM_VERSION, methodVisitor);
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			AnnotationVisitor annotationVisitor = super.visitAnnotation(descriptor, visible);
+			if (!visible) {
+				return annotationVisitor;
+			}
+			DataOutputStream annotationOut = this.annotationOut;
+			if (annotationOut == null) {
+				this.annotationBuffer = new ByteArrayOutputStream(64);
+				annotationOut = new DataOutputStream(this.annotationBuffer);
+				this.annotationOut = annotationOut;
+			}
+			record(annotationOut, out -> {
+				out.writeByte(ANNOTATION);
+				out.writeUTF(descriptor);
+			});
+			return new RecordingAnnotationVisitor(annotationOut, annotationVisitor);
+		}
+
+		@Override
+		public void visitEnd() {
+			ByteArrayOutputStream annotationBuffer = this.annotationBuffer;
+			if (annotationBuffer != null) {
+				record(RecordingClassVisitor.this.out, out -> {
+					out.writeByte(METHOD);
+					out.writeInt(this.access);
+					out.writeUTF(this.name);
+					out.writeUTF(this.descriptor);
+					annotationBuffer.writeTo(out);
+					out.writeByte(METHOD_END);
+				});
+			}
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * {@link AnnotationVisitor} recording annotation attributes.
+	 */
+	private final class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+		private final DataOutputStream out;
+
+		RecordingAnnotationVisitor(DataOutputStream out, @Nullable AnnotationVisitor annotationVisitor) {
+			super(SpringAsmInfo.ASM_VERSION, annotationVisitor);
+			this.out = out;
+		}
+
+		@Override
+		public void visit(@Nullable String name, Object value) {
+			record(this.out, out -> {
+				out.writeByte(VALUE);
+				writeNullableUTF(out, name);
+				writeValue(out, value);
+			});
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(@Nullable String name, String descriptor, String value) {
+			record(this.out, out -> {
+				out.writeByte(ENUM);
+				writeNullableUTF(out, name);
+				out.writeUTF(descriptor);
+				out.writeUTF(value);
+			});
+			super.visitEnum(name, descriptor, value);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(@Nullable String name, String descriptor) {
+			record(this.out, out -> {
+				out.writeByte(NESTED_ANNOTATION);
+				writeNullableUTF(out, name);
+				out.writeUTF(descriptor);
+			});
+			return new RecordingAnnotationVisitor(this.out, super.visitAnnotation(name, descriptor));
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(@Nullable String name) {
+			record(this.out, out -> {
+				out.writeByte(ARRAY);
+				writeNullableUTF(out, name);
+			});
+			return new RecordingAnnotationVisitor(this.out, super.visitArray(name));
+		}
+
+		@Override
+		public void visitEnd() {
+			record(this.out, out -> out.writeByte(ANNOTATION_END));
+			super.visitEnd();
+		}
+	}
+
+}
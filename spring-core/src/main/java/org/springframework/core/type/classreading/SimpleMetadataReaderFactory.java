@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,15 @@
 
 package org.springframework.core.type.classreading;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ClassUtils;
 
@@ -103,4 +106,28 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader());
 	}
 
+	/**
+	 * Obtain a MetadataReader from class metadata recorded at build time,
+	 * e.g. by the {@code spring-context-indexer} annotation processor,
+	 * without reading the class file itself.
+	 * @param recordedMetadata the recorded class metadata
+	 * @return a holder for the replayed metadata (never {@code null})
+	 * @throws IOException if the recording is invalid or in an unsupported format
+	 * @since 5.2.3
+	 */
+	public MetadataReader getMetadataReader(byte[] recordedMetadata) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(recordedMetadata));
+		int version = in.readUnsignedByte();
+		if (version != RecordingClassVisitor.FORMAT_VERSION) {
+			throw new IOException("Unsupported class metadata format version: " + version);
+		}
+		SimpleAnnotationMetadataReadingVisitor visitor =
+				new SimpleAnnotationMetadataReadingVisitor(this.resourceLoader.getClassLoader());
+		RecordingClassVisitor.replay(in, visitor);
+		AnnotationMetadata metadata = visitor.getMetadata();
+		String resourcePath = ResourceLoader.CLASSPATH_URL_PREFIX +
+				ClassUtils.convertClassNameToResourcePath(metadata.getClassName()) + ClassUtils.CLASS_FILE_SUFFIX;
+		return new SimpleMetadataReader(this.resourceLoader.getResource(resourcePath), metadata);
+	}
+
 }
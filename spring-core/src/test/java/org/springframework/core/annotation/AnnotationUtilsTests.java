@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -61,6 +61,7 @@ import static org.springframework.core.annotation.AnnotationUtils.getValue;
 import static org.springframework.core.annotation.AnnotationUtils.isAnnotationDeclaredLocally;
 import static org.springframework.core.annotation.AnnotationUtils.isAnnotationInherited;
 import static org.springframework.core.annotation.AnnotationUtils.isAnnotationMetaPresent;
+import static org.springframework.core.annotation.AnnotationUtils.isCandidateTypeHierarchy;
 import static org.springframework.core.annotation.AnnotationUtils.synthesizeAnnotation;
 
 /**
@@ -82,6 +83,22 @@ class AnnotationUtilsTests {
 	}
 
 
+	@Test
+	void isCandidateTypeHierarchyWithAnnotationsInTypeHierarchy() {
+		assertThat(isCandidateTypeHierarchy(SubTransactionalAndOrderedClass.class, Transactional.class)).isTrue();
+		assertThat(isCandidateTypeHierarchy(SubOfImplementsInterfaceWithAnnotatedMethod.class, Order.class)).isTrue();
+		assertThat(isCandidateTypeHierarchy(SubOfImplementsInterfaceWithAnnotatedMethod.class, Transactional.class)).isFalse();
+		assertThat(isCandidateTypeHierarchy(Leaf.class, Component.class)).isTrue();
+		assertThat(isCandidateTypeHierarchy(Leaf.class, Transactional.class)).isTrue();
+		assertThat(isCandidateTypeHierarchy(SubMyRepeatableClass.class, MyRepeatable.class)).isTrue();
+		assertThat(isCandidateTypeHierarchy(NonAnnotatedClass.class, Order.class)).isFalse();
+		assertThat(isCandidateTypeHierarchy(String.class, Order.class)).isFalse();
+		assertThat(isCandidateTypeHierarchy(NonAnnotatedClass.class,
+				Arrays.asList(Transactional.class, Order.class, Component.class))).isFalse();
+		assertThat(isCandidateTypeHierarchy(SubOfImplementsInterfaceWithAnnotatedMethod.class,
+				Arrays.asList(Transactional.class, Order.class, Component.class))).isTrue();
+	}
+
 	@Test
 	void findMethodAnnotationOnLeaf() throws Exception {
 		Method m = Leaf.class.getMethod("annotatedOnLeaf");
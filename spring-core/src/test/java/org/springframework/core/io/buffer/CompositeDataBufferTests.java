@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Unit tests for {@link CompositeDataBuffer}.
+ */
+class CompositeDataBufferTests {
+
+	private final PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory(false);
+
+
+	@AfterEach
+	void verifyAllocations() {
+		assertThat(this.bufferFactory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+
+	@Test
+	void content() {
+		CompositeDataBuffer composite = compose("foo", "", "bar", "baz");
+
+		assertThat(composite.readableByteCount()).isEqualTo(9);
+		assertThat(composite.capacity()).isEqualTo(9);
+		assertThat(composite.writableByteCount()).isEqualTo(0);
+		assertThat(composite.getByte(3)).isEqualTo((byte) 'b');
+		assertThat(composite.toString(StandardCharsets.UTF_8)).isEqualTo("foobarbaz");
+		assertThat(composite.toString(2, 5, StandardCharsets.UTF_8)).isEqualTo("obarb");
+		assertThat(composite.toString(3, 3, StandardCharsets.UTF_8)).isEqualTo("bar");
+		assertThat(composite.factory()).isSameAs(this.bufferFactory);
+		release(composite);
+	}
+
+	@Test
+	void readAcrossComponents() {
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+		assertThat(composite.read()).isEqualTo((byte) 'f');
+
+		byte[] bytes = new byte[6];
+		composite.read(bytes);
+		assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("oobarb");
+		assertThat(composite.readableByteCount()).isEqualTo(2);
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> composite.read(new byte[3]));
+		release(composite);
+	}
+
+	@Test
+	void indexOf() {
+		CompositeDataBuffer composite = compose("ab", "cd", "ec");
+
+		assertThat(composite.indexOf(b -> b == 'c', 0)).isEqualTo(2);
+		assertThat(composite.indexOf(b -> b == 'c', 3)).isEqualTo(5);
+		assertThat(composite.indexOf(b -> b == 'x', 0)).isEqualTo(-1);
+		assertThat(composite.indexOf(b -> b == 'a', 6)).isEqualTo(-1);
+		assertThat(composite.lastIndexOf(b -> b == 'c', 5)).isEqualTo(5);
+		assertThat(composite.lastIndexOf(b -> b == 'c', 4)).isEqualTo(2);
+		assertThat(composite.lastIndexOf(b -> b == 'a', 5)).isEqualTo(0);
+		assertThat(composite.lastIndexOf(b -> b == 'x', 5)).isEqualTo(-1);
+		release(composite);
+	}
+
+	@Test
+	void asByteBuffers() {
+		DataBuffer foo = stringBuffer("foo");
+		CompositeDataBuffer composite = new CompositeDataBuffer(this.bufferFactory,
+				Arrays.asList(foo, stringBuffer("bar")));
+		composite.readPosition(1);
+
+		ByteBuffer[] byteBuffers = composite.asByteBuffers();
+		assertThat(byteBuffers).hasSize(2);
+		assertThat(byteBuffers[0].remaining()).isEqualTo(2);
+		assertThat(byteBuffers[1].remaining()).isEqualTo(3);
+
+		byteBuffers[0].put(0, (byte) 'x');
+		assertThat(foo.toString(StandardCharsets.UTF_8)).isEqualTo("fxo");
+		release(composite);
+	}
+
+	@Test
+	void asByteBuffer() {
+		CompositeDataBuffer composite = compose("foo", "bar");
+
+		ByteBuffer shared = composite.asByteBuffer(3, 3);
+		shared.put(0, (byte) 'c');
+		assertThat(composite.toString(StandardCharsets.UTF_8)).isEqualTo("foocar");
+
+		ByteBuffer copy = composite.asByteBuffer();
+		assertThat(copy.remaining()).isEqualTo(6);
+		assertThat(StandardCharsets.UTF_8.decode(copy).toString()).isEqualTo("foocar");
+		release(composite);
+	}
+
+	@Test
+	void toStringWithCharacterSplitAcrossComponents() {
+		byte[] bytes = "été ☃".getBytes(StandardCharsets.UTF_8);
+		CompositeDataBuffer composite = new CompositeDataBuffer(this.bufferFactory, Arrays.asList(
+				byteBuffer(Arrays.copyOfRange(bytes, 0, 1)),
+				byteBuffer(Arrays.copyOfRange(bytes, 1, 5)),
+				byteBuffer(Arrays.copyOfRange(bytes, 5, 7)),
+				byteBuffer(Arrays.copyOfRange(bytes, 7, 8)),
+				byteBuffer(Arrays.copyOfRange(bytes, 8, bytes.length))));
+
+		assertThat(composite.toString(StandardCharsets.UTF_8)).isEqualTo("été ☃");
+		release(composite);
+	}
+
+	@Test
+	void inputStream() throws Exception {
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+		composite.read();
+
+		InputStream inputStream = composite.asInputStream(true);
+		assertThat(inputStream.available()).isEqualTo(8);
+		assertThat(inputStream.skip(2)).isEqualTo(2);
+		assertThat(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8)).isEqualTo("barbaz");
+		inputStream.close();
+
+		assertThat(composite.isAllocated()).isFalse();
+	}
+
+	@Test
+	void writeAddsComponents() {
+		CompositeDataBuffer composite = compose("foo", "bar");
+
+		composite.write((byte) '-');
+		composite.write("baz", StandardCharsets.UTF_8);
+		composite.write(new byte[300]);
+		composite.write(ByteBuffer.wrap("qux".getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(composite.readableByteCount()).isEqualTo(313);
+		assertThat(composite.toString(0, 10, StandardCharsets.UTF_8)).isEqualTo("foobar-baz");
+		assertThat(composite.toString(310, 3, StandardCharsets.UTF_8)).isEqualTo("qux");
+		release(composite);
+	}
+
+	@Test
+	void writeOverExistingContent() {
+		CompositeDataBuffer composite = compose("foo", "bar");
+		composite.writePosition(2);
+		composite.write("OBA", StandardCharsets.UTF_8);
+
+		assertThat(composite.toString(StandardCharsets.UTF_8)).isEqualTo("foOBA");
+		release(composite);
+	}
+
+	@Test
+	void shrinkCapacity() {
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+		composite.capacity(4);
+
+		assertThat(composite.capacity()).isEqualTo(4);
+		assertThat(composite.toString(StandardCharsets.UTF_8)).isEqualTo("foob");
+		release(composite);
+	}
+
+	@Test
+	void slice() {
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+
+		DataBuffer slice = composite.slice(2, 5);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("obarb");
+		assertThat(slice.slice(1, 3).toString(StandardCharsets.UTF_8)).isEqualTo("bar");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> slice.capacity(10));
+
+		DataBuffer retainedSlice = composite.retainedSlice(6, 3);
+		assertThat(retainedSlice.toString(StandardCharsets.UTF_8)).isEqualTo("baz");
+		assertThat(DataBufferUtils.release(composite)).isFalse();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isTrue();
+		assertThat(DataBufferUtils.release(retainedSlice)).isTrue();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isFalse();
+	}
+
+	@Test
+	void releaseReleasesComponents() {
+		CompositeDataBuffer composite = compose("foo", "bar");
+		assertThat(this.bufferFactory.getAllocatedBufferCount()).isEqualTo(2);
+
+		composite.retain();
+		assertThat(composite.release()).isFalse();
+		assertThat(this.bufferFactory.getAllocatedBufferCount()).isEqualTo(2);
+		assertThat(composite.release()).isTrue();
+		assertThat(composite.readableByteCount()).isEqualTo(0);
+		assertThatIllegalStateException().isThrownBy(composite::release);
+	}
+
+	@Test
+	void joinComposesDefaultDataBuffers() {
+		DataBuffer result = DataBufferUtils.join(Flux.just(stringBuffer("foo"), stringBuffer("bar"))).block();
+		assertThat(result).isInstanceOf(CompositeDataBuffer.class);
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEqualTo("foobar");
+		release(result);
+
+		DataBuffer single = stringBuffer("foo");
+		assertThat(DataBufferUtils.join(Flux.just(single)).block()).isSameAs(single);
+		release(single);
+	}
+
+
+	private CompositeDataBuffer compose(String... values) {
+		DataBuffer[] buffers = new DataBuffer[values.length];
+		for (int i = 0; i < values.length; i++) {
+			buffers[i] = stringBuffer(values[i]);
+		}
+		return new CompositeDataBuffer(this.bufferFactory, Arrays.asList(buffers));
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		return byteBuffer(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private DataBuffer byteBuffer(byte[] bytes) {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+		buffer.write(bytes);
+		return buffer;
+	}
+
+	private static void release(DataBuffer buffer) {
+		DataBufferUtils.release(buffer);
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Unit tests for {@link PooledDataBufferFactory}.
+ */
+class PooledDataBufferFactoryTests {
+
+	private final PooledDataBufferFactory factory = new PooledDataBufferFactory(false);
+
+
+	@Test
+	void maxPooledCapacity() {
+		assertThat(this.factory.getMaxPooledCapacity()).isEqualTo(PooledDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY);
+		assertThat(new PooledDataBufferFactory(true, 256, 1000).getMaxPooledCapacity()).isEqualTo(1024);
+		assertThatIllegalArgumentException().isThrownBy(() -> new PooledDataBufferFactory(true, 256, 0));
+	}
+
+	@Test
+	void allocateExactCapacity() {
+		DataBuffer buffer = this.factory.allocateBuffer(100);
+		assertThat(buffer).isInstanceOf(PooledDataBuffer.class);
+		assertThat(buffer.capacity()).isEqualTo(100);
+		assertThat(buffer.writableByteCount()).isEqualTo(100);
+		assertThat(this.factory.allocateBuffer().capacity()).isEqualTo(DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY);
+	}
+
+	@Test
+	void memoryReusedAfterRelease() {
+		DefaultDataBuffer buffer = this.factory.allocateBuffer(100);
+		ByteBuffer nativeBuffer = buffer.getNativeBuffer();
+		DataBufferUtils.release(buffer);
+
+		DefaultDataBuffer other = this.factory.allocateBuffer(120);
+		ByteBuffer otherNativeBuffer = other.getNativeBuffer();
+		assertThat(otherNativeBuffer.array()).isSameAs(nativeBuffer.array());
+		assertThat(otherNativeBuffer.arrayOffset()).isEqualTo(nativeBuffer.arrayOffset());
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void memoryNotSharedBetweenAllocatedBuffers() {
+		DataBuffer buffer1 = this.factory.allocateBuffer(64);
+		DataBuffer buffer2 = this.factory.allocateBuffer(64);
+		byte[] bytes = new byte[64];
+		Arrays.fill(bytes, (byte) 'a');
+		buffer1.write(bytes);
+		Arrays.fill(bytes, (byte) 'b');
+		buffer2.write(bytes);
+
+		assertThat(buffer1.getByte(63)).isEqualTo((byte) 'a');
+		assertThat(buffer2.getByte(0)).isEqualTo((byte) 'b');
+		release(buffer1, buffer2);
+	}
+
+	@Test
+	void releasedBufferCannotBeUsed() {
+		DataBuffer buffer = this.factory.allocateBuffer(8);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+		assertThat(buffer.readableByteCount()).isEqualTo(0);
+		assertThat(buffer.capacity()).isEqualTo(0);
+		assertThatIllegalStateException().isThrownBy(() -> buffer.write("bar", StandardCharsets.UTF_8));
+		assertThatIllegalStateException().isThrownBy(((PooledDataBuffer) buffer)::retain);
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+	}
+
+	@Test
+	void growCapacity() {
+		DataBuffer buffer = this.factory.allocateBuffer(4);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		buffer.write(new byte[1000]);
+
+		assertThat(buffer.capacity()).isGreaterThanOrEqualTo(1003);
+		assertThat(buffer.toString(0, 3, StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(1);
+		release(buffer);
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+	@Test
+	void capacityBeyondMaxPooledCapacity() {
+		PooledDataBufferFactory factory = new PooledDataBufferFactory(true, 256, 1024);
+		DataBuffer buffer = factory.allocateBuffer(2048);
+		assertThat(buffer.capacity()).isEqualTo(2048);
+		buffer.write(new byte[3000]);
+		assertThat(buffer.readableByteCount()).isEqualTo(3000);
+
+		((PooledDataBuffer) buffer).retain();
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+		assertThat(factory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+	@Test
+	void sliceSharesReferenceCount() {
+		DataBuffer buffer = this.factory.allocateBuffer(8);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+
+		DataBuffer slice = buffer.slice(3, 3);
+		assertThat(slice).isInstanceOf(PooledDataBuffer.class);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("bar");
+
+		DataBuffer retainedSlice = buffer.retainedSlice(0, 3);
+		assertThat(retainedSlice.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isTrue();
+
+		assertThat(DataBufferUtils.release(retainedSlice)).isTrue();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isFalse();
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+	}
+
+	@Test
+	void sliceEmptiedOnRelease() {
+		DataBuffer buffer = this.factory.allocateBuffer(8);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.slice(3, 3);
+		DataBuffer nestedSlice = slice.slice(1, 2);
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		assertThat(slice.readableByteCount()).isEqualTo(0);
+		assertThat(slice.capacity()).isEqualTo(0);
+		assertThat(nestedSlice.capacity()).isEqualTo(0);
+		assertThatIllegalStateException().isThrownBy(((PooledDataBuffer) slice)::retain);
+	}
+
+	@Test
+	void sliceKeepsMemoryWhenBufferGrows() {
+		DataBuffer buffer = this.factory.allocateBuffer(8);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.slice(0, 3);
+		buffer.write(new byte[1000]);
+
+		DataBuffer other = this.factory.allocateBuffer(8);
+		other.write("bar", StandardCharsets.UTF_8);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(buffer.toString(0, 3, StandardCharsets.UTF_8)).isEqualTo("foo");
+		release(buffer, other);
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+	@Test
+	void joinReleasesBuffers() {
+		DataBuffer buffer1 = this.factory.allocateBuffer(3).write("foo", StandardCharsets.UTF_8);
+		DataBuffer buffer2 = this.factory.allocateBuffer(3).write("bar", StandardCharsets.UTF_8);
+
+		DataBuffer result = this.factory.join(Arrays.asList(buffer1, buffer2));
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEqualTo("foobar");
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(1);
+		release(result);
+	}
+
+	@Test
+	void wrapIsNotPooled() {
+		DataBuffer buffer = this.factory.wrap("foo".getBytes(StandardCharsets.UTF_8));
+		assertThat(buffer).isNotInstanceOf(PooledDataBuffer.class);
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+	@Test
+	void releaseOnOtherThread() throws Exception {
+		DataBuffer buffer = this.factory.allocateBuffer(100);
+		Thread thread = new Thread(() -> DataBufferUtils.release(buffer));
+		thread.start();
+		thread.join();
+
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(0);
+		release(this.factory.allocateBuffer(100));
+	}
+
+	@Test
+	void leakDetection() throws Exception {
+		this.factory.setLeakDetection(true);
+		assertThat(this.factory.isLeakDetection()).isTrue();
+
+		release(this.factory.allocateBuffer(10));
+		this.factory.allocateBuffer(10);
+
+		for (int i = 0; i < 50 && this.factory.getLeakedBufferCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(this.factory.getLeakedBufferCount()).isEqualTo(1);
+		assertThat(this.factory.getAllocatedBufferCount()).isEqualTo(0);
+	}
+
+
+	private static void release(DataBuffer... buffers) {
+		for (DataBuffer buffer : buffers) {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.metrics.BufferingApplicationStartup.RecordedStep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BufferingApplicationStartup}.
+ */
+class BufferingApplicationStartupTests {
+
+	@Test
+	void recordsStepsWithParentAndDuration() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10);
+		StartupStep parent = applicationStartup.start("spring.test.parent");
+		StartupStep child = applicationStartup.start("spring.test.child").tag("beanName", "myBean");
+		child.end();
+		parent.end();
+
+		List<RecordedStep> steps = applicationStartup.getRecordedSteps();
+		assertThat(steps).hasSize(2);
+		RecordedStep recordedChild = steps.get(0);
+		RecordedStep recordedParent = steps.get(1);
+		assertThat(recordedChild.getName()).isEqualTo("spring.test.child");
+		assertThat(recordedChild.getParentId()).isEqualTo(recordedParent.getId());
+		assertThat(recordedChild.getTags()).extracting(StartupStep.Tag::getKey).containsExactly("beanName");
+		assertThat(recordedParent.getParentId()).isNull();
+		assertThat(recordedParent.getDuration()).isGreaterThanOrEqualTo(recordedChild.getDuration());
+		assertThat(recordedChild.getStartTime()).isGreaterThanOrEqualTo(recordedParent.getStartTime());
+	}
+
+	@Test
+	void siblingStepsShareParent() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10);
+		StartupStep parent = applicationStartup.start("spring.test.parent");
+		applicationStartup.start("spring.test.first").end();
+		applicationStartup.start("spring.test.second").end();
+		parent.end();
+		applicationStartup.start("spring.test.root").end();
+
+		List<RecordedStep> steps = applicationStartup.getRecordedSteps();
+		assertThat(steps).extracting(RecordedStep::getName).containsExactly(
+				"spring.test.first", "spring.test.second", "spring.test.parent", "spring.test.root");
+		assertThat(steps.get(0).getParentId()).isEqualTo(parent.getId());
+		assertThat(steps.get(1).getParentId()).isEqualTo(parent.getId());
+		assertThat(steps.get(3).getParentId()).isNull();
+	}
+
+	@Test
+	void discardsStepsOnceCapacityIsReached() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(2);
+		for (int i = 0; i < 5; i++) {
+			applicationStartup.start("spring.test.step").end();
+		}
+		assertThat(applicationStartup.getRecordedSteps()).hasSize(2);
+		assertThat(applicationStartup.drainRecordedSteps()).hasSize(2);
+		assertThat(applicationStartup.getRecordedSteps()).isEmpty();
+		applicationStartup.start("spring.test.step").end();
+		assertThat(applicationStartup.getRecordedSteps()).hasSize(1);
+	}
+
+	@Test
+	void filterExcludesSteps() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10);
+		applicationStartup.addFilter(step -> !step.getName().equals("spring.beans.instantiate"));
+		applicationStartup.start("spring.beans.instantiate").end();
+		applicationStartup.start("spring.context.refresh").end();
+		assertThat(applicationStartup.getRecordedSteps()).extracting(RecordedStep::getName)
+				.containsExactly("spring.context.refresh");
+	}
+
+	@Test
+	void stepCannotBeEndedOrTaggedTwice() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10);
+		StartupStep step = applicationStartup.start("spring.test.step");
+		step.end();
+		assertThatIllegalStateException().isThrownBy(step::end);
+		assertThatIllegalStateException().isThrownBy(() -> step.tag("key", "value"));
+	}
+
+	@Test
+	void writeJson() throws Exception {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10);
+		StartupStep parent = applicationStartup.start("spring.test.parent");
+		applicationStartup.start("spring.test.child").tag("name", "a \"quoted\"\nvalue").end();
+		parent.end();
+
+		StringWriter writer = new StringWriter();
+		applicationStartup.writeJson(writer);
+		String json = writer.toString();
+		assertThat(json).startsWith("{\"steps\":[{\"id\":2,\"parentId\":1,\"name\":\"spring.test.child\"");
+		assertThat(json).contains("\"tags\":[{\"key\":\"name\",\"value\":\"a \\\"quoted\\\"\\nvalue\"}]");
+		assertThat(json).contains("{\"id\":1,\"parentId\":null,\"name\":\"spring.test.parent\"");
+		assertThat(json).endsWith("\"tags\":[]}]}");
+	}
+
+}
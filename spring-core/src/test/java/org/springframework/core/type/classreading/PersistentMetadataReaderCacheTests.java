@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AbstractAnnotationMetadataTests;
+import org.springframework.core.type.AbstractMethodMetadataTests;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PersistentMetadataReaderCache} and {@link RecordingClassVisitor}.
+ */
+class PersistentMetadataReaderCacheTests {
+
+	@TempDir
+	Path tempDir;
+
+
+	@Test
+	void cachedMetadataReplayedAfterSave() throws IOException {
+		File file = this.tempDir.resolve("metadata.cache").toFile();
+		CountingResource resource = new CountingResource(TestClass.class);
+
+		PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		assertThat(resource.reads).hasValue(1);
+		cache.save();
+		assertThat(file).exists();
+
+		cache = new PersistentMetadataReaderCache(file);
+		AnnotationMetadata metadata =
+				cache.getMetadataReader(resource, getClass().getClassLoader()).getAnnotationMetadata();
+		assertThat(resource.reads).hasValue(1);
+		assertThat(metadata.getClassName()).isEqualTo(TestClass.class.getName());
+		assertThat(metadata.hasAnnotation(TestAnnotation.class.getName())).isTrue();
+	}
+
+	@Test
+	void cachedMetadataIgnoredForChangedTimestamp() throws IOException {
+		File file = this.tempDir.resolve("metadata.cache").toFile();
+		CountingResource resource = new CountingResource(TestClass.class);
+
+		PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		cache.save();
+
+		resource.lastModified++;
+		cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		assertThat(resource.reads).hasValue(2);
+	}
+
+	@Test
+	void unreadableCacheFileIgnored() throws IOException {
+		File file = this.tempDir.resolve("metadata.cache").toFile();
+		Files.write(file.toPath(), new byte[] {1, 2, 3});
+		CountingResource resource = new CountingResource(TestClass.class);
+
+		PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+		AnnotationMetadata metadata =
+				cache.getMetadataReader(resource, getClass().getClassLoader()).getAnnotationMetadata();
+		assertThat(metadata.getClassName()).isEqualTo(TestClass.class.getName());
+		cache.save();
+
+		cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		assertThat(resource.reads).hasValue(1);
+	}
+
+	@Test
+	void unusedEntriesDroppedOnSave() throws IOException {
+		File file = this.tempDir.resolve("metadata.cache").toFile();
+		CountingResource resource = new CountingResource(TestClass.class);
+		CountingResource otherResource = new CountingResource(TestAnnotation.class);
+
+		PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		cache.getMetadataReader(otherResource, getClass().getClassLoader());
+		cache.save();
+
+		cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		cache.save();
+
+		cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		cache.getMetadataReader(otherResource, getClass().getClassLoader());
+		assertThat(resource.reads).hasValue(1);
+		assertThat(otherResource.reads).hasValue(2);
+	}
+
+	@Test
+	void unusedCacheNotSaved() throws IOException {
+		File file = this.tempDir.resolve("metadata.cache").toFile();
+		CountingResource resource = new CountingResource(TestClass.class);
+
+		PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+		cache.getMetadataReader(resource, getClass().getClassLoader());
+		cache.save();
+		long length = file.length();
+
+		new PersistentMetadataReaderCache(file).save();
+		assertThat(file).hasSize(length);
+	}
+
+	private static AnnotationMetadata getReplayed(Class<?> source, Path tempDir) {
+		try {
+			File file = tempDir.resolve(source.getName() + ".cache").toFile();
+			PersistentMetadataReaderCache cache = new PersistentMetadataReaderCache(file);
+			CachingMetadataReaderFactory factory = new CachingMetadataReaderFactory(source.getClassLoader());
+			factory.setPersistentCache(cache);
+			factory.getMetadataReader(source.getName());
+			cache.save();
+
+			factory = new CachingMetadataReaderFactory(source.getClassLoader());
+			factory.setPersistentCache(new PersistentMetadataReaderCache(file));
+			// Parsing the class file is not an option anymore...
+			return factory.getMetadataReader(new CountingResource(source) {
+				@Override
+				public InputStream getInputStream() throws IOException {
+					throw new FileNotFoundException("Class file not expected to be parsed");
+				}
+			}).getAnnotationMetadata();
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface TestAnnotation {
+	}
+
+
+	@TestAnnotation
+	static class TestClass {
+	}
+
+
+	private static class CountingResource extends UrlResource {
+
+		final AtomicInteger reads = new AtomicInteger();
+
+		long lastModified;
+
+		CountingResource(Class<?> source) throws IOException {
+			super(getClassFile(source));
+			this.lastModified = super.lastModified();
+		}
+
+		@Override
+		public long lastModified() {
+			return this.lastModified;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			this.reads.incrementAndGet();
+			return super.getInputStream();
+		}
+
+		private static URL getClassFile(Class<?> source) {
+			URL url = source.getClassLoader().getResource(
+					ClassUtils.convertClassNameToResourcePath(source.getName()) + ClassUtils.CLASS_FILE_SUFFIX);
+			assertThat(url).isNotNull();
+			return url;
+		}
+	}
+
+
+	@Nested
+	class ReplayedAnnotationMetadataTests extends AbstractAnnotationMetadataTests {
+
+		@TempDir
+		Path tempDir;
+
+		@Override
+		protected AnnotationMetadata get(Class<?> source) {
+			return getReplayed(source, this.tempDir);
+		}
+	}
+
+
+	@Nested
+	class ReplayedMethodMetadataTests extends AbstractMethodMetadataTests {
+
+		@TempDir
+		Path tempDir;
+
+		@Override
+		protected AnnotationMetadata get(Class<?> source) {
+			return getReplayed(source, this.tempDir);
+		}
+	}
+
+}
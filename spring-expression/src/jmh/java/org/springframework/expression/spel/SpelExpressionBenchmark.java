@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for {@code SpelExpression#getValue} in interpreted and compiled mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelExpressionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"OFF", "IMMEDIATE"})
+		public SpelCompilerMode compilerMode;
+
+		@Param({"name", "address.city", "name.length() > 3 and age >= 18", "tags['role'] == 'admin'"})
+		public String expressionString;
+
+		public Expression expression;
+
+		public StandardEvaluationContext context;
+
+		public Person person;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			SpelParserConfiguration configuration =
+					new SpelParserConfiguration(this.compilerMode, getClass().getClassLoader());
+			this.expression = new SpelExpressionParser(configuration).parseExpression(this.expressionString);
+			this.person = new Person();
+			this.context = new StandardEvaluationContext(this.person);
+			// Evaluate once so that compiled mode gets a chance to generate its class
+			this.expression.getValue(this.context);
+		}
+	}
+
+
+	@Benchmark
+	public void getValue(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.expression.getValue(state.context));
+	}
+
+	@Benchmark
+	public void getValueWithRootObject(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.expression.getValue(state.person));
+	}
+
+
+	public static class Person {
+
+		private final String name = "Juno";
+
+		private final int age = 42;
+
+		private final Address address = new Address();
+
+		private final Map<String, String> tags = new HashMap<>();
+
+		public Person() {
+			this.tags.put("role", "admin");
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+
+		public Map<String, String> getTags() {
+			return this.tags;
+		}
+	}
+
+
+	public static class Address {
+
+		public String getCity() {
+			return "Zurich";
+		}
+	}
+
+}
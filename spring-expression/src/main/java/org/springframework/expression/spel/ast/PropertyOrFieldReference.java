@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -63,6 +63,9 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 	@Nullable
 	private volatile PropertyAccessor cachedWriteAccessor;
 
+	@Nullable
+	private volatile OptimalAccessorSource cachedReadAccessorSource;
+
 
 	public PropertyOrFieldReference(boolean nullSafe, String propertyOrFieldName, int startPos, int endPos) {
 		super(startPos, endPos);
@@ -176,7 +179,9 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 
 		PropertyAccessor accessorToUse = this.cachedReadAccessor;
 		if (accessorToUse != null) {
-			if (evalContext.getPropertyAccessors().contains(accessorToUse)) {
+			OptimalAccessorSource source = this.cachedReadAccessorSource;
+			if ((source != null && source.isApplicable(accessorToUse, evalContext, targetObject)) ||
+					evalContext.getPropertyAccessors().contains(accessorToUse)) {
 				try {
 					return accessorToUse.read(evalContext, contextObject.getValue(), name);
 				}
@@ -196,10 +201,15 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		try {
 			for (PropertyAccessor accessor : accessorsToTry) {
 				if (accessor.canRead(evalContext, contextObject.getValue(), name)) {
+					OptimalAccessorSource source = null;
 					if (accessor instanceof ReflectivePropertyAccessor) {
-						accessor = ((ReflectivePropertyAccessor) accessor).createOptimalAccessor(
-								evalContext, contextObject.getValue(), name);
+						ReflectivePropertyAccessor reflectiveAccessor = (ReflectivePropertyAccessor) accessor;
+						accessor = reflectiveAccessor.createOptimalAccessor(evalContext, contextObject.getValue(), name);
+						if (accessor != reflectiveAccessor) {
+							source = new OptimalAccessorSource(accessor, reflectiveAccessor, contextObject.getValue());
+						}
 					}
+					this.cachedReadAccessorSource = source;
 					this.cachedReadAccessor = accessor;
 					return accessor.read(evalContext, contextObject.getValue(), name);
 				}
@@ -381,6 +391,42 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 	}
 
 
+	/**
+	 * The origin of an optimal accessor created by a {@link ReflectivePropertyAccessor}:
+	 * the optimal accessor is not registered with the evaluation context itself, but it
+	 * may be reused for targets of the same type as long as the context still holds the
+	 * accessor that created it.
+	 */
+	private static final class OptimalAccessorSource {
+
+		private final PropertyAccessor optimalAccessor;
+
+		private final ReflectivePropertyAccessor reflectiveAccessor;
+
+		private final Class<?> targetType;
+
+		private final boolean targetIsClass;
+
+		OptimalAccessorSource(PropertyAccessor optimalAccessor, ReflectivePropertyAccessor reflectiveAccessor,
+				@Nullable Object target) {
+
+			Assert.state(target != null, "No target for optimal accessor");
+			this.optimalAccessor = optimalAccessor;
+			this.reflectiveAccessor = reflectiveAccessor;
+			this.targetIsClass = (target instanceof Class);
+			this.targetType = (this.targetIsClass ? (Class<?>) target : target.getClass());
+		}
+
+		boolean isApplicable(PropertyAccessor accessor, EvaluationContext evalContext, @Nullable Object target) {
+			if (accessor != this.optimalAccessor || target == null || (target instanceof Class) != this.targetIsClass ||
+					(this.targetIsClass ? target : target.getClass()) != this.targetType) {
+				return false;
+			}
+			return evalContext.getPropertyAccessors().contains(this.reflectiveAccessor);
+		}
+	}
+
+
 	private static class AccessorLValue implements ValueRef {
 
 		private final PropertyOrFieldReference ref;
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * Bounded cache of parsed SpEL expressions for components that evaluate the
+ * same expression strings repeatedly: an expression is parsed once per parser
+ * configuration, and its cached state is kept across all callers.
+ *
+ * <p>Since a parsed expression caches the accessors and method executors that
+ * it resolved against an {@link org.springframework.expression.EvaluationContext}
+ * (and may get compiled against them), a cache instance should only be used by
+ * callers that evaluate against equivalently configured contexts, e.g. one
+ * cache per expression evaluator.
+ *
+ * <p>The least recently used expressions are evicted when the cache reaches its
+ * size limit. For caches created through the {@link #SpelExpressionCache()
+ * default constructor}, the limit is {@value #DEFAULT_SIZE_LIMIT} unless
+ * specified through the {@value #SIZE_LIMIT_PROPERTY_NAME} property.
+ *
+ * <p>Only expressions parsed by a plain {@link SpelExpressionParser} are cached,
+ * since a subclass may parse differently. Expressions for the
+ * {@link SpelCompilerMode#IMMEDIATE} compiler mode are not cached either: they
+ * fail rather than fall back to interpretation if another caller evaluates them
+ * against different types.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see SpelExpressionParser
+ */
+public class SpelExpressionCache {
+
+	/**
+	 * System property that determines the size limit of caches created through
+	 * the default constructor: "spring.expression.cache.limit".
+	 */
+	public static final String SIZE_LIMIT_PROPERTY_NAME = "spring.expression.cache.limit";
+
+	/**
+	 * The default size limit of caches created through the default constructor.
+	 */
+	public static final int DEFAULT_SIZE_LIMIT = 1024;
+
+	private static final int defaultSizeLimit = getDefaultSizeLimit();
+
+
+	private final ConcurrentLruCache<ExpressionKey, Expression> cache;
+
+	private final AtomicLong requestCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+
+	/**
+	 * Create a new {@code SpelExpressionCache} with the default size limit.
+	 * @see #SIZE_LIMIT_PROPERTY_NAME
+	 */
+	public SpelExpressionCache() {
+		this(defaultSizeLimit);
+	}
+
+	/**
+	 * Create a new {@code SpelExpressionCache} with the given size limit.
+	 * @param sizeLimit the maximum number of cached expressions
+	 */
+	public SpelExpressionCache(int sizeLimit) {
+		this.cache = new ConcurrentLruCache<>(sizeLimit, this::parseExpression);
+	}
+
+
+	/**
+	 * Return the expression for the given expression string, parsing it with the
+	 * given parser if not cached yet.
+	 * @param parser the parser to use
+	 * @param expressionString the raw expression string to parse
+	 * @return the cached or newly parsed expression
+	 * @throws ParseException if the expression string cannot be parsed
+	 */
+	public Expression getExpression(SpelExpressionParser parser, String expressionString) throws ParseException {
+		if (!supports(parser)) {
+			return parser.parseExpression(expressionString);
+		}
+		this.requestCount.incrementAndGet();
+		return this.cache.get(new ExpressionKey(parser.getConfiguration(), expressionString));
+	}
+
+	/**
+	 * Determine whether expressions parsed by the given parser are held in this
+	 * cache, rather than parsed on every {@link #getExpression} call.
+	 * @param parser the parser to check
+	 * @return {@code false} for a subclass of {@link SpelExpressionParser} or for
+	 * the {@link SpelCompilerMode#IMMEDIATE} compiler mode, {@code true} otherwise
+	 */
+	public boolean supports(SpelExpressionParser parser) {
+		return (parser.getClass() == SpelExpressionParser.class &&
+				parser.getConfiguration().getCompilerMode() != SpelCompilerMode.IMMEDIATE);
+	}
+
+	private Expression parseExpression(ExpressionKey key) {
+		this.missCount.incrementAndGet();
+		return new SpelExpressionParser(key.configuration).parseExpression(key.expressionString);
+	}
+
+	/**
+	 * Remove all expressions from this cache.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Return the current number of cached expressions.
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the maximum number of cached expressions.
+	 */
+	public int sizeLimit() {
+		return this.cache.sizeLimit();
+	}
+
+	/**
+	 * Return the number of requests served from this cache.
+	 */
+	public long getHitCount() {
+		return this.requestCount.get() - this.missCount.get();
+	}
+
+	/**
+	 * Return the number of requests that required parsing an expression.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [size = " + size() + ", sizeLimit = " + sizeLimit() +
+				", hits = " + getHitCount() + ", misses = " + getMissCount() + "]";
+	}
+
+
+	private static int getDefaultSizeLimit() {
+		String sizeLimit = SpringProperties.getProperty(SIZE_LIMIT_PROPERTY_NAME);
+		if (sizeLimit != null) {
+			try {
+				int limit = Integer.parseInt(sizeLimit.trim());
+				if (limit >= 0) {
+					return limit;
+				}
+			}
+			catch (NumberFormatException ex) {
+				// Fall back to the default size limit
+			}
+		}
+		return DEFAULT_SIZE_LIMIT;
+	}
+
+
+	/**
+	 * Cache key: an expression string along with the parser configuration
+	 * settings that the parsed expression depends on.
+	 */
+	private static final class ExpressionKey {
+
+		private final SpelParserConfiguration configuration;
+
+		private final String expressionString;
+
+		ExpressionKey(SpelParserConfiguration configuration, String expressionString) {
+			this.configuration = configuration;
+			this.expressionString = expressionString;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ExpressionKey)) {
+				return false;
+			}
+			ExpressionKey otherKey = (ExpressionKey) other;
+			SpelParserConfiguration otherConfig = otherKey.configuration;
+			return (this.expressionString.equals(otherKey.expressionString) &&
+					this.configuration.getCompilerMode() == otherConfig.getCompilerMode() &&
+					this.configuration.getCompilerClassLoader() == otherConfig.getCompilerClassLoader() &&
+					this.configuration.isAutoGrowNullReferences() == otherConfig.isAutoGrowNullReferences() &&
+					this.configuration.isAutoGrowCollections() == otherConfig.isAutoGrowCollections() &&
+					this.configuration.getMaximumAutoGrowSize() == otherConfig.getMaximumAutoGrowSize());
+		}
+
+		@Override
+		public int hashCode() {
+			return this.expressionString.hashCode() * 29 + this.configuration.getCompilerMode().hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.support;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.cglib.reflect.FastMethod;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Variant of {@link ReflectivePropertyAccessor} that reads bean properties through
+ * generated accessors instead of reflection: a CGLIB {@link FastClass} is generated
+ * per class on first use, invoking getter methods directly.
+ *
+ * <p>The generated accessors back the {@link OptimalPropertyAccessor optimal accessors}
+ * that property references in an interpreted expression resolve once per target type
+ * and reuse for subsequent evaluations, as long as the evaluation context holds the
+ * same {@code GeneratedPropertyAccessor} instance. This is worth it for expressions
+ * that are evaluated often but cannot be compiled; for a single evaluation, the cost
+ * of generating a class outweighs the benefit.
+ *
+ * <p>Fields, static and private getter methods, classes loaded by the bootstrap ClassLoader and
+ * classes that a FastClass cannot be defined for (e.g. due to the module system or a
+ * sealed package) are accessed through reflection, as with the regular
+ * {@link ReflectivePropertyAccessor}. Write operations always use reflection.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see StandardEvaluationContext#addPropertyAccessor
+ * @see SimpleEvaluationContext#forPropertyAccessors
+ */
+public class GeneratedPropertyAccessor extends ReflectivePropertyAccessor {
+
+	/** Marker for a class or method without a generated accessor. */
+	private static final Object NOT_AVAILABLE = new Object();
+
+	private static final Log logger = LogFactory.getLog(GeneratedPropertyAccessor.class);
+
+	/** Cache of FastClass instances per class, or NOT_AVAILABLE. */
+	private static final Map<Class<?>, Object> fastClassCache = new ConcurrentReferenceHashMap<>(64);
+
+	/** Cache of FastMethod instances per method and target class, or NOT_AVAILABLE. */
+	private static final Map<MethodCacheKey, Object> methodCache = new ConcurrentReferenceHashMap<>(256);
+
+
+	/**
+	 * Create a new property accessor for reading as well writing.
+	 * @see #GeneratedPropertyAccessor(boolean)
+	 */
+	public GeneratedPropertyAccessor() {
+	}
+
+	/**
+	 * Create a new property accessor for reading and possibly writing.
+	 * @param allowWrite whether to also allow for write operations
+	 * @see #canWrite
+	 */
+	public GeneratedPropertyAccessor(boolean allowWrite) {
+		super(allowWrite);
+	}
+
+
+	/**
+	 * Create an optimal accessor as the superclass does, invoking a getter method
+	 * through a generated accessor if possible.
+	 */
+	@Override
+	public PropertyAccessor createOptimalAccessor(EvaluationContext context, @Nullable Object target, String name) {
+		PropertyAccessor accessor = super.createOptimalAccessor(context, target, name);
+		if (target != null && accessor instanceof OptimalPropertyAccessor) {
+			OptimalPropertyAccessor optimalAccessor = (OptimalPropertyAccessor) accessor;
+			if (optimalAccessor.member instanceof Method) {
+				FastMethod fastMethod = getFastMethod((Method) optimalAccessor.member, target.getClass());
+				if (fastMethod != null) {
+					return new OptimalPropertyAccessor(optimalAccessor, fastMethod);
+				}
+			}
+		}
+		return accessor;
+	}
+
+
+	/**
+	 * Clear the shared cache of generated accessors.
+	 */
+	public static void clearCache() {
+		fastClassCache.clear();
+		methodCache.clear();
+	}
+
+	@Nullable
+	private static FastMethod getFastMethod(Method method, Class<?> targetClass) {
+		MethodCacheKey cacheKey = new MethodCacheKey(method, targetClass);
+		Object accessor = methodCache.get(cacheKey);
+		if (accessor == null) {
+			accessor = NOT_AVAILABLE;
+			// The given method may have been resolved to an interface method:
+			// a FastClass needs the implementation in a concrete class instead.
+			Method methodToUse = ClassUtils.getMostSpecificMethod(method, targetClass);
+			int modifiers = methodToUse.getModifiers();
+			if (!Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers) && !methodToUse.isBridge()) {
+				FastClass fastClass = getFastClass(methodToUse.getDeclaringClass());
+				if (fastClass != null &&
+						fastClass.getIndex(methodToUse.getName(), methodToUse.getParameterTypes()) >= 0) {
+					accessor = fastClass.getMethod(methodToUse);
+				}
+			}
+			methodCache.put(cacheKey, accessor);
+		}
+		return (accessor != NOT_AVAILABLE ? (FastMethod) accessor : null);
+	}
+
+	@Nullable
+	private static FastClass getFastClass(Class<?> clazz) {
+		Object fastClass = fastClassCache.get(clazz);
+		if (fastClass == null) {
+			fastClass = generateFastClass(clazz);
+			fastClassCache.put(clazz, fastClass);
+		}
+		return (fastClass != NOT_AVAILABLE ? (FastClass) fastClass : null);
+	}
+
+	private static Object generateFastClass(Class<?> clazz) {
+		ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader == null || clazz.isInterface() || clazz.isArray() || clazz.isAnonymousClass()) {
+			return NOT_AVAILABLE;
+		}
+		try {
+			FastClass.Generator generator = new FastClass.Generator();
+			generator.setType(clazz);
+			generator.setContextClass(clazz);
+			generator.setClassLoader(classLoader);
+			generator.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+			return generator.create();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cannot generate property accessors for " + clazz + " - using reflection instead", ex);
+			}
+			return NOT_AVAILABLE;
+		}
+	}
+
+
+	/**
+	 * Cache key for a getter method, as resolved for a specific target class.
+	 */
+	private static final class MethodCacheKey {
+
+		private final Method method;
+
+		private final Class<?> targetClass;
+
+		MethodCacheKey(Method method, Class<?> targetClass) {
+			this.method = method;
+			this.targetClass = targetClass;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MethodCacheKey)) {
+				return false;
+			}
+			MethodCacheKey otherKey = (MethodCacheKey) other;
+			return (this.method.equals(otherKey.method) && this.targetClass == otherKey.targetClass);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.method.hashCode() * 29 + this.targetClass.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.support;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link EvaluationContext} for a single evaluation (or a few evaluations in
+ * the same thread), holding its own root object and variables on top of a shared
+ * context that provides everything else: property accessors, constructor and
+ * method resolvers, bean resolver, type locator, type converter, type comparator
+ * and operator overloader.
+ *
+ * <p>Setting up a {@link StandardEvaluationContext} per evaluation is not cheap:
+ * it creates its accessors and resolvers on first use, including their caches
+ * of reflective members. With an {@code OverlayEvaluationContext}, these are set
+ * up once in the shared context and reused across evaluations, while an
+ * evaluation only allocates the overlay itself.
+ *
+ * <p>The shared context needs to be fully configured before it is used by
+ * overlays and must not be modified afterwards, since it may be used by any
+ * number of threads at the same time. Variables set on an overlay are only
+ * visible through that overlay; variables that the overlay does not hold are
+ * looked up in the shared context.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see #createSharedContext()
+ */
+public class OverlayEvaluationContext implements EvaluationContext {
+
+	private final EvaluationContext sharedContext;
+
+	private final TypedValue rootObject;
+
+	@Nullable
+	private Map<String, Object> variables;
+
+
+	/**
+	 * Create a new {@code OverlayEvaluationContext} with the given root object.
+	 * @param sharedContext the shared context to delegate to
+	 * @param rootObject the root object to use
+	 */
+	public OverlayEvaluationContext(EvaluationContext sharedContext, @Nullable Object rootObject) {
+		Assert.notNull(sharedContext, "Shared EvaluationContext must not be null");
+		this.sharedContext = sharedContext;
+		this.rootObject = (rootObject != null ? new TypedValue(rootObject) : TypedValue.NULL);
+	}
+
+	/**
+	 * Create a new {@code OverlayEvaluationContext} with the given root object
+	 * and its type descriptor.
+	 * @param sharedContext the shared context to delegate to
+	 * @param rootObject the root object to use
+	 * @param typeDescriptor the type descriptor of the root object
+	 */
+	public OverlayEvaluationContext(EvaluationContext sharedContext, @Nullable Object rootObject,
+			TypeDescriptor typeDescriptor) {
+
+		Assert.notNull(sharedContext, "Shared EvaluationContext must not be null");
+		this.sharedContext = sharedContext;
+		this.rootObject = new TypedValue(rootObject, typeDescriptor);
+	}
+
+
+	/**
+	 * Return the shared context that this overlay delegates to.
+	 */
+	public final EvaluationContext getSharedContext() {
+		return this.sharedContext;
+	}
+
+	@Override
+	public TypedValue getRootObject() {
+		return this.rootObject;
+	}
+
+	@Override
+	public List<PropertyAccessor> getPropertyAccessors() {
+		return this.sharedContext.getPropertyAccessors();
+	}
+
+	@Override
+	public List<ConstructorResolver> getConstructorResolvers() {
+		return this.sharedContext.getConstructorResolvers();
+	}
+
+	@Override
+	public List<MethodResolver> getMethodResolvers() {
+		return this.sharedContext.getMethodResolvers();
+	}
+
+	@Override
+	@Nullable
+	public BeanResolver getBeanResolver() {
+		return this.sharedContext.getBeanResolver();
+	}
+
+	@Override
+	public TypeLocator getTypeLocator() {
+		return this.sharedContext.getTypeLocator();
+	}
+
+	@Override
+	public TypeConverter getTypeConverter() {
+		return this.sharedContext.getTypeConverter();
+	}
+
+	@Override
+	public TypeComparator getTypeComparator() {
+		return this.sharedContext.getTypeComparator();
+	}
+
+	@Override
+	public OperatorOverloader getOperatorOverloader() {
+		return this.sharedContext.getOperatorOverloader();
+	}
+
+	/**
+	 * Set a variable in this overlay, leaving the shared context untouched.
+	 * <p>As with {@link StandardEvaluationContext}, a {@code null} value removes
+	 * the variable from this overlay and a {@code null} name is ignored.
+	 */
+	@Override
+	public void setVariable(@Nullable String name, @Nullable Object value) {
+		if (name != null) {
+			if (value != null) {
+				if (this.variables == null) {
+					this.variables = new HashMap<>(4);
+				}
+				this.variables.put(name, value);
+			}
+			else if (this.variables != null) {
+				this.variables.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Look up a variable in this overlay, falling back to the shared context.
+	 */
+	@Override
+	@Nullable
+	public Object lookupVariable(String name) {
+		if (this.variables != null) {
+			Object value = this.variables.get(name);
+			if (value != null) {
+				return value;
+			}
+		}
+		return this.sharedContext.lookupVariable(name);
+	}
+
+
+	/**
+	 * Create a {@link StandardEvaluationContext} to be shared by overlays, with
+	 * its default accessors and resolvers initialized upfront: a
+	 * {@code StandardEvaluationContext} otherwise creates them on first use,
+	 * which is not safe for concurrent use.
+	 * <p>Further accessors, resolvers or variables may be registered on the
+	 * returned context before it is passed to the first overlay.
+	 * @return the new shared context
+	 */
+	public static StandardEvaluationContext createSharedContext() {
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		context.getPropertyAccessors();
+		context.getConstructorResolvers();
+		context.getMethodResolvers();
+		context.getTypeLocator();
+		context.getTypeConverter();
+		return context;
+	}
+
+}
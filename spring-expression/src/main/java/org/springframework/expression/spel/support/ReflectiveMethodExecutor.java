@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -83,12 +83,19 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 	 * because of visibility restrictions. For example if a non-public class overrides toString(),
 	 * this helper method will walk up the type hierarchy to find the first public type that declares
 	 * the method (if there is one!). For toString() it may walk as far as Object.
+	 * If no public class declares the method, this falls back to a public interface
+	 * declaring it, e.g. for a method of a private class implementing that interface.
 	 */
 	@Nullable
 	public Class<?> getPublicDeclaringClass() {
 		if (!this.computedPublicDeclaringClass) {
-			this.publicDeclaringClass =
+			Class<?> publicDeclaringClass =
 					discoverPublicDeclaringClass(this.originalMethod, this.originalMethod.getDeclaringClass());
+			if (publicDeclaringClass == null && this.methodToInvoke != this.originalMethod &&
+					Modifier.isPublic(this.methodToInvoke.getDeclaringClass().getModifiers())) {
+				publicDeclaringClass = this.methodToInvoke.getDeclaringClass();
+			}
+			this.publicDeclaringClass = publicDeclaringClass;
 			this.computedPublicDeclaringClass = true;
 		}
 		return this.publicDeclaringClass;
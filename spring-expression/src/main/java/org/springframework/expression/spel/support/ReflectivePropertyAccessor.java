@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,6 +29,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.asm.MethodVisitor;
+import org.springframework.cglib.reflect.FastMethod;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.Property;
 import org.springframework.core.convert.TypeDescriptor;
@@ -64,6 +65,8 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 	private static final Set<Class<?>> ANY_TYPES = Collections.emptySet();
 
+	private static final Object[] NO_ARGS = new Object[0];
+
 	private static final Set<Class<?>> BOOLEAN_TYPES;
 
 	static {
@@ -654,9 +657,22 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 		private final TypeDescriptor typeDescriptor;
 
+		@Nullable
+		private final FastMethod fastMethod;
+
+		@Nullable
+		private volatile TypeDescriptor narrowedTypeDescriptor;
+
 		OptimalPropertyAccessor(InvokerPair target) {
 			this.member = target.member;
 			this.typeDescriptor = target.typeDescriptor;
+			this.fastMethod = null;
+		}
+
+		OptimalPropertyAccessor(OptimalPropertyAccessor original, FastMethod fastMethod) {
+			this.member = original.member;
+			this.typeDescriptor = original.typeDescriptor;
+			this.fastMethod = fastMethod;
 		}
 
 		@Override
@@ -692,12 +708,21 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 		@Override
 		public TypedValue read(EvaluationContext context, @Nullable Object target, String name) throws AccessException {
-			if (this.member instanceof Method) {
+			if (this.fastMethod != null) {
+				try {
+					Object value = this.fastMethod.invoke(target, NO_ARGS);
+					return new TypedValue(value, narrow(value));
+				}
+				catch (Exception ex) {
+					throw new AccessException("Unable to access property '" + name + "' through getter method", ex);
+				}
+			}
+			else if (this.member instanceof Method) {
 				Method method = (Method) this.member;
 				try {
 					ReflectionUtils.makeAccessible(method);
 					Object value = method.invoke(target);
-					return new TypedValue(value, this.typeDescriptor.narrow(value));
+					return new TypedValue(value, narrow(value));
 				}
 				catch (Exception ex) {
 					throw new AccessException("Unable to access property '" + name + "' through getter method", ex);
@@ -708,7 +733,7 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 				try {
 					ReflectionUtils.makeAccessible(field);
 					Object value = field.get(target);
-					return new TypedValue(value, this.typeDescriptor.narrow(value));
+					return new TypedValue(value, narrow(value));
 				}
 				catch (Exception ex) {
 					throw new AccessException("Unable to access field '" + name + "'", ex);
@@ -716,6 +741,22 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 			}
 		}
 
+		/**
+		 * Narrow the type descriptor to the given value, reusing the narrowed
+		 * descriptor from the previous read if the value is of the same type.
+		 */
+		private TypeDescriptor narrow(@Nullable Object value) {
+			if (value == null) {
+				return this.typeDescriptor;
+			}
+			TypeDescriptor narrowed = this.narrowedTypeDescriptor;
+			if (narrowed == null || narrowed.getType() != value.getClass()) {
+				narrowed = this.typeDescriptor.narrow(value);
+				this.narrowedTypeDescriptor = narrowed;
+			}
+			return narrowed;
+		}
+
 		@Override
 		public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
 			throw new UnsupportedOperationException("Should not be called on an OptimalPropertyAccessor");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.SimpleEvaluationContext;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.testresources.Inventor;
@@ -266,6 +267,64 @@ public class PropertyAccessTests extends AbstractExpressionTests {
 			.satisfies(ex -> assertThat(ex.getMessageCode()).isEqualTo(SpelMessage.ARRAY_INDEX_OUT_OF_BOUNDS));
 	}
 
+	@Test
+	void optimalAccessorReusedForSameTargetType() {
+		CountingReflectivePropertyAccessor accessor = new CountingReflectivePropertyAccessor();
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		context.setPropertyAccessors(Collections.singletonList(accessor));
+		Expression expr = parser.parseExpression("name");
+
+		assertThat(expr.getValue(context, new Person("p1"))).isEqualTo("p1");
+		assertThat(expr.getValue(context, new Person("p2"))).isEqualTo("p2");
+		assertThat(accessor.optimalAccessorCount).isEqualTo(1);
+
+		assertThat(expr.getValue(context, new Inventor("i1", null, null))).isEqualTo("i1");
+		assertThat(accessor.optimalAccessorCount).isEqualTo(2);
+
+		CountingReflectivePropertyAccessor otherAccessor = new CountingReflectivePropertyAccessor();
+		context.setPropertyAccessors(Collections.singletonList(otherAccessor));
+		assertThat(expr.getValue(context, new Inventor("i2", null, null))).isEqualTo("i2");
+		assertThat(otherAccessor.optimalAccessorCount).isEqualTo(1);
+	}
+
+	@Test
+	void optimalAccessorNotReusedForOtherTargetClass() {
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		Expression expr = parser.parseExpression("value");
+
+		assertThat(expr.getValue(context, (Object) StaticValueA.class)).isEqualTo("a");
+		assertThat(expr.getValue(context, (Object) StaticValueB.class)).isEqualTo("b");
+		assertThat(expr.getValue(context, (Object) StaticValueA.class)).isEqualTo("a");
+	}
+
+
+	public static class StaticValueA {
+
+		public static String getValue() {
+			return "a";
+		}
+	}
+
+
+	public static class StaticValueB {
+
+		public static String getValue() {
+			return "b";
+		}
+	}
+
+
+	private static class CountingReflectivePropertyAccessor extends ReflectivePropertyAccessor {
+
+		int optimalAccessorCount;
+
+		@Override
+		public PropertyAccessor createOptimalAccessor(EvaluationContext context, Object target, String name) {
+			this.optimalAccessorCount++;
+			return super.createOptimalAccessor(context, target, name);
+		}
+	}
+
 
 	// This can resolve the property 'flibbles' on any String (very useful...)
 	private static class StringyPropertyAccessor implements PropertyAccessor {
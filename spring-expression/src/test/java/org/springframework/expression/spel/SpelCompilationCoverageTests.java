@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,9 +20,12 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +47,7 @@ import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.testdata.PersonInOtherPackage;
+import org.springframework.lang.Nullable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -105,7 +109,10 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * ConstructorReference
 	 * FunctionReference
 	 * InlineList
+	 * InlineMap
 	 * OpModulus
+	 * Projection (on collections)
+	 * Selection (on collections)
 	 *
 	 * Not yet compiled (some may never need to be):
 	 * Assign
@@ -116,9 +123,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * OpMatches
 	 * OpPower
 	 * OpInc
-	 * Projection
 	 * QualifiedId
-	 * Selection
 	 */
 
 
@@ -1028,7 +1033,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 
 		expression = parser.parseExpression("#negate(#ints.?[#this<2][0])");
 		assertThat(expression.getValue(context, Integer.class).toString()).isEqualTo("-1");
-		// Selection isn't compilable.
+		// Selection on an array isn't compilable.
 		assertThat(((SpelNodeImpl)((SpelExpression) expression).getAST()).isCompilable()).isFalse();
 	}
 
@@ -5105,9 +5110,115 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertThat(classloadersUsed.size() > 1).isTrue();
 	}
 
+	@Test
+	public void selection() {
+		CollectionsHolder holder = new CollectionsHolder();
+		assertCompiledMatchesInterpreted("numbers.?[#this > 2]", holder, Arrays.asList(3, 4));
+		assertCompiledMatchesInterpreted("names.?[length() > 1]", holder, Arrays.asList("bb", "ccc"));
+		assertCompiledMatchesInterpreted("names.^[length() > 1]", holder, "bb");
+		assertCompiledMatchesInterpreted("names.$[length() > 1]", holder, "ccc");
+		assertCompiledMatchesInterpreted("names.^[length() > 5]", holder, null);
+		assertCompiledMatchesInterpreted("names.?[#this == #root.key]", holder, Collections.singletonList("bb"));
+		assertCompiledMatchesInterpreted("names.?[length() > 1].size()", holder, 2);
+		assertCompiledMatchesInterpreted("nameSet.?[startsWith('b')]", holder, Collections.singletonList("bb"));
+
+		expression = parse("names?.?[length() > 1]");
+		assertThat(expression.getValue(holder)).isEqualTo(Arrays.asList("bb", "ccc"));
+		assertCanCompile(expression);
+		holder.names = null;
+		assertThat(expression.getValue(holder)).isNull();
+
+		// Not compiled: selection on arrays and maps
+		expression = parse("numberArray.?[#this > 1]");
+		assertThat((Integer[]) expression.getValue(holder)).containsExactly(2, 3);
+		assertCantCompile(expression);
+		expression = parse("map.?[value > 1]");
+		assertThat(expression.getValue(holder)).isEqualTo(Collections.singletonMap("b", 2));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void projection() {
+		CollectionsHolder holder = new CollectionsHolder();
+		assertCompiledMatchesInterpreted("names.![length()]", holder, Arrays.asList(1, 2, 3));
+		assertCompiledMatchesInterpreted("numbers.![#this * 2]", holder, Arrays.asList(2, 4, 6, 8));
+		assertCompiledMatchesInterpreted("numbers.![#this > 2 ? #this : null]", holder, Arrays.asList(null, null, 3, 4));
+		assertCompiledMatchesInterpreted("names.![#root.key + #this]", holder, Arrays.asList("bba", "bbbb", "bbccc"));
+		assertCompiledMatchesInterpreted("names.?[length() > 1].![length()]", holder, Arrays.asList(2, 3));
+		assertCompiledMatchesInterpreted("nested.![#this.![length()]]", holder,
+				Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)));
+
+		expression = parse("names?.![length()]");
+		holder.names = null;
+		assertThat(expression.getValue(holder)).isNull();
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void inlineMap() {
+		CollectionsHolder holder = new CollectionsHolder();
+		assertCompiledMatchesInterpreted("{a:1, 'b':'x'}", holder, map("a", 1, "b", "x"));
+		assertCompiledMatchesInterpreted("{a:{1,2}, b:{c:'d'}}", holder,
+				map("a", Arrays.asList(1, 2), "b", Collections.singletonMap("c", "d")));
+		assertCompiledMatchesInterpreted("{a:key, b:numbers.size()}", holder, map("a", "bb", "b", 4));
+		assertCompiledMatchesInterpreted("{#root.key:1, 'c':{x:key}}", holder,
+				map("bb", 1, "c", Collections.singletonMap("x", "bb")));
+		assertCompiledMatchesInterpreted("names.![{name:#this, length:length()}]", holder, Arrays.asList(
+				map("name", "a", "length", 1), map("name", "bb", "length", 2), map("name", "ccc", "length", 3)));
+
+		expression = parse("{a:1}");
+		Map<?, ?> map = expression.getValue(Map.class);
+		assertCanCompile(expression);
+		assertThat(expression.getValue(Map.class)).isEqualTo(map);
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+				expression.getValue(Map.class).clear());
+	}
+
+	@Test
+	public void methodReferenceOnInterface() {
+		CollectionsHolder holder = new CollectionsHolder();
+		// Method of a private class implementing a public interface
+		assertCompiledMatchesInterpreted("named.name()", holder, "named");
+		// Default method
+		assertCompiledMatchesInterpreted("named.upperCaseName()", holder, "NAMED");
+		assertCompiledMatchesInterpreted("names.![#root.named.name() + #this]", holder,
+				Arrays.asList("nameda", "namedbb", "namedccc"));
+	}
+
+	@Test
+	public void methodReferenceWithVarargs() {
+		CollectionsHolder holder = new CollectionsHolder();
+		assertCompiledMatchesInterpreted("join('a', 'b')", holder, "a-b");
+		assertCompiledMatchesInterpreted("join()", holder, "");
+		assertCompiledMatchesInterpreted("join(names.?[length() > 1].![#this + '!'].get(0), key)", holder, "bb!-bb");
+	}
+
+	@Test
+	public void mapIndexerWithNonLiteralKey() {
+		CollectionsHolder holder = new CollectionsHolder();
+		assertCompiledMatchesInterpreted("map[#root.mapKey]", holder, 2);
+		assertCompiledMatchesInterpreted("map[names.get(0)]", holder, 1);
+	}
+
 
 	// Helper methods
 
+	private void assertCompiledMatchesInterpreted(String expressionText, Object root, @Nullable Object expected) {
+		Expression interpreted = parse(expressionText);
+		assertThat(interpreted.getValue(root)).isEqualTo(expected);
+		expression = parse(expressionText);
+		expression.getValue(root);
+		assertCanCompile(expression);
+		assertThat(expression.getValue(root)).isEqualTo(interpreted.getValue(root));
+	}
+
+	private static Map<String, Object> map(String key1, Object value1, String key2, Object value2) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put(key1, value1);
+		map.put(key2, value2);
+		return map;
+	}
+
 	private SpelNodeImpl getAst() {
 		SpelExpression spelExpression = (SpelExpression) expression;
 		SpelNode ast = spelExpression.getAST();
@@ -5174,6 +5285,56 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 
 	// Nested types
 
+	public static class CollectionsHolder {
+
+		public String key = "bb";
+
+		public String mapKey = "b";
+
+		public List<Integer> numbers = Arrays.asList(1, 2, 3, 4);
+
+		public Integer[] numberArray = {1, 2, 3};
+
+		public List<String> names = Arrays.asList("a", "bb", "ccc");
+
+		public Set<String> nameSet = new LinkedHashSet<>(names);
+
+		public List<List<String>> nested = Arrays.asList(Arrays.asList("a", "bb"), Collections.singletonList("ccc"));
+
+		public Map<String, Integer> map = new LinkedHashMap<>();
+
+		public Named named = new DefaultNamed();
+
+		public CollectionsHolder() {
+			this.map.put("a", 1);
+			this.map.put("b", 2);
+		}
+
+		public String join(String... parts) {
+			return String.join("-", parts);
+		}
+	}
+
+
+	public interface Named {
+
+		String name();
+
+		default String upperCaseName() {
+			return name().toUpperCase();
+		}
+	}
+
+
+	private static class DefaultNamed implements Named {
+
+		@Override
+		public String name() {
+			return "named";
+		}
+	}
+
+
 	public interface Message<T> {
 
 		MessageHeaders getHeaders();
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SpelExpressionCache}.
+ */
+class SpelExpressionCacheTests {
+
+	private final SpelExpressionCache cache = new SpelExpressionCache(2);
+
+
+	@Test
+	void sharedAcrossParsersWithSameConfiguration() {
+		Expression expression = this.cache.getExpression(new SpelExpressionParser(), "1 + 1");
+		assertThat(expression.getValue()).isEqualTo(2);
+		assertThat(this.cache.getExpression(new SpelExpressionParser(), "1 + 1")).isSameAs(expression);
+		assertThat(this.cache.getHitCount()).isEqualTo(1);
+		assertThat(this.cache.getMissCount()).isEqualTo(1);
+		assertThat(this.cache.size()).isEqualTo(1);
+	}
+
+	@Test
+	void separateForDifferentConfiguration() {
+		Expression expression = this.cache.getExpression(new SpelExpressionParser(), "1 + 1");
+		SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(true, true));
+		assertThat(this.cache.getExpression(parser, "1 + 1")).isNotSameAs(expression);
+		assertThat(this.cache.getMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	void bounded() {
+		SpelExpressionParser parser = new SpelExpressionParser();
+		Expression expression = this.cache.getExpression(parser, "'a'");
+		this.cache.getExpression(parser, "'b'");
+		this.cache.getExpression(parser, "'c'");
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.sizeLimit()).isEqualTo(2);
+		assertThat(this.cache.getExpression(parser, "'a'")).isNotSameAs(expression);
+		assertThat(this.cache.getMissCount()).isEqualTo(4);
+		this.cache.clear();
+		assertThat(this.cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	void defaultSizeLimit() {
+		assertThat(new SpelExpressionCache().sizeLimit()).isEqualTo(SpelExpressionCache.DEFAULT_SIZE_LIMIT);
+	}
+
+	@Test
+	void notCachedForParserSubclass() {
+		SpelExpressionParser parser = new SpelExpressionParser() {};
+		assertThat(this.cache.supports(parser)).isFalse();
+		Expression expression = this.cache.getExpression(parser, "1 + 1");
+		assertThat(this.cache.getExpression(parser, "1 + 1")).isNotSameAs(expression);
+		assertThat(this.cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	void notCachedForImmediateCompilation() {
+		SpelExpressionParser parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null));
+		assertThat(this.cache.supports(parser)).isFalse();
+		Expression expression = this.cache.getExpression(parser, "1 + 1");
+		assertThat(this.cache.getExpression(parser, "1 + 1")).isNotSameAs(expression);
+		assertThat(this.cache.size()).isEqualTo(0);
+	}
+
+}
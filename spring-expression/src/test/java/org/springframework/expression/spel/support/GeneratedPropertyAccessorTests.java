@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link GeneratedPropertyAccessor}.
+ */
+class GeneratedPropertyAccessorTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final StandardEvaluationContext context = new StandardEvaluationContext();
+
+
+	@BeforeEach
+	void setup() {
+		this.context.setPropertyAccessors(Collections.singletonList(new GeneratedPropertyAccessor()));
+	}
+
+
+	@Test
+	void readProperty() {
+		Expression expr = this.parser.parseExpression("name");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo("b1");
+		assertThat(expr.getValue(this.context, new Bean("b2"))).isEqualTo("b2");
+	}
+
+	@Test
+	void readBooleanProperty() {
+		Expression expr = this.parser.parseExpression("active");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo(true);
+	}
+
+	@Test
+	void readPropertyThroughGeneratedAccessor() {
+		Expression expr = this.parser.parseExpression("failing");
+		assertThatExceptionOfType(SpelEvaluationException.class)
+				.isThrownBy(() -> expr.getValue(this.context, new Bean("b1")))
+				.satisfies(ex -> assertThat(getRootCause(ex).getStackTrace())
+						.anySatisfy(element -> assertThat(element.getClassName()).contains("FastClass")));
+	}
+
+	@Test
+	void readPropertyDeclaredByInterface() {
+		Expression expr = this.parser.parseExpression("name");
+		assertThat(expr.getValue(this.context, new HiddenNamed("h1"))).isEqualTo("h1");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo("b1");
+	}
+
+	@Test
+	void readPropertyWithNarrowedType() {
+		Expression expr = this.parser.parseExpression("value");
+		Bean bean = new Bean("b1");
+		bean.value = "text";
+		assertThat(expr.getValue(this.context, bean)).isEqualTo("text");
+		bean.value = 42;
+		assertThat(expr.getValue(this.context, bean, Integer.class)).isEqualTo(42);
+		bean.value = Arrays.asList(1, 2);
+		assertThat(this.parser.parseExpression("value[1]").getValue(this.context, bean)).isEqualTo(2);
+	}
+
+	@Test
+	void readStaticProperty() {
+		Expression expr = this.parser.parseExpression("defaultName");
+		assertThat(expr.getValue(this.context, (Object) Bean.class)).isEqualTo("default");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo("default");
+	}
+
+	@Test
+	void readField() {
+		Expression expr = this.parser.parseExpression("publicField");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo("field");
+	}
+
+	@Test
+	void readPropertyOfJdkType() {
+		Expression expr = this.parser.parseExpression("empty");
+		assertThat(expr.getValue(this.context, new ArrayList<>())).isEqualTo(true);
+	}
+
+	@Test
+	void writeProperty() {
+		Bean bean = new Bean("b1");
+		this.parser.parseExpression("name").setValue(this.context, bean, "b2");
+		assertThat(bean.getName()).isEqualTo("b2");
+	}
+
+	@Test
+	void compileAfterGeneratedAccess() {
+		SpelExpressionParser parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
+		SpelExpression expr = (SpelExpression) parser.parseExpression("name");
+		assertThat(expr.getValue(this.context, new Bean("b1"))).isEqualTo("b1");
+		assertThat(expr.compileExpression()).isTrue();
+		assertThat(expr.getValue(this.context, new Bean("b2"))).isEqualTo("b2");
+	}
+
+	private static Throwable getRootCause(Throwable ex) {
+		Throwable cause = ex;
+		while (cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+
+
+	public interface Named {
+
+		String getName();
+	}
+
+
+	public static class Bean implements Named {
+
+		public String publicField = "field";
+
+		private String name;
+
+		private Object value;
+
+		public Bean(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public boolean isActive() {
+			return true;
+		}
+
+		public Object getValue() {
+			return this.value;
+		}
+
+		public String getFailing() {
+			throw new IllegalStateException("Failing getter");
+		}
+
+		public static String getDefaultName() {
+			return "default";
+		}
+	}
+
+
+	private static class HiddenNamed implements Named {
+
+		private final String name;
+
+		HiddenNamed(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
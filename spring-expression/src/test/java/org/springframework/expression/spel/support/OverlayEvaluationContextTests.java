@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.support;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.Expression;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link OverlayEvaluationContext}.
+ */
+class OverlayEvaluationContextTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final StandardEvaluationContext sharedContext = OverlayEvaluationContext.createSharedContext();
+
+
+	@Test
+	void delegatesToSharedContext() {
+		BeanResolver beanResolver = (context, beanName) -> beanName.toUpperCase();
+		this.sharedContext.setBeanResolver(beanResolver);
+		OverlayEvaluationContext context = new OverlayEvaluationContext(this.sharedContext, null);
+
+		assertThat(context.getSharedContext()).isSameAs(this.sharedContext);
+		assertThat(context.getPropertyAccessors()).isSameAs(this.sharedContext.getPropertyAccessors());
+		assertThat(context.getMethodResolvers()).isSameAs(this.sharedContext.getMethodResolvers());
+		assertThat(context.getConstructorResolvers()).isSameAs(this.sharedContext.getConstructorResolvers());
+		assertThat(context.getBeanResolver()).isSameAs(beanResolver);
+		assertThat(context.getTypeLocator()).isSameAs(this.sharedContext.getTypeLocator());
+		assertThat(context.getTypeConverter()).isSameAs(this.sharedContext.getTypeConverter());
+		assertThat(context.getTypeComparator()).isSameAs(this.sharedContext.getTypeComparator());
+		assertThat(context.getOperatorOverloader()).isSameAs(this.sharedContext.getOperatorOverloader());
+		assertThat(this.parser.parseExpression("@bean").getValue(context)).isEqualTo("BEAN");
+	}
+
+	@Test
+	void rootObject() {
+		assertThat(new OverlayEvaluationContext(this.sharedContext, null).getRootObject()).isSameAs(TypedValue.NULL);
+
+		TypedValue rootObject = new OverlayEvaluationContext(this.sharedContext, "root").getRootObject();
+		assertThat(rootObject.getValue()).isEqualTo("root");
+
+		rootObject = new OverlayEvaluationContext(
+				this.sharedContext, "root", TypeDescriptor.valueOf(CharSequence.class)).getRootObject();
+		assertThat(rootObject.getValue()).isEqualTo("root");
+		assertThat(rootObject.getTypeDescriptor().getType()).isEqualTo(CharSequence.class);
+	}
+
+	@Test
+	void variablesAreLocalToOverlay() {
+		this.sharedContext.setVariable("shared", "s");
+		OverlayEvaluationContext context1 = new OverlayEvaluationContext(this.sharedContext, null);
+		OverlayEvaluationContext context2 = new OverlayEvaluationContext(this.sharedContext, null);
+
+		context1.setVariable("name", "one");
+		this.parser.parseExpression("#name = 'two'").getValue(context2);
+
+		assertThat(context1.lookupVariable("name")).isEqualTo("one");
+		assertThat(context2.lookupVariable("name")).isEqualTo("two");
+		assertThat(this.sharedContext.lookupVariable("name")).isNull();
+		assertThat(context1.lookupVariable("shared")).isEqualTo("s");
+
+		context1.setVariable("shared", "overridden");
+		assertThat(context1.lookupVariable("shared")).isEqualTo("overridden");
+		context1.setVariable("shared", null);
+		assertThat(context1.lookupVariable("shared")).isEqualTo("s");
+	}
+
+	@Test
+	void evaluateAgainstDifferentRootObjects() {
+		Expression expr = this.parser.parseExpression("length() > 3 ? toUpperCase() : #fallback");
+		OverlayEvaluationContext context = new OverlayEvaluationContext(this.sharedContext, "spring");
+		assertThat(expr.getValue(context)).isEqualTo("SPRING");
+
+		context = new OverlayEvaluationContext(this.sharedContext, "el");
+		context.setVariable("fallback", "none");
+		assertThat(expr.getValue(context)).isEqualTo("none");
+	}
+
+}
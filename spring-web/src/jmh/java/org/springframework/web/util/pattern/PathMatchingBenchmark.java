@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks comparing {@link AntPathMatcher#match} with {@link PathPattern#matches}
+ * and {@link PathPatternIndex} over a set of route patterns resembling a typical
+ * REST API, as well as over a large set of generated routes.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class PathMatchingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class RouteData {
+
+		public final String[] patterns = {
+				"/", "/about", "/login", "/static/**", "/api/users", "/api/users/{id}",
+				"/api/users/{id}/orders", "/api/users/{id}/orders/{orderId}", "/api/products",
+				"/api/products/{id:[0-9]+}", "/api/products/{id}/reviews", "/api/search/*",
+				"/docs/**", "/files/*.{ext}", "/admin/*/settings"};
+
+		public final String[] paths = {
+				"/", "/about", "/static/css/main.css", "/api/users", "/api/users/42",
+				"/api/users/42/orders/7", "/api/products/1234", "/api/products/abc/reviews",
+				"/api/search/books", "/files/report.pdf", "/admin/users/settings", "/unknown/path"};
+
+		public List<PathPattern> pathPatterns;
+
+		public List<PathContainer> pathContainers;
+
+		public PathPatternIndex pathPatternIndex;
+
+		public AntPathMatcher antPathMatcher;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			PathPatternParser parser = new PathPatternParser();
+			this.pathPatterns = new ArrayList<>(this.patterns.length);
+			for (String pattern : this.patterns) {
+				this.pathPatterns.add(parser.parse(pattern));
+			}
+			this.pathContainers = new ArrayList<>(this.paths.length);
+			for (String path : this.paths) {
+				this.pathContainers.add(PathContainer.parsePath(path));
+			}
+			this.pathPatternIndex = new PathPatternIndex(this.pathPatterns);
+			this.antPathMatcher = new AntPathMatcher();
+		}
+	}
+
+	/**
+	 * Generated routes for {@code resourceCount} resources, with four routes each.
+	 */
+	@State(Scope.Benchmark)
+	public static class LargeRouteData {
+
+		@Param({"25", "250"})
+		public int resourceCount;
+
+		public List<String> patterns;
+
+		public List<String> paths;
+
+		public List<PathPattern> pathPatterns;
+
+		public List<PathContainer> pathContainers;
+
+		public PathPatternIndex pathPatternIndex;
+
+		public AntPathMatcher antPathMatcher;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.patterns = new ArrayList<>(this.resourceCount * 4);
+			for (int i = 0; i < this.resourceCount; i++) {
+				this.patterns.add("/api/resource" + i);
+				this.patterns.add("/api/resource" + i + "/{id}");
+				this.patterns.add("/api/resource" + i + "/{id}/items");
+				this.patterns.add("/api/resource" + i + "/{id}/items/{itemId}");
+			}
+			this.paths = new ArrayList<>();
+			for (int i = 0; i < this.resourceCount; i += Math.max(1, this.resourceCount / 10)) {
+				this.paths.add("/api/resource" + i + "/42/items/7");
+			}
+			this.paths.add("/api/unknown/42");
+
+			PathPatternParser parser = new PathPatternParser();
+			this.pathPatterns = new ArrayList<>(this.patterns.size());
+			for (String pattern : this.patterns) {
+				this.pathPatterns.add(parser.parse(pattern));
+			}
+			this.pathContainers = new ArrayList<>(this.paths.size());
+			for (String path : this.paths) {
+				this.pathContainers.add(PathContainer.parsePath(path));
+			}
+			this.pathPatternIndex = new PathPatternIndex(this.pathPatterns);
+			this.antPathMatcher = new AntPathMatcher();
+		}
+	}
+
+
+	@Benchmark
+	public void antPathMatcherMatch(RouteData data, Blackhole bh) {
+		for (String path : data.paths) {
+			for (String pattern : data.patterns) {
+				bh.consume(data.antPathMatcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void antPathMatcherExtractVariables(RouteData data, Blackhole bh) {
+		for (String path : data.paths) {
+			for (String pattern : data.patterns) {
+				if (data.antPathMatcher.match(pattern, path)) {
+					bh.consume(data.antPathMatcher.extractUriTemplateVariables(pattern, path));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternMatches(RouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			for (PathPattern pattern : data.pathPatterns) {
+				bh.consume(pattern.matches(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternMatchAndExtract(RouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			for (PathPattern pattern : data.pathPatterns) {
+				bh.consume(pattern.matchAndExtract(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternMatchesIncludingParsing(RouteData data, Blackhole bh) {
+		for (String path : data.paths) {
+			PathContainer container = PathContainer.parsePath(path);
+			for (PathPattern pattern : data.pathPatterns) {
+				bh.consume(pattern.matches(container));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternIndexMatches(RouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			bh.consume(data.pathPatternIndex.getMatchingPatterns(path));
+		}
+	}
+
+	@Benchmark
+	public void largeRouteSetAntPathMatcherFirstMatch(LargeRouteData data, Blackhole bh) {
+		for (String path : data.paths) {
+			for (String pattern : data.patterns) {
+				if (data.antPathMatcher.match(pattern, path)) {
+					bh.consume(pattern);
+					break;
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void largeRouteSetPathPatternFirstMatch(LargeRouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			for (PathPattern pattern : data.pathPatterns) {
+				if (pattern.matches(path)) {
+					bh.consume(pattern);
+					break;
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void largeRouteSetPathPatternIndexFirstMatch(LargeRouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			bh.consume(data.pathPatternIndex.getFirstMatchingPattern(path));
+		}
+	}
+
+	@Benchmark
+	public void largeRouteSetPathPatternIndexMatchAndExtract(LargeRouteData data, Blackhole bh) {
+		for (PathContainer path : data.pathContainers) {
+			PathPattern pattern = data.pathPatternIndex.getFirstMatchingPattern(path);
+			if (pattern != null) {
+				bh.consume(pattern.matchAndExtract(path));
+			}
+		}
+	}
+
+}
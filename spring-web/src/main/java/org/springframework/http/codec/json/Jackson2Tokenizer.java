@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.http.codec.json;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -37,18 +38,21 @@ import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 
 /**
  * {@link Function} to transform a JSON stream of arbitrary size, byte array
  * chunks into a {@code Flux<TokenBuffer>} where each token buffer is a
- * well-formed JSON object.
+ * well-formed JSON object, or into a {@code Flux} of the values read from
+ * each token buffer as soon as it is complete.
  *
  * @author Arjen Poutsma
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 5.0
+ * @param <T> the type of values emitted for each token buffer
  */
-final class Jackson2Tokenizer {
+final class Jackson2Tokenizer<T> {
 
 	private final JsonParser parser;
 
@@ -56,8 +60,12 @@ final class Jackson2Tokenizer {
 
 	private final boolean tokenizeArrayElements;
 
+	private final Function<TokenBuffer, T> tokenBufferReader;
+
 	private TokenBuffer tokenBuffer;
 
+	private boolean tokenBufferCompleted;
+
 	private int objectDepth;
 
 	private int arrayDepth;
@@ -73,27 +81,24 @@ final class Jackson2Tokenizer {
 
 
 	private Jackson2Tokenizer(JsonParser parser, DeserializationContext deserializationContext,
-			boolean tokenizeArrayElements, int maxInMemorySize) {
+			boolean tokenizeArrayElements, int maxInMemorySize, Function<TokenBuffer, T> tokenBufferReader) {
 
 		this.parser = parser;
 		this.deserializationContext = deserializationContext;
 		this.tokenizeArrayElements = tokenizeArrayElements;
+		this.tokenBufferReader = tokenBufferReader;
 		this.tokenBuffer = new TokenBuffer(parser, deserializationContext);
 		this.inputFeeder = (ByteArrayFeeder) this.parser.getNonBlockingInputFeeder();
 		this.maxInMemorySize = maxInMemorySize;
 	}
 
 
-	private List<TokenBuffer> tokenize(DataBuffer dataBuffer) {
+	private List<T> tokenize(DataBuffer dataBuffer) {
 		int bufferSize = dataBuffer.readableByteCount();
-		byte[] bytes = new byte[bufferSize];
-		dataBuffer.read(bytes);
-		DataBufferUtils.release(dataBuffer);
-
 		try {
-			this.inputFeeder.feedInput(bytes, 0, bytes.length);
-			List<TokenBuffer> result = parseTokenBufferFlux();
-			assertInMemorySize(bufferSize, result);
+			feedInput(dataBuffer);
+			List<T> result = parseTokenBufferFlux();
+			assertInMemorySize(bufferSize);
 			return result;
 		}
 		catch (JsonProcessingException ex) {
@@ -102,9 +107,26 @@ final class Jackson2Tokenizer {
 		catch (IOException ex) {
 			throw Exceptions.propagate(ex);
 		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
+		}
 	}
 
-	private Flux<TokenBuffer> endOfInput() {
+	private void feedInput(DataBuffer dataBuffer) throws IOException {
+		ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+		if (byteBuffer.hasArray() && !(dataBuffer instanceof PooledDataBuffer)) {
+			// The array is not recycled: the parser may hold on to it without a copy
+			int offset = byteBuffer.arrayOffset() + byteBuffer.position();
+			this.inputFeeder.feedInput(byteBuffer.array(), offset, offset + byteBuffer.remaining());
+		}
+		else {
+			byte[] bytes = new byte[byteBuffer.remaining()];
+			byteBuffer.get(bytes);
+			this.inputFeeder.feedInput(bytes, 0, bytes.length);
+		}
+	}
+
+	private Flux<T> endOfInput() {
 		return Flux.defer(() -> {
 			this.inputFeeder.endOfInput();
 			try {
@@ -119,8 +141,8 @@ final class Jackson2Tokenizer {
 		});
 	}
 
-	private List<TokenBuffer> parseTokenBufferFlux() throws IOException {
-		List<TokenBuffer> result = new ArrayList<>();
+	private List<T> parseTokenBufferFlux() throws IOException {
+		List<T> result = new ArrayList<>();
 
 		// SPR-16151: Smile data format uses null to separate documents
 		boolean previousNull = false;
@@ -162,25 +184,33 @@ final class Jackson2Tokenizer {
 		}
 	}
 
-	private void processTokenNormal(JsonToken token, List<TokenBuffer> result) throws IOException {
+	private void processTokenNormal(JsonToken token, List<T> result) throws IOException {
 		this.tokenBuffer.copyCurrentEvent(this.parser);
 
 		if ((token.isStructEnd() || token.isScalarValue()) && this.objectDepth == 0 && this.arrayDepth == 0) {
-			result.add(this.tokenBuffer);
-			this.tokenBuffer = new TokenBuffer(this.parser, this.deserializationContext);
+			completeTokenBuffer(result);
 		}
 
 	}
 
-	private void processTokenArray(JsonToken token, List<TokenBuffer> result) throws IOException {
+	private void processTokenArray(JsonToken token, List<T> result) throws IOException {
 		if (!isTopLevelArrayToken(token)) {
 			this.tokenBuffer.copyCurrentEvent(this.parser);
 		}
 
 		if (this.objectDepth == 0 && (this.arrayDepth == 0 || this.arrayDepth == 1) &&
 				(token == JsonToken.END_OBJECT || token.isScalarValue())) {
-			result.add(this.tokenBuffer);
-			this.tokenBuffer = new TokenBuffer(this.parser, this.deserializationContext);
+			completeTokenBuffer(result);
+		}
+	}
+
+	private void completeTokenBuffer(List<T> result) {
+		TokenBuffer tokenBuffer = this.tokenBuffer;
+		this.tokenBuffer = new TokenBuffer(this.parser, this.deserializationContext);
+		this.tokenBufferCompleted = true;
+		T value = this.tokenBufferReader.apply(tokenBuffer);
+		if (value != null) {
+			result.add(value);
 		}
 	}
 
@@ -189,9 +219,11 @@ final class Jackson2Tokenizer {
 				(token == JsonToken.END_ARRAY && this.arrayDepth == 0));
 	}
 
-	private void assertInMemorySize(int currentBufferSize, List<TokenBuffer> result) {
+	private void assertInMemorySize(int currentBufferSize) {
+		boolean tokenBufferCompleted = this.tokenBufferCompleted;
+		this.tokenBufferCompleted = false;
 		if (this.maxInMemorySize >= 0) {
-			if (!result.isEmpty()) {
+			if (tokenBufferCompleted) {
 				this.byteCount = 0;
 			}
 			else if (currentBufferSize > Integer.MAX_VALUE - this.byteCount) {
@@ -224,6 +256,28 @@ final class Jackson2Tokenizer {
 	public static Flux<TokenBuffer> tokenize(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
 			ObjectMapper objectMapper, boolean tokenizeArrays, int maxInMemorySize) {
 
+		return tokenize(dataBuffers, jsonFactory, objectMapper, tokenizeArrays, maxInMemorySize, Function.identity());
+	}
+
+	/**
+	 * Variant of {@link #tokenize(Flux, JsonFactory, ObjectMapper, boolean, int)}
+	 * that hands each token buffer to the given function as soon as it is
+	 * complete, rather than collecting the token buffers of a data buffer for
+	 * downstream processing. The next data buffer is requested only after the
+	 * values of the current one have been consumed.
+	 * @param dataBuffers the source data buffers
+	 * @param jsonFactory the factory to use
+	 * @param objectMapper the current mapper instance
+	 * @param tokenizeArrays if {@code true} and the "top level" JSON object is
+	 * an array, each element is read individually immediately after it is received
+	 * @param tokenBufferReader the function to read a value from a token buffer
+	 * with, possibly returning {@code null} for no value
+	 * @return the values read from the token buffers
+	 */
+	public static <T> Flux<T> tokenize(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
+			ObjectMapper objectMapper, boolean tokenizeArrays, int maxInMemorySize,
+			Function<TokenBuffer, T> tokenBufferReader) {
+
 		try {
 			JsonParser parser = jsonFactory.createNonBlockingByteArrayParser();
 			DeserializationContext context = objectMapper.getDeserializationContext();
@@ -231,8 +285,9 @@ final class Jackson2Tokenizer {
 				context = ((DefaultDeserializationContext) context).createInstance(
 						objectMapper.getDeserializationConfig(), parser, objectMapper.getInjectableValues());
 			}
-			Jackson2Tokenizer tokenizer = new Jackson2Tokenizer(parser, context, tokenizeArrays, maxInMemorySize);
-			return dataBuffers.concatMapIterable(tokenizer::tokenize).concatWith(tokenizer.endOfInput());
+			Jackson2Tokenizer<T> tokenizer =
+					new Jackson2Tokenizer<>(parser, context, tokenizeArrays, maxInMemorySize, tokenBufferReader);
+			return dataBuffers.concatMapIterable(tokenizer::tokenize, 1).concatWith(tokenizer.endOfInput());
 		}
 		catch (IOException ex) {
 			return Flux.error(ex);
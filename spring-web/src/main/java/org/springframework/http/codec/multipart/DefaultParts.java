@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+
+/**
+ * Default implementations of {@link Part} and subtypes, as created by
+ * {@link DefaultPartHttpMessageReader}.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ */
+abstract class DefaultParts {
+
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private static final int FILE_BUFFER_SIZE = 8192;
+
+
+	/**
+	 * Create a new {@link FormFieldPart} with the given parameters.
+	 * @param headers the part headers
+	 * @param value the form field value
+	 * @return the created part
+	 */
+	public static FormFieldPart formFieldPart(HttpHeaders headers, String value) {
+		Assert.notNull(headers, "Headers must not be null");
+		Assert.notNull(value, "Value must not be null");
+		return new DefaultFormFieldPart(headers, value);
+	}
+
+	/**
+	 * Create a new {@link Part} or {@link FilePart} with the given parameters.
+	 * Returns {@link FilePart} if the {@code Content-Disposition} of the given
+	 * headers contains a filename, or a "normal" {@link Part} otherwise.
+	 * @param headers the part headers
+	 * @param content the content of the part, which can be consumed repeatedly
+	 * @return {@link Part} or {@link FilePart}, depending on {@link HttpHeaders#getContentDisposition()}
+	 */
+	public static Part part(HttpHeaders headers, byte[] content) {
+		Assert.notNull(headers, "Headers must not be null");
+		Assert.notNull(content, "Content must not be null");
+		return partInternal(headers, new BytesContent(content));
+	}
+
+	/**
+	 * Create a new {@link Part} or {@link FilePart} based on a temporary file.
+	 * The file is deleted once its content has been read, or moved to the
+	 * destination of {@link FilePart#transferTo(Path)}.
+	 * @param headers the part headers
+	 * @param file the file containing the content of the part
+	 * @param scheduler the scheduler to use for blocking file operations
+	 * @return {@link Part} or {@link FilePart}, depending on {@link HttpHeaders#getContentDisposition()}
+	 */
+	public static Part part(HttpHeaders headers, Path file, Scheduler scheduler) {
+		Assert.notNull(headers, "Headers must not be null");
+		Assert.notNull(file, "File must not be null");
+		Assert.notNull(scheduler, "Scheduler must not be null");
+		return partInternal(headers, new FileContent(file, scheduler));
+	}
+
+	/**
+	 * Discard the given part, i.e. delete its temporary file, if any.
+	 * Used for parts that are dropped before reaching a subscriber.
+	 * @param part the part to discard
+	 */
+	public static void discard(Part part) {
+		if (part instanceof DefaultPart) {
+			((DefaultPart) part).content.discard();
+		}
+	}
+
+	private static Part partInternal(HttpHeaders headers, Content content) {
+		String filename = headers.getContentDisposition().getFilename();
+		if (filename != null) {
+			return new DefaultFilePart(headers, filename, content);
+		}
+		else {
+			return new DefaultPart(headers, content);
+		}
+	}
+
+
+	/**
+	 * Abstract base class.
+	 */
+	private abstract static class AbstractPart implements Part {
+
+		private final HttpHeaders headers;
+
+		protected AbstractPart(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		@Override
+		public String name() {
+			String name = this.headers.getContentDisposition().getName();
+			Assert.state(name != null, "No name available");
+			return name;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+	}
+
+
+	/**
+	 * Default implementation of {@link FormFieldPart}.
+	 */
+	private static class DefaultFormFieldPart extends AbstractPart implements FormFieldPart {
+
+		private final String value;
+
+		public DefaultFormFieldPart(HttpHeaders headers, String value) {
+			super(headers);
+			this.value = value;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> {
+				byte[] bytes = this.value.getBytes(MultipartUtils.charset(headers()));
+				return Flux.just(bufferFactory.wrap(bytes));
+			});
+		}
+
+		@Override
+		public String value() {
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			String name = headers().getContentDisposition().getName();
+			if (name != null) {
+				return "DefaultFormFieldPart{" + name + "}";
+			}
+			else {
+				return "DefaultFormFieldPart";
+			}
+		}
+	}
+
+
+	/**
+	 * Default implementation of {@link Part}.
+	 */
+	private static class DefaultPart extends AbstractPart {
+
+		protected final Content content;
+
+		public DefaultPart(HttpHeaders headers, Content content) {
+			super(headers);
+			this.content = content;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return this.content.content();
+		}
+
+		@Override
+		public String toString() {
+			String name = headers().getContentDisposition().getName();
+			if (name != null) {
+				return "DefaultPart{" + name + "}";
+			}
+			else {
+				return "DefaultPart";
+			}
+		}
+	}
+
+
+	/**
+	 * Default implementation of {@link FilePart}.
+	 */
+	private static final class DefaultFilePart extends DefaultPart implements FilePart {
+
+		private final String filename;
+
+		public DefaultFilePart(HttpHeaders headers, String filename, Content content) {
+			super(headers, content);
+			this.filename = filename;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return this.content.transferTo(dest);
+		}
+
+		@Override
+		public String toString() {
+			String name = headers().getContentDisposition().getName();
+			if (name != null) {
+				return "DefaultFilePart{" + name + " (" + this.filename + ")}";
+			}
+			else {
+				return "DefaultFilePart{(" + this.filename + ")}";
+			}
+		}
+	}
+
+
+	/**
+	 * Part content abstraction.
+	 */
+	private interface Content {
+
+		Flux<DataBuffer> content();
+
+		Mono<Void> transferTo(Path dest);
+
+		void discard();
+	}
+
+
+	/**
+	 * {@code Content} implementation based on a byte array, wrapped into a
+	 * new (unpooled) data buffer for every subscription.
+	 */
+	private static final class BytesContent implements Content {
+
+		private final byte[] content;
+
+		public BytesContent(byte[] content) {
+			this.content = content;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> Flux.just(bufferFactory.wrap(this.content)));
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return DataBufferUtils.write(content(), dest);
+		}
+
+		@Override
+		public void discard() {
+		}
+	}
+
+
+	/**
+	 * {@code Content} implementation based on a temporary file.
+	 */
+	private static final class FileContent implements Content {
+
+		private final Path file;
+
+		private final Scheduler scheduler;
+
+		public FileContent(Path file, Scheduler scheduler) {
+			this.file = file;
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return DataBufferUtils.readAsynchronousFileChannel(
+					() -> AsynchronousFileChannel.open(this.file, StandardOpenOption.READ),
+					bufferFactory, FILE_BUFFER_SIZE)
+					.doFinally(signalType -> this.scheduler.schedule(() -> MultipartUtils.deleteFile(this.file)));
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return Mono.fromCallable(() -> Files.move(this.file, dest, StandardCopyOption.REPLACE_EXISTING))
+					.subscribeOn(this.scheduler)
+					.then();
+		}
+
+		@Override
+		public void discard() {
+			this.scheduler.schedule(() -> MultipartUtils.deleteFile(this.file));
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+/**
+ * Various static utility methods for dealing with multipart parsing.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ */
+abstract class MultipartUtils {
+
+	/**
+	 * Return the character set of the given headers, as defined in the
+	 * {@link HttpHeaders#getContentType()} header, or UTF-8 if not defined.
+	 */
+	public static Charset charset(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		if (contentType != null) {
+			Charset charset = contentType.getCharset();
+			if (charset != null) {
+				return charset;
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Return the multipart boundary of the given headers, or {@code null}
+	 * if the {@code Content-Type} does not declare one.
+	 */
+	@Nullable
+	public static byte[] boundary(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		if (contentType != null) {
+			String boundary = contentType.getParameter("boundary");
+			if (boundary != null) {
+				int length = boundary.length();
+				if (length > 2 && boundary.charAt(0) == '"' && boundary.charAt(length - 1) == '"') {
+					boundary = boundary.substring(1, length - 1);
+				}
+				return boundary.getBytes(StandardCharsets.ISO_8859_1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Concatenates the given array of byte arrays.
+	 */
+	public static byte[] concat(byte[]... byteArrays) {
+		int length = 0;
+		for (byte[] byteArray : byteArrays) {
+			length += byteArray.length;
+		}
+		byte[] result = new byte[length];
+		length = 0;
+		for (byte[] byteArray : byteArrays) {
+			System.arraycopy(byteArray, 0, result, length, byteArray.length);
+			length += byteArray.length;
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes the given buffers into a string, and releases them. Used for
+	 * headers and form field values, the size of which is limited.
+	 */
+	public static String toString(List<DataBuffer> buffers, Charset charset) {
+		return new String(toByteArray(buffers), charset);
+	}
+
+	/**
+	 * Copies the given buffers into a byte array, and releases them. Used for
+	 * content kept in memory, the size of which is limited.
+	 */
+	public static byte[] toByteArray(List<DataBuffer> buffers) {
+		int length = 0;
+		for (DataBuffer buffer : buffers) {
+			length += buffer.readableByteCount();
+		}
+		byte[] bytes = new byte[length];
+		length = 0;
+		for (DataBuffer buffer : buffers) {
+			int count = buffer.readableByteCount();
+			buffer.read(bytes, length, count);
+			length += count;
+			DataBufferUtils.release(buffer);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Slices the given buffer from the byte after the given index up to its
+	 * write position. The returned slice is retained, so the caller remains
+	 * responsible for releasing the given buffer.
+	 */
+	public static DataBuffer sliceFrom(DataBuffer buf, int idx) {
+		int pos = idx + 1;
+		return buf.retainedSlice(pos, buf.writePosition() - pos);
+	}
+
+	/**
+	 * Slices the given buffer from its read position up to and including the
+	 * given index. The returned slice is retained, so the caller remains
+	 * responsible for releasing the given buffer.
+	 */
+	public static DataBuffer sliceTo(DataBuffer buf, int idx) {
+		int pos = buf.readPosition();
+		return buf.retainedSlice(pos, idx - pos + 1);
+	}
+
+	/**
+	 * Indicate whether the given part headers denote a form field, i.e.
+	 * a part without filename and with either no or a plain text content type.
+	 */
+	public static boolean isFormField(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		return (contentType == null || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(contentType)) &&
+				headers.getContentDisposition().getFilename() == null;
+	}
+
+	public static void closeChannel(Channel channel) {
+		try {
+			if (channel.isOpen()) {
+				channel.close();
+			}
+		}
+		catch (IOException ignore) {
+		}
+	}
+
+	public static void deleteFile(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ignore) {
+		}
+	}
+
+}
@@ -0,0 +1,660 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Subscribes to a token stream (i.e. the result of
+ * {@link MultipartParser#parse(Flux, byte[], int, java.nio.charset.Charset)}),
+ * and produces a flux of {@link Part} objects.
+ *
+ * <p>Form fields are kept in memory. Other parts are kept in memory until
+ * they exceed the in-memory limit, at which point they are written to a
+ * temporary file through an {@link AsynchronousFileChannel}. Content kept in
+ * memory is copied out of the parser's buffers once the part is complete,
+ * so that no pooled buffers are held by parts that may never be read. Tokens are
+ * requested one at a time, so that the parser is only asked for more input
+ * once the previous write has completed.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ */
+final class PartGenerator extends BaseSubscriber<MultipartParser.Token> {
+
+	private static final Log logger = LogFactory.getLog(PartGenerator.class);
+
+
+	private final AtomicReference<State> state = new AtomicReference<>(new InitialState());
+
+	private final AtomicInteger partCount = new AtomicInteger();
+
+	private final AtomicBoolean requestOutstanding = new AtomicBoolean();
+
+	private final FluxSink<Part> sink;
+
+	private final int maxParts;
+
+	private final int maxInMemorySize;
+
+	private final long maxDiskUsagePerPart;
+
+	private final Mono<Path> fileStorageDirectory;
+
+	private final Scheduler blockingOperationScheduler;
+
+
+	private PartGenerator(FluxSink<Part> sink, int maxParts, int maxInMemorySize, long maxDiskUsagePerPart,
+			Mono<Path> fileStorageDirectory, Scheduler blockingOperationScheduler) {
+
+		this.sink = sink;
+		this.maxParts = maxParts;
+		this.maxInMemorySize = maxInMemorySize;
+		this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+		this.fileStorageDirectory = fileStorageDirectory;
+		this.blockingOperationScheduler = blockingOperationScheduler;
+	}
+
+
+	/**
+	 * Creates parts from the given stream of tokens. Parts that are discarded
+	 * before reaching the subscriber, e.g. because it cancelled, have their
+	 * temporary files deleted.
+	 */
+	public static Flux<Part> createParts(Flux<MultipartParser.Token> tokens, int maxParts, int maxInMemorySize,
+			long maxDiskUsagePerPart, Mono<Path> fileStorageDirectory, Scheduler blockingOperationScheduler) {
+
+		return Flux.<Part>create(sink -> {
+			PartGenerator generator = new PartGenerator(sink, maxParts, maxInMemorySize, maxDiskUsagePerPart,
+					fileStorageDirectory, blockingOperationScheduler);
+			sink.onCancel(generator::onSinkCancel);
+			sink.onRequest(l -> generator.tryRequestToken());
+			tokens.doOnDiscard(MultipartParser.BodyToken.class, token -> DataBufferUtils.release(token.buffer()))
+					.subscribe(generator);
+		})
+				.doOnDiscard(Part.class, DefaultParts::discard);
+	}
+
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		tryRequestToken();
+	}
+
+	@Override
+	protected void hookOnNext(MultipartParser.Token token) {
+		State currentState = this.state.get();
+		if (currentState == DisposedState.INSTANCE) {
+			if (token instanceof MultipartParser.BodyToken) {
+				DataBufferUtils.release(token.buffer());
+			}
+		}
+		else if (token instanceof MultipartParser.HeadersToken) {
+			currentState.partComplete();
+			if (tooManyParts()) {
+				emitError(new DecodingException("Too many parts (" + this.partCount.get() + "/" +
+						this.maxParts + " allowed)"));
+			}
+			else {
+				newPart(currentState, token.headers());
+				requestToken();
+			}
+		}
+		else {
+			currentState.body(token.buffer());
+		}
+	}
+
+	private void newPart(State currentState, HttpHeaders headers) {
+		if (MultipartUtils.isFormField(headers)) {
+			changeState(currentState, new FormFieldState(headers));
+		}
+		else {
+			changeState(currentState, new InMemoryState(headers));
+		}
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		this.state.get().onComplete();
+	}
+
+	@Override
+	protected void hookOnError(Throwable throwable) {
+		State oldState = this.state.getAndSet(DisposedState.INSTANCE);
+		oldState.dispose();
+		this.sink.error(throwable);
+	}
+
+	private void onSinkCancel() {
+		State oldState = this.state.getAndSet(DisposedState.INSTANCE);
+		oldState.dispose();
+		cancel();
+	}
+
+	boolean changeState(State oldState, State newState) {
+		if (this.state.compareAndSet(oldState, newState)) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Changed state: " + oldState + " -> " + newState);
+			}
+			return true;
+		}
+		else {
+			newState.dispose();
+			return false;
+		}
+	}
+
+	void emitPart(Part part) {
+		if (logger.isTraceEnabled()) {
+			logger.trace("Emitting: " + part);
+		}
+		this.sink.next(part);
+	}
+
+	void emitComplete() {
+		this.sink.complete();
+	}
+
+	void emitError(Throwable t) {
+		State oldState = this.state.getAndSet(DisposedState.INSTANCE);
+		oldState.dispose();
+		cancel();
+		this.sink.error(t);
+	}
+
+	/**
+	 * Signals that the current token has been processed, and requests the
+	 * next one if there is demand.
+	 */
+	void requestToken() {
+		this.requestOutstanding.set(false);
+		tryRequestToken();
+	}
+
+	private void tryRequestToken() {
+		if (upstream() != null && !this.sink.isCancelled() && this.sink.requestedFromDownstream() > 0 &&
+				this.requestOutstanding.compareAndSet(false, true)) {
+			request(1);
+		}
+	}
+
+	private boolean tooManyParts() {
+		int count = this.partCount.incrementAndGet();
+		return (this.maxParts > 0 && count > this.maxParts);
+	}
+
+
+	/**
+	 * Represents the internal state of the {@link PartGenerator} for
+	 * creating a single {@link Part}. {@link State} instances are stateful,
+	 * and created when a new {@link MultipartParser.HeadersToken} is accepted
+	 * (see {@link #newPart(State, HttpHeaders)}).
+	 * The following rules determine which state the generator is in:
+	 * <ul>
+	 * <li>If the part is a {@linkplain MultipartUtils#isFormField(HttpHeaders) form field},
+	 * the generator is in the {@link FormFieldState}.</li>
+	 * <li>Otherwise the generator is in the {@link InMemoryState}. When the
+	 * part exceeds the in-memory limit, the generator switches to the
+	 * {@link CreateFileState}, and subsequently the {@link WritingFileState}.</li>
+	 * </ul>
+	 */
+	private interface State {
+
+		/**
+		 * Invoked when a {@link MultipartParser.BodyToken} is received.
+		 */
+		void body(DataBuffer dataBuffer);
+
+		/**
+		 * Invoked when the part is complete, i.e. when the next
+		 * {@link MultipartParser.HeadersToken} is received.
+		 */
+		void partComplete();
+
+		/**
+		 * Invoked when all tokens have been received.
+		 */
+		void onComplete();
+
+		/**
+		 * Invoked when the state is left abnormally, to clean up resources.
+		 */
+		default void dispose() {
+		}
+	}
+
+
+	/**
+	 * The initial state of the generator, before any headers are received.
+	 */
+	private final class InitialState implements State {
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			DataBufferUtils.release(dataBuffer);
+			emitError(new IllegalStateException("Body token not expected"));
+		}
+
+		@Override
+		public void partComplete() {
+		}
+
+		@Override
+		public void onComplete() {
+			emitComplete();
+		}
+
+		@Override
+		public String toString() {
+			return "INITIAL";
+		}
+	}
+
+
+	/**
+	 * The state of the generator when the current part is a form field.
+	 * Body buffers are kept in memory, limited by {@link #maxInMemorySize},
+	 * and turned into a string once the part is complete.
+	 */
+	private final class FormFieldState implements State {
+
+		private final HttpHeaders headers;
+
+		private final Queue<DataBuffer> content = new ConcurrentLinkedQueue<>();
+
+		private long byteCount;
+
+		public FormFieldState(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			this.byteCount += dataBuffer.readableByteCount();
+			if (maxInMemorySize == -1 || this.byteCount <= maxInMemorySize) {
+				this.content.add(dataBuffer);
+				requestToken();
+			}
+			else {
+				DataBufferUtils.release(dataBuffer);
+				emitError(new DataBufferLimitException("Form field value exceeded the memory usage limit of " +
+						maxInMemorySize + " bytes"));
+			}
+		}
+
+		@Override
+		public void partComplete() {
+			String value = MultipartUtils.toString(drain(this.content), MultipartUtils.charset(this.headers));
+			emitPart(DefaultParts.formFieldPart(this.headers, value));
+		}
+
+		@Override
+		public void onComplete() {
+			partComplete();
+			emitComplete();
+		}
+
+		@Override
+		public void dispose() {
+			drain(this.content).forEach(DataBufferUtils::release);
+		}
+
+		@Override
+		public String toString() {
+			return "FORM-FIELD";
+		}
+	}
+
+
+	/**
+	 * The state of the generator when the current part is not a form field,
+	 * and its content still fits in memory. Body buffers are kept as they
+	 * come from the parser, and copied into a byte array once the part is
+	 * complete. When the content exceeds {@link #maxInMemorySize}, switches
+	 * to {@link CreateFileState}.
+	 */
+	private final class InMemoryState implements State {
+
+		private final HttpHeaders headers;
+
+		private final Queue<DataBuffer> content = new ConcurrentLinkedQueue<>();
+
+		private long byteCount;
+
+		public InMemoryState(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			this.byteCount += dataBuffer.readableByteCount();
+			this.content.add(dataBuffer);
+			if (maxInMemorySize == -1 || this.byteCount <= maxInMemorySize) {
+				requestToken();
+			}
+			else if (maxDiskUsagePerPart > 0 && this.byteCount > maxDiskUsagePerPart) {
+				emitError(diskUsageExceeded());
+			}
+			else {
+				CreateFileState newState = new CreateFileState(this.headers, drain(this.content));
+				if (changeState(this, newState)) {
+					newState.createFile();
+				}
+			}
+		}
+
+		@Override
+		public void partComplete() {
+			byte[] bytes = MultipartUtils.toByteArray(drain(this.content));
+			emitPart(DefaultParts.part(this.headers, bytes));
+		}
+
+		@Override
+		public void onComplete() {
+			partComplete();
+			emitComplete();
+		}
+
+		@Override
+		public void dispose() {
+			drain(this.content).forEach(DataBufferUtils::release);
+		}
+
+		@Override
+		public String toString() {
+			return "IN-MEMORY";
+		}
+	}
+
+
+	/**
+	 * The state of the generator while the temporary file for the current
+	 * part is being created. No tokens are requested in this state; buffers
+	 * already received are kept until they can be written.
+	 */
+	private final class CreateFileState implements State {
+
+		private final HttpHeaders headers;
+
+		private final Queue<DataBuffer> content;
+
+		private volatile boolean completed;
+
+		public CreateFileState(HttpHeaders headers, List<DataBuffer> content) {
+			this.headers = headers;
+			this.content = new ConcurrentLinkedQueue<>(content);
+		}
+
+		public void createFile() {
+			fileStorageDirectory
+					.map(this::createFileState)
+					.subscribeOn(blockingOperationScheduler)
+					.subscribe(this::fileCreated, PartGenerator.this::emitError);
+		}
+
+		private WritingFileState createFileState(Path directory) {
+			try {
+				Path file = Files.createTempFile(directory, null, ".multipart");
+				if (logger.isTraceEnabled()) {
+					logger.trace("Storing multipart data in file " + file);
+				}
+				AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE);
+				return new WritingFileState(this.headers, file, channel);
+			}
+			catch (IOException ex) {
+				throw new DecodingException("Could not store multipart data in temporary file", ex);
+			}
+		}
+
+		private void fileCreated(WritingFileState newState) {
+			if (changeState(this, newState)) {
+				List<DataBuffer> buffers = drain(this.content);
+				if (this.completed) {
+					newState.completed = true;
+				}
+				newState.writeBuffers(buffers);
+			}
+		}
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			DataBufferUtils.release(dataBuffer);
+			emitError(new IllegalStateException("Body token not expected"));
+		}
+
+		@Override
+		public void partComplete() {
+			emitError(new IllegalStateException("Headers token not expected"));
+		}
+
+		@Override
+		public void onComplete() {
+			this.completed = true;
+			State current = state.get();
+			if (current != this) {
+				current.onComplete();
+			}
+		}
+
+		@Override
+		public void dispose() {
+			drain(this.content).forEach(DataBufferUtils::release);
+		}
+
+		@Override
+		public String toString() {
+			return "CREATE-FILE";
+		}
+	}
+
+
+	/**
+	 * The state of the generator when the current part is stored in a
+	 * temporary file. Each body buffer is written with the asynchronous file
+	 * channel, and the next token is requested once the write is complete.
+	 */
+	private final class WritingFileState implements State {
+
+		private final HttpHeaders headers;
+
+		private final Path file;
+
+		private final AsynchronousFileChannel channel;
+
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		private volatile long position;
+
+		private volatile boolean writing = true;
+
+		private volatile boolean completed;
+
+		public WritingFileState(HttpHeaders headers, Path file, AsynchronousFileChannel channel) {
+			this.headers = headers;
+			this.file = file;
+			this.channel = channel;
+		}
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			long count = this.position + dataBuffer.readableByteCount();
+			if (maxDiskUsagePerPart > 0 && count > maxDiskUsagePerPart) {
+				DataBufferUtils.release(dataBuffer);
+				emitError(diskUsageExceeded());
+				return;
+			}
+			List<DataBuffer> buffers = new ArrayList<>(1);
+			buffers.add(dataBuffer);
+			this.writing = true;
+			writeBuffers(buffers);
+		}
+
+		void writeBuffers(List<DataBuffer> buffers) {
+			if (buffers.isEmpty()) {
+				writeComplete();
+				return;
+			}
+			DataBuffer dataBuffer = buffers.remove(0);
+			ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+			CompletionHandler<Integer, ByteBuffer> handler = new CompletionHandler<Integer, ByteBuffer>() {
+				@Override
+				public void completed(Integer written, ByteBuffer attachment) {
+					position += written;
+					if (attachment.hasRemaining()) {
+						channel.write(attachment, position, attachment, this);
+					}
+					else {
+						DataBufferUtils.release(dataBuffer);
+						writeBuffers(buffers);
+					}
+				}
+				@Override
+				public void failed(Throwable ex, ByteBuffer attachment) {
+					DataBufferUtils.release(dataBuffer);
+					buffers.forEach(DataBufferUtils::release);
+					emitError(new DecodingException("Could not write multipart data to " + file, ex));
+				}
+			};
+			try {
+				this.channel.write(byteBuffer, this.position, byteBuffer, handler);
+			}
+			catch (RuntimeException ex) {
+				handler.failed(ex, byteBuffer);
+			}
+		}
+
+		private void writeComplete() {
+			this.writing = false;
+			if (this.completed) {
+				finish(true);
+			}
+			else {
+				requestToken();
+			}
+		}
+
+		@Override
+		public void partComplete() {
+			finish(false);
+		}
+
+		@Override
+		public void onComplete() {
+			this.completed = true;
+			if (!this.writing) {
+				finish(true);
+			}
+		}
+
+		private void finish(boolean lastPart) {
+			if (this.finished.compareAndSet(false, true)) {
+				MultipartUtils.closeChannel(this.channel);
+				emitPart(DefaultParts.part(this.headers, this.file, blockingOperationScheduler));
+				if (lastPart) {
+					emitComplete();
+				}
+			}
+		}
+
+		@Override
+		public void dispose() {
+			MultipartUtils.closeChannel(this.channel);
+			if (!this.finished.get()) {
+				blockingOperationScheduler.schedule(() -> MultipartUtils.deleteFile(this.file));
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "WRITE-FILE";
+		}
+	}
+
+
+	/**
+	 * The state of the generator when finished, either normally or due to an error.
+	 */
+	private static final class DisposedState implements State {
+
+		public static final DisposedState INSTANCE = new DisposedState();
+
+		private DisposedState() {
+		}
+
+		@Override
+		public void body(DataBuffer dataBuffer) {
+			DataBufferUtils.release(dataBuffer);
+		}
+
+		@Override
+		public void partComplete() {
+		}
+
+		@Override
+		public void onComplete() {
+		}
+
+		@Override
+		public String toString() {
+			return "DISPOSED";
+		}
+	}
+
+
+	private DecodingException diskUsageExceeded() {
+		return new DecodingException("Part exceeded the disk usage limit of " + this.maxDiskUsagePerPart + " bytes");
+	}
+
+	private static List<DataBuffer> drain(Queue<DataBuffer> queue) {
+		List<DataBuffer> result = new ArrayList<>(queue.size());
+		DataBuffer buffer;
+		while ((buffer = queue.poll()) != null) {
+			result.add(buffer);
+		}
+		return result;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -118,6 +118,14 @@ class LiteralPathElement extends PathElement {
 		return this.text;
 	}
 
+	/**
+	 * Whether this literal is matched case-sensitively. If not, the text
+	 * returned from {@link #getChars()} is in lower case.
+	 */
+	public boolean isCaseSensitive() {
+		return this.caseSensitive;
+	}
+
 
 	@Override
 	public String toString() {
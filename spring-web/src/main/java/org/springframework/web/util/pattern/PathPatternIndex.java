@@ -0,0 +1,267 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.PathContainer.Element;
+import org.springframework.http.server.PathContainer.PathSegment;
+import org.springframework.http.server.PathContainer.Separator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Index over a fixed collection of {@link PathPattern PathPatterns} that finds
+ * the patterns matching a given path without matching each of them in turn.
+ *
+ * <p>The patterns are compiled into a tree keyed by the literal path segments
+ * they start with, so that literal segments shared by many patterns, such as
+ * {@code "/api/users"} in {@code "/api/users/{id}"} and
+ * {@code "/api/users/{id}/orders"}, are compared once in a single walk over
+ * the path. Only the patterns whose literal prefix matches are then matched in
+ * full, which preserves the exact semantics of {@link PathPattern#matches}.
+ * Each node holds the sorted indexes of the patterns to match when the walk
+ * ends at that node, so a lookup does not need to collect them per request.
+ *
+ * <p>Once created, an index is immutable and safe for concurrent use.
+ *
+ * @author Performance Team
+ * @since 5.2.3
+ * @see PathPattern#matches(PathContainer)
+ */
+public class PathPatternIndex {
+
+	private static final int[] EMPTY_CANDIDATES = new int[0];
+
+
+	private final List<PathPattern> patterns;
+
+	private final Node root = new Node();
+
+
+	/**
+	 * Create an index over the given patterns.
+	 * @param patterns the patterns to index, in the order in which matches
+	 * are to be returned
+	 */
+	public PathPatternIndex(Collection<PathPattern> patterns) {
+		Assert.notNull(patterns, "Patterns must not be null");
+		this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+		for (int i = 0; i < this.patterns.size(); i++) {
+			Node node = this.root;
+			PathElement element = this.patterns.get(i).getHeadSection();
+			while (element instanceof SeparatorPathElement && element.next instanceof LiteralPathElement) {
+				LiteralPathElement literal = (LiteralPathElement) element.next;
+				node = node.getOrCreateChild(String.valueOf(literal.getChars()), literal.isCaseSensitive());
+				element = literal.next;
+			}
+			node.addPattern(i);
+		}
+		this.root.initCandidates(EMPTY_CANDIDATES);
+	}
+
+
+	/**
+	 * Return the indexed patterns, in their original order.
+	 */
+	public List<PathPattern> getPatterns() {
+		return this.patterns;
+	}
+
+	/**
+	 * Return all patterns that match the given path, in their original order.
+	 * @param path the path to match
+	 * @return the matching patterns, possibly empty
+	 */
+	public List<PathPattern> getMatchingPatterns(PathContainer path) {
+		List<PathPattern> result = null;
+		for (int candidate : getCandidates(path)) {
+			PathPattern pattern = this.patterns.get(candidate);
+			if (pattern.matches(path)) {
+				if (result == null) {
+					result = new ArrayList<>();
+				}
+				result.add(pattern);
+			}
+		}
+		return (result != null ? result : Collections.emptyList());
+	}
+
+	/**
+	 * Return the first pattern, in original order, that matches the given path.
+	 * @param path the path to match
+	 * @return the first matching pattern, or {@code null} if none matches
+	 */
+	@Nullable
+	public PathPattern getFirstMatchingPattern(PathContainer path) {
+		for (int candidate : getCandidates(path)) {
+			PathPattern pattern = this.patterns.get(candidate);
+			if (pattern.matches(path)) {
+				return pattern;
+			}
+		}
+		return null;
+	}
+
+	private int[] getCandidates(PathContainer path) {
+		return getCandidates(this.root, path.elements(), 0);
+	}
+
+	/**
+	 * Walk down the tree along the literal segments of the path, starting at
+	 * the given node, and return the candidates of the deepest node reached.
+	 */
+	private static int[] getCandidates(Node node, List<Element> elements, int index) {
+		while (index + 1 < elements.size() && elements.get(index) instanceof Separator) {
+			Element element = elements.get(index + 1);
+			if (!(element instanceof PathSegment)) {
+				break;
+			}
+			String value = ((PathSegment) element).valueToMatch();
+			Node child = (node.literals != null ? node.literals.get(value) : null);
+			Node lowerCaseChild = (node.lowerCaseLiterals != null ?
+					node.lowerCaseLiterals.get(toLowerCase(value)) : null);
+			if (child != null && lowerCaseChild != null) {
+				// Case-sensitive and case-insensitive patterns share this prefix
+				return merge(getCandidates(child, elements, index + 2),
+						getCandidates(lowerCaseChild, elements, index + 2));
+			}
+			Node next = (child != null ? child : lowerCaseChild);
+			if (next == null) {
+				break;
+			}
+			node = next;
+			index += 2;
+		}
+		return node.candidates;
+	}
+
+	/**
+	 * Merge the given sorted arrays of pattern indexes, without duplicates.
+	 */
+	private static int[] merge(int[] first, int[] second) {
+		int[] result = new int[first.length + second.length];
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < first.length || j < second.length) {
+			int value;
+			if (j == second.length || (i < first.length && first[i] <= second[j])) {
+				value = first[i++];
+			}
+			else {
+				value = second[j++];
+			}
+			if (count == 0 || result[count - 1] != value) {
+				result[count++] = value;
+			}
+		}
+		return (count < result.length ? Arrays.copyOf(result, count) : result);
+	}
+
+	/**
+	 * Lower-case the given value char by char, consistent with the
+	 * case-insensitive comparison in {@link LiteralPathElement}.
+	 */
+	private static String toLowerCase(String value) {
+		char[] chars = value.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+		return new String(chars);
+	}
+
+
+	/**
+	 * Tree node for a literal path prefix, holding the sorted indexes of the
+	 * patterns that need to be matched once the path starts with that prefix:
+	 * the patterns that end their literal prefix at this node or at one of its
+	 * ancestors.
+	 */
+	private static class Node {
+
+		private final List<Integer> patternIndexes = new ArrayList<>(1);
+
+		private int[] candidates = EMPTY_CANDIDATES;
+
+		@Nullable
+		private Map<String, Node> literals;
+
+		@Nullable
+		private Map<String, Node> lowerCaseLiterals;
+
+		public Node getOrCreateChild(String literal, boolean caseSensitive) {
+			Map<String, Node> children;
+			if (caseSensitive) {
+				if (this.literals == null) {
+					this.literals = new HashMap<>();
+				}
+				children = this.literals;
+			}
+			else {
+				if (this.lowerCaseLiterals == null) {
+					this.lowerCaseLiterals = new HashMap<>();
+				}
+				children = this.lowerCaseLiterals;
+			}
+			return children.computeIfAbsent(literal, key -> new Node());
+		}
+
+		/**
+		 * Add the index of a pattern whose literal prefix ends at this node.
+		 * Indexes are added in ascending order.
+		 */
+		public void addPattern(int index) {
+			this.patternIndexes.add(index);
+		}
+
+		/**
+		 * Initialize the candidates of this node and its descendants, once
+		 * all patterns have been added.
+		 */
+		public void initCandidates(int[] parentCandidates) {
+			if (this.patternIndexes.isEmpty()) {
+				this.candidates = parentCandidates;
+			}
+			else {
+				int[] indexes = new int[this.patternIndexes.size()];
+				for (int i = 0; i < indexes.length; i++) {
+					indexes[i] = this.patternIndexes.get(i);
+				}
+				this.candidates = merge(parentCandidates, indexes);
+			}
+			if (this.literals != null) {
+				for (Node child : this.literals.values()) {
+					child.initCandidates(this.candidates);
+				}
+			}
+			if (this.lowerCaseLiterals != null) {
+				for (Node child : this.lowerCaseLiterals.values()) {
+					child.initCandidates(this.candidates);
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -137,6 +138,22 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTests<Jackson2JsonD
 		testDecode(input, Pojo.class, step -> step.verifyComplete());
 	}
 
+	@Test
+	public void decodeArrayRequestsInputAsElementsAreConsumed() {
+		AtomicLong requested = new AtomicLong();
+		Flux<DataBuffer> input = Flux.range(0, 1000)
+				.concatMap(i -> stringBuffer((i == 0 ? "[" : ",") + "{\"bar\":\"b1\",\"foo\":\"f1\"}"))
+				.doOnRequest(requested::addAndGet);
+
+		Flux<Object> result = this.decoder.decode(input, forClass(Pojo.class), null, emptyMap());
+
+		StepVerifier.create(result, 1)
+				.expectNext(pojo1)
+				.thenCancel()
+				.verify();
+		assertThat(requested.get()).isLessThan(10);
+	}
+
 	@Test
 	public void fieldLevelJsonView() {
 		Flux<DataBuffer> input = Flux.from(
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.CharSequenceEncoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.AbstractLeakCheckingTests;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.support.DataBufferTestUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+import org.springframework.http.codec.ResourceHttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.test.MockClientHttpRequest;
+import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.core.ResolvableType.forClass;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+
+/**
+ * Unit tests for {@link DefaultPartHttpMessageReader}.
+ */
+class DefaultPartHttpMessageReaderTests extends AbstractLeakCheckingTests {
+
+	private static final ResolvableType PART_TYPE = forClass(Part.class);
+
+	private final DefaultPartHttpMessageReader reader = new DefaultPartHttpMessageReader();
+
+	@TempDir
+	Path tempDir;
+
+
+	@Test
+	void canRead() {
+		assertThat(this.reader.canRead(PART_TYPE, MULTIPART_FORM_DATA)).isTrue();
+		assertThat(this.reader.canRead(PART_TYPE, null)).isTrue();
+		assertThat(this.reader.canRead(PART_TYPE, MediaType.APPLICATION_FORM_URLENCODED)).isFalse();
+		assertThat(this.reader.canRead(forClass(String.class), MULTIPART_FORM_DATA)).isFalse();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 3, 7, 64, 8192})
+	void resolveParts(int chunkSize) {
+		Flux<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(chunkSize), emptyMap());
+
+		StepVerifier.create(parts)
+				.assertNext(part -> {
+					assertThat(part).isInstanceOf(FilePart.class);
+					assertThat(part.name()).isEqualTo("filePart");
+					assertThat(((FilePart) part).filename()).isEqualTo("foo.txt");
+					assertThat(content(part)).isEqualTo("Lorem Ipsum.");
+				})
+				.assertNext(part -> {
+					assertThat(part).isInstanceOf(FormFieldPart.class);
+					assertThat(part.name()).isEqualTo("textPart");
+					assertThat(((FormFieldPart) part).value()).isEqualTo("sample-text");
+				})
+				.assertNext(part -> {
+					assertThat(part).isNotInstanceOf(FilePart.class).isNotInstanceOf(FormFieldPart.class);
+					assertThat(part.name()).isEqualTo("jsonPart");
+					assertThat(part.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+					assertThat(content(part)).isEqualTo("{\"foo\":\"bar\"}");
+				})
+				.verifyComplete();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 5, 8192})
+	void largePartsStoredInFile(int chunkSize) throws IOException {
+		this.reader.setMaxInMemorySize(11);
+		this.reader.setFileStorageDirectory(this.tempDir);
+
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(chunkSize), emptyMap())
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertThat(parts).hasSize(3);
+		assertThat(fileCount(this.tempDir)).isEqualTo(2);
+		assertThat(content(parts.get(0))).isEqualTo("Lorem Ipsum.");
+		assertThat(content(parts.get(2))).isEqualTo("{\"foo\":\"bar\"}");
+		waitForFileCount(this.tempDir, 0);
+	}
+
+	@Test
+	void transferToFromMemory() throws IOException {
+		FilePart part = filePart();
+		Path dest = this.tempDir.resolve("dest.txt");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+
+		assertThat(new String(Files.readAllBytes(dest), StandardCharsets.UTF_8)).isEqualTo("Lorem Ipsum.");
+	}
+
+	@Test
+	void transferToMovesFile() throws IOException {
+		this.reader.setMaxInMemorySize(11);
+		this.reader.setFileStorageDirectory(this.tempDir.resolve("storage"));
+
+		FilePart part = filePart();
+		Path dest = this.tempDir.resolve("dest.txt");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+
+		assertThat(new String(Files.readAllBytes(dest), StandardCharsets.UTF_8)).isEqualTo("Lorem Ipsum.");
+		waitForFileCount(this.tempDir.resolve("storage"), 0);
+	}
+
+	@Test
+	void inMemoryContentReadRepeatedly() {
+		FilePart part = filePart();
+
+		assertThat(content(part)).isEqualTo("Lorem Ipsum.");
+		assertThat(content(part)).isEqualTo("Lorem Ipsum.");
+	}
+
+	@Test
+	void discardDeletesFile() throws IOException {
+		this.reader.setMaxInMemorySize(11);
+		this.reader.setFileStorageDirectory(this.tempDir);
+
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(8192), emptyMap())
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertThat(parts).hasSize(3);
+		assertThat(fileCount(this.tempDir)).isEqualTo(2);
+		parts.forEach(DefaultParts::discard);
+		waitForFileCount(this.tempDir, 0);
+	}
+
+	@Test
+	void noBoundary() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.header(CONTENT_TYPE, MULTIPART_FORM_DATA.toString())
+				.body(Flux.defer(() -> Flux.just(this.bufferFactory.wrap("invalid content".getBytes()))));
+
+		StepVerifier.create(this.reader.read(PART_TYPE, request, emptyMap()))
+				.expectErrorSatisfies(ex -> assertThat(ex)
+						.isInstanceOf(DecodingException.class)
+						.hasMessageStartingWith("No multipart boundary found"))
+				.verify();
+	}
+
+	@Test
+	void noFirstBoundary() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.contentType(new MediaType("multipart", "form-data", singletonMap("boundary", "foo")))
+				.body(Flux.just(this.bufferFactory.wrap("invalid content".getBytes())));
+
+		StepVerifier.create(this.reader.read(PART_TYPE, request, emptyMap()))
+				.expectErrorMessage("Could not find first boundary")
+				.verify();
+	}
+
+	@Test
+	void noEndBoundary() throws IOException {
+		ReadableByteChannel channel = new ClassPathResource("invalid.multipart", getClass()).readableChannel();
+		Flux<DataBuffer> body = DataBufferUtils.readByteChannel(() -> channel, this.bufferFactory, 1024);
+
+		MediaType contentType = new MediaType("multipart", "form-data",
+				singletonMap("boundary", "NbjrKgjbsaMLdnMxMfDpD6myWomYc0qNX0w"));
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.contentType(contentType)
+				.body(body);
+
+		StepVerifier.create(this.reader.read(PART_TYPE, request, emptyMap()))
+				.expectErrorMessage("Could not find end of body")
+				.verify();
+	}
+
+	@Test
+	void readTooManyParts() {
+		testMultipartExceptions(reader -> reader.setMaxParts(1), ex -> assertThat(ex)
+				.isInstanceOf(DecodingException.class)
+				.hasMessage("Too many parts (2/1 allowed)"));
+	}
+
+	@Test
+	void readFilePartTooBig() {
+		testMultipartExceptions(reader -> {
+			reader.setMaxInMemorySize(1);
+			reader.setMaxDiskUsagePerPart(5);
+			reader.setFileStorageDirectory(this.tempDir);
+		}, ex -> assertThat(ex)
+				.isInstanceOf(DecodingException.class)
+				.hasMessage("Part exceeded the disk usage limit of 5 bytes"));
+	}
+
+	@Test
+	void readFormFieldTooBig() {
+		testMultipartExceptions(reader -> {
+			reader.setMaxInMemorySize(10);
+			reader.setFileStorageDirectory(this.tempDir);
+		}, ex -> assertThat(ex)
+				.isInstanceOf(DataBufferLimitException.class)
+				.hasMessage("Form field value exceeded the memory usage limit of 10 bytes"));
+	}
+
+	@Test
+	void readPartHeadersTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxHeadersSize(10), ex -> assertThat(ex)
+				.isInstanceOf(DataBufferLimitException.class)
+				.hasMessage("Part headers exceeded the memory usage limit of 10 bytes"));
+	}
+
+	@Test
+	void readPartsWithMultipartHttpMessageReader() {
+		MultipartHttpMessageReader multipartReader = new MultipartHttpMessageReader(this.reader);
+		ResolvableType type = ResolvableType.forClassWithGenerics(MultiValueMap.class, String.class, Part.class);
+
+		StepVerifier.create(multipartReader.readMono(type, generateMultipartRequest(16), emptyMap()))
+				.assertNext(parts -> {
+					assertThat(parts).containsOnlyKeys("filePart", "textPart", "jsonPart");
+					parts.values().stream()
+							.flatMap(List::stream)
+							.forEach(DefaultPartHttpMessageReaderTests::content);
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	void cancel() throws IOException {
+		this.reader.setMaxInMemorySize(11);
+		this.reader.setFileStorageDirectory(this.tempDir);
+
+		StepVerifier.create(this.reader.read(PART_TYPE, generateMultipartRequest(3), emptyMap()), 1)
+				.assertNext(part -> assertThat(content(part)).isEqualTo("Lorem Ipsum."))
+				.thenCancel()
+				.verify();
+
+		waitForFileCount(this.tempDir, 0);
+	}
+
+
+	private FilePart filePart() {
+		Part part = this.reader.read(PART_TYPE, generateMultipartRequest(8192), emptyMap())
+				.doOnNext(p -> {
+					if (!(p instanceof FilePart)) {
+						content(p);
+					}
+				})
+				.collectList()
+				.block(Duration.ofSeconds(5))
+				.get(0);
+		assertThat(part).isInstanceOf(FilePart.class);
+		return (FilePart) part;
+	}
+
+	private void testMultipartExceptions(
+			Consumer<DefaultPartHttpMessageReader> configurer, Consumer<Throwable> assertions) {
+
+		configurer.accept(this.reader);
+		Flux<String> contents = this.reader.read(PART_TYPE, generateMultipartRequest(8192), emptyMap())
+				.map(DefaultPartHttpMessageReaderTests::content);
+		StepVerifier.create(contents)
+				.thenConsumeWhile(s -> true)
+				.consumeErrorWith(assertions)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	private ServerHttpRequest generateMultipartRequest(int chunkSize) {
+		MultipartBodyBuilder partsBuilder = new MultipartBodyBuilder();
+		partsBuilder.part("filePart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		partsBuilder.part("textPart", "sample-text");
+		partsBuilder.part("jsonPart", "{\"foo\":\"bar\"}", MediaType.APPLICATION_JSON);
+
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter(Arrays.asList(
+				new EncoderHttpMessageWriter<>(CharSequenceEncoder.allMimeTypes()), new ResourceHttpMessageWriter()))
+				.write(Mono.just(partsBuilder.build()), null, MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+		byte[] bytes = outputMessage.getBodyAsString()
+				.block(Duration.ofSeconds(5))
+				.getBytes(StandardCharsets.UTF_8);
+
+		Flux<DataBuffer> requestBody = Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+				.map(i -> {
+					int offset = i * chunkSize;
+					int length = Math.min(chunkSize, bytes.length - offset);
+					DataBuffer buffer = this.bufferFactory.allocateBuffer(length);
+					buffer.write(bytes, offset, length);
+					return buffer;
+				});
+		return MockServerHttpRequest.post("/")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(requestBody);
+	}
+
+	private static String content(Part part) {
+		return part.content()
+				.map(buffer -> {
+					String result = DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8);
+					DataBufferUtils.release(buffer);
+					return result;
+				})
+				.collect(Collectors.joining())
+				.block(Duration.ofSeconds(5));
+	}
+
+	private static long fileCount(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	private static void waitForFileCount(Path directory, long expected) throws IOException {
+		for (int i = 0; i < 50 && fileCount(directory) != expected; i++) {
+			try {
+				Thread.sleep(10);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		assertThat(fileCount(directory)).isEqualTo(expected);
+	}
+
+}
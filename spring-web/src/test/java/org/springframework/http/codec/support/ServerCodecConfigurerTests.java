@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,7 @@ import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.http.codec.json.Jackson2SmileDecoder;
 import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
 import org.springframework.http.codec.multipart.MultipartHttpMessageReader;
 import org.springframework.http.codec.multipart.SynchronossPartHttpMessageReader;
 import org.springframework.http.codec.protobuf.ProtobufDecoder;
@@ -187,6 +188,19 @@ public class ServerCodecConfigurerTests {
 		assertThat(reader.isEnableLoggingRequestDetails()).isTrue();
 	}
 
+	@Test
+	public void defaultPartHttpMessageReader() {
+		this.configurer.defaultCodecs().multipartReader(new MultipartHttpMessageReader(new DefaultPartHttpMessageReader()));
+		this.configurer.defaultCodecs().maxInMemorySize(99);
+		this.configurer.defaultCodecs().enableLoggingRequestDetails(true);
+
+		List<HttpMessageReader<?>> readers = this.configurer.getReaders();
+		MultipartHttpMessageReader multipartReader = findCodec(readers, MultipartHttpMessageReader.class);
+		DefaultPartHttpMessageReader reader = (DefaultPartHttpMessageReader) multipartReader.getPartReader();
+		assertThat(reader.getMaxInMemorySize()).isEqualTo(99);
+		assertThat(reader.isEnableLoggingRequestDetails()).isTrue();
+	}
+
 	@Test
 	public void enableRequestLoggingDetailsWithCustomCodecs() {
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.server.PathContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link PathPatternIndex}.
+ */
+public class PathPatternIndexTests {
+
+	private static final String[] PATTERNS = {
+			"", "/", "/about", "/static/**", "/api/users", "/api/users/{id}", "/api/users/{id}/orders",
+			"/api/users/{id}/orders/{orderId}", "/api/products", "/api/products/{id:[0-9]+}",
+			"/api/products/{id}/reviews", "/api/search/*", "/docs/{*path}", "/files/*.{ext}",
+			"/admin/*/settings", "/{tenant}/api/users", "/ap?/users", "/api/users/me"};
+
+	private static final String[] PATHS = {
+			"", "/", "/about", "/about/", "/static", "/static/css/main.css", "/api/users", "/api/users/",
+			"/api/users/42", "/api/users/me", "/api/users/42/orders/7", "/api/products/1234",
+			"/api/products/abc", "/api/products/abc/reviews", "/api/search/books", "/docs",
+			"/docs/guide/intro", "/files/report.pdf", "/admin/users/settings", "/acme/api/users",
+			"/apx/users", "/api;v=1/users;a=b/42", "//api/users", "api/users", "/API/users", "/unknown/path"};
+
+
+	@Test
+	public void matchesSameAsPathPatterns() {
+		testMatches(new PathPatternParser());
+	}
+
+	@Test
+	public void matchesSameAsCaseInsensitivePathPatterns() {
+		PathPatternParser parser = new PathPatternParser();
+		parser.setCaseSensitive(false);
+		testMatches(parser);
+	}
+
+	@Test
+	public void matchesSameAsPathPatternsWithoutOptionalTrailingSeparator() {
+		PathPatternParser parser = new PathPatternParser();
+		parser.setMatchOptionalTrailingSeparator(false);
+		testMatches(parser);
+	}
+
+	@Test
+	public void matchesWithMixedCaseSensitivity() {
+		PathPatternParser caseInsensitiveParser = new PathPatternParser();
+		caseInsensitiveParser.setCaseSensitive(false);
+		List<PathPattern> patterns = new ArrayList<>();
+		patterns.add(caseInsensitiveParser.parse("/api/users/{id}"));
+		patterns.add(new PathPatternParser().parse("/api/users/{id}"));
+		PathPatternIndex index = new PathPatternIndex(patterns);
+
+		assertThat(index.getMatchingPatterns(PathContainer.parsePath("/api/users/1"))).isEqualTo(patterns);
+		assertThat(index.getMatchingPatterns(PathContainer.parsePath("/API/Users/1")))
+				.containsExactly(patterns.get(0));
+	}
+
+	@Test
+	public void firstMatchingPattern() {
+		PathPatternParser parser = new PathPatternParser();
+		List<PathPattern> patterns = parse(parser);
+		PathPatternIndex index = new PathPatternIndex(patterns);
+
+		assertThat(index.getPatterns()).isEqualTo(patterns);
+		assertThat(index.getFirstMatchingPattern(PathContainer.parsePath("/api/users/me")))
+				.isEqualTo(parser.parse("/api/users/{id}"));
+		assertThat(index.getFirstMatchingPattern(PathContainer.parsePath("/unknown/path"))).isNull();
+	}
+
+	private void testMatches(PathPatternParser parser) {
+		List<PathPattern> patterns = parse(parser);
+		PathPatternIndex index = new PathPatternIndex(patterns);
+		for (String path : PATHS) {
+			PathContainer container = PathContainer.parsePath(path);
+			List<PathPattern> expected = patterns.stream()
+					.filter(pattern -> pattern.matches(container))
+					.collect(Collectors.toList());
+			assertThat(index.getMatchingPatterns(container)).as(path).isEqualTo(expected);
+			assertThat(index.getFirstMatchingPattern(container)).as(path)
+					.isEqualTo(expected.isEmpty() ? null : expected.get(0));
+		}
+	}
+
+	private static List<PathPattern> parse(PathPatternParser parser) {
+		List<PathPattern> patterns = new ArrayList<>(PATTERNS.length);
+		for (String pattern : PATTERNS) {
+			patterns.add(parser.parse(pattern));
+		}
+		return patterns;
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Benchmarks for {@link Jackson2JsonDecoder} decoding a JSON array that arrives
+ * as a stream of {@link DataBuffer} chunks, either as a {@code Flux} of elements
+ * or as a single aggregated {@code List}, as well as decoding the same elements
+ * from newline-delimited JSON. Run with {@code -prof gc} to compare allocations
+ * for large inputs.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class Jackson2JsonDecoderBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class DecoderState {
+
+		@Param({"10", "1000", "100000"})
+		public int elementCount;
+
+		@Param({"256", "8192"})
+		public int chunkSize;
+
+		public Jackson2JsonDecoder decoder;
+
+		public byte[][] chunks;
+
+		public byte[][] ndjsonChunks;
+
+		public DataBufferFactory bufferFactory;
+
+		public ResolvableType elementType;
+
+		public ResolvableType listType;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.decoder = new Jackson2JsonDecoder();
+			this.decoder.setMaxInMemorySize(-1);
+			this.bufferFactory = new DefaultDataBufferFactory();
+			this.elementType = ResolvableType.forClass(Item.class);
+			this.listType = ResolvableType.forClassWithGenerics(List.class, Item.class);
+
+			StringBuilder json = new StringBuilder("[");
+			StringBuilder ndjson = new StringBuilder();
+			for (int i = 0; i < this.elementCount; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				String item = "{\"id\":" + i + ",\"name\":\"item-" + i + "\",\"price\":" + (i * 1.5d) +
+						",\"tags\":[\"a\",\"b\",\"c\"]}";
+				json.append(item);
+				ndjson.append(item).append('\n');
+			}
+			json.append(']');
+
+			this.chunks = split(json.toString().getBytes(StandardCharsets.UTF_8));
+			this.ndjsonChunks = split(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		private byte[][] split(byte[] bytes) {
+			List<byte[]> result = new ArrayList<>();
+			for (int offset = 0; offset < bytes.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, bytes.length - offset);
+				byte[] chunk = new byte[length];
+				System.arraycopy(bytes, offset, chunk, 0, length);
+				result.add(chunk);
+			}
+			return result.toArray(new byte[0][]);
+		}
+
+		public Flux<DataBuffer> input() {
+			return Flux.fromArray(this.chunks).map(this.bufferFactory::wrap);
+		}
+
+		public Flux<DataBuffer> ndjsonInput() {
+			return Flux.fromArray(this.ndjsonChunks).map(this.bufferFactory::wrap);
+		}
+	}
+
+
+	@Benchmark
+	public void decodeToFlux(DecoderState state, Blackhole bh) {
+		state.decoder.decode(state.input(), state.elementType, MediaType.APPLICATION_JSON, Collections.emptyMap())
+				.doOnNext(bh::consume)
+				.blockLast();
+	}
+
+	@Benchmark
+	public void decodeNdjsonToFlux(DecoderState state, Blackhole bh) {
+		state.decoder.decode(state.ndjsonInput(), state.elementType, MediaType.APPLICATION_STREAM_JSON,
+				Collections.emptyMap())
+				.doOnNext(bh::consume)
+				.blockLast();
+	}
+
+	@Benchmark
+	public void decodeToMono(DecoderState state, Blackhole bh) {
+		bh.consume(state.decoder.decodeToMono(state.input(), state.listType, MediaType.APPLICATION_JSON,
+				Collections.emptyMap()).block());
+	}
+
+
+	public static class Item {
+
+		private long id;
+
+		private String name;
+
+		private double price;
+
+		private List<String> tags;
+
+		public long getId() {
+			return this.id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public double getPrice() {
+			return this.price;
+		}
+
+		public void setPrice(double price) {
+			this.price = price;
+		}
+
+		public List<String> getTags() {
+			return this.tags;
+		}
+
+		public void setTags(List<String> tags) {
+			this.tags = tags;
+		}
+	}
+
+}
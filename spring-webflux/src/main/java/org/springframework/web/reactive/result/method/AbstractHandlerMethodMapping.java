@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -47,6 +48,8 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternIndex;
 
 /**
  * Abstract base class for {@link HandlerMapping} implementations that define
@@ -311,7 +314,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected HandlerMethod lookupHandlerMethod(ServerWebExchange exchange) throws Exception {
 		List<Match> matches = new ArrayList<>();
-		addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, exchange);
+		PathContainer lookupPath = exchange.getRequest().getPath().pathWithinApplication();
+		List<T> candidates = this.mappingRegistry.getMappingsByPath(lookupPath);
+		if (candidates != null) {
+			addMatchingMappings(candidates, matches, exchange);
+		}
+		else {
+			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, exchange);
+		}
 
 		if (!matches.isEmpty()) {
 			Comparator<Match> comparator = new MatchComparator(getMappingComparator(exchange));
@@ -371,6 +381,31 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		return null;
 	}
 
+	/**
+	 * Whether to look up mappings through a {@link PathPatternIndex} over the
+	 * {@link #getMappingPathPatterns path patterns} of all mappings, rather than
+	 * checking each mapping against the request. This requires that a mapping
+	 * with patterns only matches requests whose path within the application
+	 * matches one of them. Mappings without patterns are checked for every
+	 * request.
+	 * <p>The default implementation returns {@code false}.
+	 * @since 5.2.3
+	 */
+	protected boolean usePathPatternIndex() {
+		return false;
+	}
+
+	/**
+	 * Return the path patterns of the given mapping, used to index mappings
+	 * when {@link #usePathPatternIndex()} is {@code true}.
+	 * <p>The default implementation returns an empty set.
+	 * @param mapping the mapping to get the patterns for
+	 * @since 5.2.3
+	 */
+	protected Set<PathPattern> getMappingPathPatterns(T mapping) {
+		return Collections.emptySet();
+	}
+
 	@Override
 	protected boolean hasCorsConfigurationSource(Object handler) {
 		return super.hasCorsConfigurationSource(handler) ||
@@ -448,6 +483,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
+		@Nullable
+		private volatile PathPatternLookup<T> pathPatternLookup;
+
 		/**
 		 * Return all mappings and handler methods. Not thread-safe.
 		 * @see #acquireReadLock()
@@ -456,6 +494,33 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.mappingLookup;
 		}
 
+		/**
+		 * Return, in registration order, the mappings with a path pattern that
+		 * matches the given path, along with the mappings without patterns, or
+		 * {@code null} if mappings are not looked up through a path pattern index.
+		 * Not thread-safe.
+		 * @see #acquireReadLock()
+		 */
+		@Nullable
+		public List<T> getMappingsByPath(PathContainer path) {
+			if (!usePathPatternIndex()) {
+				return null;
+			}
+			PathPatternLookup<T> lookup = this.pathPatternLookup;
+			if (lookup == null) {
+				synchronized (this) {
+					lookup = this.pathPatternLookup;
+					if (lookup == null) {
+						// Built on first use after registrations change, rather than per registration
+						lookup = new PathPatternLookup<>(this.mappingLookup.keySet(),
+								AbstractHandlerMethodMapping.this::getMappingPathPatterns);
+						this.pathPatternLookup = lookup;
+					}
+				}
+			}
+			return lookup.getMappings(path);
+		}
+
 		/**
 		 * Return CORS configuration. Thread-safe for concurrent use.
 		 */
@@ -492,6 +557,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.registry.put(mapping, new MappingRegistration<>(mapping, handlerMethod));
+				this.pathPatternLookup = null;
 			}
 			finally {
 				this.readWriteLock.writeLock().unlock();
@@ -519,6 +585,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 				this.mappingLookup.remove(definition.getMapping());
 				this.corsLookup.remove(definition.getHandlerMethod());
+				this.pathPatternLookup = null;
 			}
 			finally {
 				this.readWriteLock.writeLock().unlock();
@@ -527,6 +594,73 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	}
 
 
+	/**
+	 * Snapshot of the registered mappings with a {@link PathPatternIndex} over
+	 * their path patterns.
+	 */
+	private static final class PathPatternLookup<T> {
+
+		private final List<T> mappings;
+
+		private final PathPatternIndex index;
+
+		private final Map<PathPattern, List<Integer>> positionsByPattern = new HashMap<>();
+
+		private final List<Integer> unindexedPositions = new ArrayList<>();
+
+		public PathPatternLookup(Collection<T> mappings, Function<T, Set<PathPattern>> patternsFunction) {
+			this.mappings = new ArrayList<>(mappings);
+			List<PathPattern> patterns = new ArrayList<>();
+			for (int i = 0; i < this.mappings.size(); i++) {
+				Set<PathPattern> mappingPatterns = patternsFunction.apply(this.mappings.get(i));
+				if (mappingPatterns.isEmpty()) {
+					this.unindexedPositions.add(i);
+				}
+				for (PathPattern pattern : mappingPatterns) {
+					List<Integer> positions = this.positionsByPattern.get(pattern);
+					if (positions == null) {
+						positions = new ArrayList<>(1);
+						this.positionsByPattern.put(pattern, positions);
+						patterns.add(pattern);
+					}
+					if (!positions.contains(i)) {
+						positions.add(i);
+					}
+				}
+			}
+			this.index = new PathPatternIndex(patterns);
+		}
+
+		public List<T> getMappings(PathContainer path) {
+			List<PathPattern> patterns = this.index.getMatchingPatterns(path);
+			if (patterns.isEmpty() && this.unindexedPositions.isEmpty()) {
+				return Collections.emptyList();
+			}
+			int[] positions = new int[this.unindexedPositions.size() + patterns.size()];
+			int count = 0;
+			for (Integer position : this.unindexedPositions) {
+				positions[count++] = position;
+			}
+			for (PathPattern pattern : patterns) {
+				for (Integer position : this.positionsByPattern.get(pattern)) {
+					if (count == positions.length) {
+						positions = Arrays.copyOf(positions, count * 2);
+					}
+					positions[count++] = position;
+				}
+			}
+			Arrays.sort(positions, 0, count);
+			List<T> result = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				if (i == 0 || positions[i] != positions[i - 1]) {
+					result.add(this.mappings.get(positions[i]));
+				}
+			}
+			return result;
+		}
+	}
+
+
 	private static class MappingRegistration<T> {
 
 		private final T mapping;
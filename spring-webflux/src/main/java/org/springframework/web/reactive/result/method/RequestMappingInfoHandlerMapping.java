@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -68,6 +68,31 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 	}
 
 
+	private boolean usePathPatternIndex = false;
+
+
+	/**
+	 * Whether to look up mappings through a
+	 * {@link org.springframework.web.util.pattern.PathPatternIndex PathPatternIndex}
+	 * over the URL patterns of all mappings, so that only mappings with a pattern
+	 * that matches the path of the request are checked against it.
+	 * <p>The default is {@code false}, in which case all mappings are checked.
+	 * @since 5.2.3
+	 */
+	public void setUsePathPatternIndex(boolean usePathPatternIndex) {
+		this.usePathPatternIndex = usePathPatternIndex;
+	}
+
+	@Override
+	protected boolean usePathPatternIndex() {
+		return this.usePathPatternIndex;
+	}
+
+	@Override
+	protected Set<PathPattern> getMappingPathPatterns(RequestMappingInfo info) {
+		return info.getPatternsCondition().getPatterns();
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -153,6 +153,30 @@ public class RequestMappingInfoHandlerMappingTests {
 				.verify();
 	}
 
+	@Test
+	public void getHandlerWithPathPatternIndex() {
+		this.handlerMapping.setUsePathPatternIndex(true);
+
+		Method expected = on(TestController.class).annot(getMapping("/foo").params("p")).resolveMethod();
+		HandlerMethod hm = (HandlerMethod) this.handlerMapping.getHandler(
+				MockServerWebExchange.from(get("/foo?p=anything"))).block();
+		assertThat(hm.getMethod()).isEqualTo(expected);
+
+		expected = on(TestController.class).annot(requestMapping("/ba*").method(GET, HEAD)).resolveMethod();
+		hm = (HandlerMethod) this.handlerMapping.getHandler(MockServerWebExchange.from(get("/bar"))).block();
+		assertThat(hm.getMethod()).isEqualTo(expected);
+
+		assertError(this.handlerMapping.getHandler(MockServerWebExchange.from(post("/bar"))),
+				MethodNotAllowedException.class,
+				ex -> assertThat(ex.getSupportedMethods()).isEqualTo(EnumSet.of(HttpMethod.GET, HttpMethod.HEAD)));
+
+		// Mappings registered after the first lookup
+		this.handlerMapping.registerHandler(new UserController());
+		ServerWebExchange exchange = MockServerWebExchange.from(get("/users").accept(MediaType.APPLICATION_JSON));
+		hm = (HandlerMethod) this.handlerMapping.getHandler(exchange).block();
+		assertThat(hm.getMethod().getName()).isEqualTo("getUser");
+	}
+
 	@Test  // SPR-8462
 	public void getHandlerMediaTypeNotSupported() {
 		testHttpMediaTypeNotSupportedException("/person/1");
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+/**
+ * Benchmarks for looking up handler methods by request paths that contain URI
+ * variables, and therefore have no direct URL match, with the path prefix index
+ * of {@link RequestMappingHandlerMapping} compared to a full scan of all mappings.
+ * All routes share the leading "/api" segment, so the index only narrows down
+ * candidates through deeper literal segments. Paths without any match are not
+ * included, since {@code handleNoMatch} still checks all mappings for them.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingLookupBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class MappingData {
+
+		@Param({"10", "100", "500"})
+		public int resourceCount;
+
+		public LookupHandlerMapping indexedMapping;
+
+		public LookupHandlerMapping fullScanMapping;
+
+		public List<HttpServletRequest> requests;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.indexedMapping = new LookupHandlerMapping(true);
+			this.fullScanMapping = new LookupHandlerMapping(false);
+			Method method = ReflectionUtils.findMethod(ResourceController.class, "handle");
+			ResourceController controller = new ResourceController();
+			for (int i = 0; i < this.resourceCount; i++) {
+				String resource = "/api/resource" + i;
+				for (String path : new String[] {resource, resource + "/{id}", resource + "/{id}/items",
+						resource + "/{id}/items/{itemId}"}) {
+					RequestMappingInfo info = RequestMappingInfo.paths(path).methods(RequestMethod.GET).build();
+					this.indexedMapping.registerMapping(info, controller, method);
+					this.fullScanMapping.registerMapping(info, controller, method);
+				}
+			}
+			this.requests = new ArrayList<>();
+			for (int i = 0; i < this.resourceCount; i += Math.max(1, this.resourceCount / 10)) {
+				this.requests.add(new MockHttpServletRequest("GET", "/api/resource" + i + "/42"));
+				this.requests.add(new MockHttpServletRequest("GET", "/api/resource" + i + "/42/items/7"));
+			}
+		}
+	}
+
+
+	@Benchmark
+	public void indexedLookup(MappingData data, Blackhole bh) throws Exception {
+		for (HttpServletRequest request : data.requests) {
+			bh.consume(data.indexedMapping.lookup(request));
+		}
+	}
+
+	@Benchmark
+	public void fullScanLookup(MappingData data, Blackhole bh) throws Exception {
+		for (HttpServletRequest request : data.requests) {
+			bh.consume(data.fullScanMapping.lookup(request));
+		}
+	}
+
+
+	static class LookupHandlerMapping extends RequestMappingHandlerMapping {
+
+		private final boolean usePathPrefixIndex;
+
+		LookupHandlerMapping(boolean usePathPrefixIndex) {
+			this.usePathPrefixIndex = usePathPrefixIndex;
+		}
+
+		@Override
+		protected boolean usePathPrefixIndex() {
+			return this.usePathPrefixIndex;
+		}
+
+		public HandlerMethod lookup(HttpServletRequest request) throws Exception {
+			return getHandlerInternal(request);
+		}
+	}
+
+
+	static class ResourceController {
+
+		public void handle() {
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,10 +45,12 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.KotlinDetector;
 import org.springframework.core.MethodIntrospector;
 import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
@@ -389,8 +392,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			List<T> candidates = this.mappingRegistry.getMappingsByPathPrefix(lookupPath);
+			if (candidates != null) {
+				addMatchingMappings(candidates, matches, request);
+			}
+			else {
+				// No choice but to go through all mappings...
+				addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			}
 		}
 
 		if (!matches.isEmpty()) {
@@ -455,6 +464,24 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		return null;
 	}
 
+	/**
+	 * Whether a mapping can only match requests with a lookup path that
+	 * matches one of its {@link #getMappingPathPatterns path patterns}, if it
+	 * declares any. If so, and the {@link #getPathMatcher() PathMatcher} is an
+	 * {@link AntPathMatcher} using "/" as separator, mappings are indexed by
+	 * the literal leading segments of their patterns, e.g. "/api/users" for
+	 * "/api/users/{id}". A lookup without a direct URL match then only
+	 * evaluates mappings whose literal segments are a prefix of the lookup
+	 * path, along with mappings whose patterns start with a variable or
+	 * wildcard.
+	 * <p>The default implementation returns {@code false}, in which case all
+	 * mappings are evaluated.
+	 * @since 5.2.3
+	 */
+	protected boolean usePathPrefixIndex() {
+		return false;
+	}
+
 	@Override
 	protected boolean hasCorsConfigurationSource(Object handler) {
 		return super.hasCorsConfigurationSource(handler) ||
@@ -536,6 +563,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<>();
 
+		private final PathPrefixNode<T> pathPrefixRoot = new PathPrefixNode<>(null, null);
+
+		private boolean pathPrefixIndexDisabled = false;
+
+		private int registrationCount = 0;
+
 		private final Map<String, List<HandlerMethod>> nameLookup = new ConcurrentHashMap<>();
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
@@ -559,6 +592,67 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return, in registration order, the mappings that may match the given
+		 * lookup path according to the literal leading segments of their path
+		 * patterns, or {@code null} if mappings are not indexed by path prefix.
+		 * Not thread-safe.
+		 * @see #acquireReadLock()
+		 */
+		@Nullable
+		public List<T> getMappingsByPathPrefix(String lookupPath) {
+			if (this.pathPrefixIndexDisabled) {
+				return null;
+			}
+			PathPrefixNode<T> node = this.pathPrefixRoot;
+			List<PathPrefixNode<T>> suffixMatches = null;
+			int length = lookupPath.length();
+			int start = 0;
+			while (start < length && node.hasChildren()) {
+				int end = lookupPath.indexOf('/', start);
+				if (end == -1) {
+					end = length;
+				}
+				String segment = getSegmentKey(lookupPath, start, end);
+				start = end + 1;
+				if (segment == null) {
+					continue;
+				}
+				// Suffix pattern matching: "/foo" or "/foo.bar" may match "/foo.bar.json"
+				int index = segment.indexOf('.');
+				while (index != -1) {
+					PathPrefixNode<T> child = node.getChild(segment.substring(0, index));
+					if (child != null) {
+						if (suffixMatches == null) {
+							suffixMatches = new ArrayList<>(2);
+						}
+						suffixMatches.add(child);
+					}
+					index = segment.indexOf('.', index + 1);
+				}
+				PathPrefixNode<T> child = node.getChild(segment);
+				if (child == null) {
+					break;
+				}
+				node = child;
+			}
+			if (suffixMatches == null) {
+				return node.getCandidates();
+			}
+			suffixMatches.add(node);
+			return mergeCandidates(suffixMatches);
+		}
+
+		private List<T> mergeCandidates(List<PathPrefixNode<T>> nodes) {
+			Set<T> candidates = new LinkedHashSet<>();
+			for (PathPrefixNode<T> node : nodes) {
+				candidates.addAll(node.getCandidates());
+			}
+			List<T> result = new ArrayList<>(candidates);
+			result.sort(Comparator.comparingInt(mapping -> this.registry.get(mapping).getOrder()));
+			return result;
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -616,7 +710,18 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.corsLookup.put(handlerMethod, corsConfig);
 				}
 
-				this.registry.put(mapping, new MappingRegistration<>(mapping, handlerMethod, directUrls, name));
+				MappingRegistration<T> existing = this.registry.get(mapping);
+				int order = (existing != null ? existing.getOrder() : this.registrationCount++);
+				Set<List<String>> pathPrefixes = (existing != null ? existing.getPathPrefixes() : getPathPrefixes(mapping));
+				MappingRegistration<T> registration =
+						new MappingRegistration<>(mapping, handlerMethod, directUrls, name, order, pathPrefixes);
+				if (existing != null) {
+					replacePathPrefixes(existing.getMapping(), registration);
+				}
+				else {
+					addPathPrefixes(registration);
+				}
+				this.registry.put(mapping, registration);
 			}
 			finally {
 				this.readWriteLock.writeLock().unlock();
@@ -644,6 +749,56 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return urls;
 		}
 
+		/**
+		 * Return the literal leading segments of each path pattern of the given
+		 * mapping, with an empty list for patterns that start with a variable or
+		 * wildcard, and for mappings without patterns, since they may match any
+		 * lookup path. Returns an empty set if mappings are not indexed.
+		 */
+		private Set<List<String>> getPathPrefixes(T mapping) {
+			if (!usePathPrefixIndex() || !isPathPrefixIndexSupported(getPathMatcher())) {
+				this.pathPrefixIndexDisabled = true;
+				return Collections.emptySet();
+			}
+			Set<String> patterns = getMappingPathPatterns(mapping);
+			if (patterns.isEmpty()) {
+				return Collections.singleton(Collections.emptyList());
+			}
+			Set<List<String>> prefixes = new LinkedHashSet<>(patterns.size());
+			for (String pattern : patterns) {
+				prefixes.add(getLiteralSegments(pattern));
+			}
+			return prefixes;
+		}
+
+		private void addPathPrefixes(MappingRegistration<T> registration) {
+			for (List<String> prefix : registration.getPathPrefixes()) {
+				PathPrefixNode<T> node = this.pathPrefixRoot;
+				for (String segment : prefix) {
+					node = node.getOrCreateChild(segment);
+				}
+				node.addMapping(registration.getMapping());
+			}
+		}
+
+		private void replacePathPrefixes(T existing, MappingRegistration<T> registration) {
+			for (List<String> prefix : registration.getPathPrefixes()) {
+				PathPrefixNode<T> node = this.pathPrefixRoot.getDescendant(prefix);
+				if (node != null) {
+					node.replaceMapping(existing, registration.getMapping());
+				}
+			}
+		}
+
+		private void removePathPrefixes(MappingRegistration<T> registration) {
+			for (List<String> prefix : registration.getPathPrefixes()) {
+				PathPrefixNode<T> node = this.pathPrefixRoot.getDescendant(prefix);
+				if (node != null) {
+					node.removeMapping(registration.getMapping());
+				}
+			}
+		}
+
 		private void addMappingName(String name, HandlerMethod handlerMethod) {
 			List<HandlerMethod> oldList = this.nameLookup.get(name);
 			if (oldList == null) {
@@ -671,6 +826,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				removePathPrefixes(definition);
 
 				for (String url : definition.getDirectUrls()) {
 					List<T> list = this.urlLookup.get(url);
@@ -727,8 +883,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		@Nullable
 		private final String mappingName;
 
-		public MappingRegistration(T mapping, HandlerMethod handlerMethod,
-				@Nullable List<String> directUrls, @Nullable String mappingName) {
+		private final int order;
+
+		private final Set<List<String>> pathPrefixes;
+
+		public MappingRegistration(T mapping, HandlerMethod handlerMethod, @Nullable List<String> directUrls,
+				@Nullable String mappingName, int order, Set<List<String>> pathPrefixes) {
 
 			Assert.notNull(mapping, "Mapping must not be null");
 			Assert.notNull(handlerMethod, "HandlerMethod must not be null");
@@ -736,6 +896,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			this.handlerMethod = handlerMethod;
 			this.directUrls = (directUrls != null ? directUrls : Collections.emptyList());
 			this.mappingName = mappingName;
+			this.order = order;
+			this.pathPrefixes = pathPrefixes;
 		}
 
 		public T getMapping() {
@@ -754,6 +916,117 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		public String getMappingName() {
 			return this.mappingName;
 		}
+
+		public int getOrder() {
+			return this.order;
+		}
+
+		public Set<List<String>> getPathPrefixes() {
+			return this.pathPrefixes;
+		}
+	}
+
+
+	/**
+	 * A node in the index of mappings by the literal leading segments of their
+	 * path patterns. Besides the mappings registered at the node itself, each
+	 * node keeps the candidates for lookup paths that end at it: its own
+	 * mappings and those of its ancestors, in registration order. Lookups
+	 * return that list as is, and registrations keep it up to date.
+	 */
+	private static class PathPrefixNode<T> {
+
+		@Nullable
+		private final PathPrefixNode<T> parent;
+
+		@Nullable
+		private final String segment;
+
+		private final Map<String, PathPrefixNode<T>> children = new HashMap<>();
+
+		private final List<T> candidates;
+
+		private int mappingCount;
+
+		public PathPrefixNode(@Nullable PathPrefixNode<T> parent, @Nullable String segment) {
+			this.parent = parent;
+			this.segment = segment;
+			this.candidates = (parent != null ? new ArrayList<>(parent.candidates) : new ArrayList<>());
+		}
+
+		public boolean hasChildren() {
+			return !this.children.isEmpty();
+		}
+
+		@Nullable
+		public PathPrefixNode<T> getChild(String segment) {
+			return this.children.get(segment);
+		}
+
+		public PathPrefixNode<T> getOrCreateChild(String segment) {
+			return this.children.computeIfAbsent(segment, key -> new PathPrefixNode<>(this, key));
+		}
+
+		@Nullable
+		public PathPrefixNode<T> getDescendant(List<String> segments) {
+			PathPrefixNode<T> node = this;
+			for (String segment : segments) {
+				node = node.getChild(segment);
+				if (node == null) {
+					return null;
+				}
+			}
+			return node;
+		}
+
+		public List<T> getCandidates() {
+			return this.candidates;
+		}
+
+		/**
+		 * Add a newly registered mapping, which comes last in registration order.
+		 */
+		public void addMapping(T mapping) {
+			this.mappingCount++;
+			appendCandidate(mapping);
+		}
+
+		private void appendCandidate(T mapping) {
+			// Skip if already added through another pattern at an ancestor node
+			if (this.candidates.isEmpty() || this.candidates.get(this.candidates.size() - 1) != mapping) {
+				this.candidates.add(mapping);
+			}
+			for (PathPrefixNode<T> child : this.children.values()) {
+				child.appendCandidate(mapping);
+			}
+		}
+
+		public void replaceMapping(T existing, T mapping) {
+			int index = this.candidates.indexOf(existing);
+			if (index != -1) {
+				this.candidates.set(index, mapping);
+			}
+			for (PathPrefixNode<T> child : this.children.values()) {
+				child.replaceMapping(existing, mapping);
+			}
+		}
+
+		public void removeMapping(T mapping) {
+			this.mappingCount--;
+			removeCandidate(mapping);
+			PathPrefixNode<T> node = this;
+			while (node.parent != null && node.segment != null && node.mappingCount == 0 && !node.hasChildren()) {
+				node.parent.children.remove(node.segment);
+				node = node.parent;
+			}
+		}
+
+		private void removeCandidate(T mapping) {
+			this.candidates.remove(mapping);
+			for (PathPrefixNode<T> child : this.children.values()) {
+				child.removeCandidate(mapping);
+			}
+		}
 	}
 
 
@@ -794,6 +1067,68 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	}
 
 
+	/**
+	 * Whether the given {@code PathMatcher} is an {@link AntPathMatcher} that
+	 * splits paths into segments by "/" only. Case sensitivity and token
+	 * trimming are accounted for by {@link #getSegmentKey(String, int, int)}.
+	 */
+	private static boolean isPathPrefixIndexSupported(PathMatcher pathMatcher) {
+		return (pathMatcher.getClass() == AntPathMatcher.class &&
+				pathMatcher.match("/a/*", "/a/b") && !pathMatcher.match("/a/*", "/a/b/c") &&
+				!pathMatcher.match("/a/b", "/a.b"));
+	}
+
+	/**
+	 * Return the keys of the non-empty segments of the given pattern, up to
+	 * the first segment that contains a wildcard or a URI variable.
+	 */
+	private static List<String> getLiteralSegments(String pattern) {
+		List<String> segments = new ArrayList<>();
+		int length = pattern.length();
+		int start = 0;
+		while (start < length) {
+			int end = pattern.indexOf('/', start);
+			if (end == -1) {
+				end = length;
+			}
+			String segment = getSegmentKey(pattern, start, end);
+			if (segment != null) {
+				if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+					break;
+				}
+				segments.add(segment);
+			}
+			start = end + 1;
+		}
+		return segments;
+	}
+
+	/**
+	 * Return the given path segment trimmed and with US-ASCII letters in lower
+	 * case, so that segments that match with any case sensitivity and token
+	 * trimming setting have the same key, or {@code null} if it is empty.
+	 */
+	@Nullable
+	private static String getSegmentKey(String path, int start, int end) {
+		String segment = path.substring(start, end).trim();
+		return (!segment.isEmpty() ? toLowerCaseAscii(segment) : null);
+	}
+
+	private static String toLowerCaseAscii(String segment) {
+		char[] chars = null;
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c >= 'A' && c <= 'Z') {
+				if (chars == null) {
+					chars = segment.toCharArray();
+				}
+				chars[i] = (char) (c + ('a' - 'A'));
+			}
+		}
+		return (chars != null ? new String(chars) : segment);
+	}
+
+
 	private static class EmptyHandler {
 
 		@SuppressWarnings("unused")
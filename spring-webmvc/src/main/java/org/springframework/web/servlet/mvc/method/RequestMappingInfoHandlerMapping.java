@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -94,6 +94,18 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getMatchingCondition(request);
 	}
 
+	/**
+	 * A {@link RequestMappingInfo} with URL patterns matches only requests with
+	 * a lookup path that matches one of them, so mappings are indexed by the
+	 * literal leading segments of their patterns. Subclasses that override
+	 * {@link #getMatchingMapping} to match other paths must return {@code false}.
+	 * @since 5.2.3
+	 */
+	@Override
+	protected boolean usePathPrefixIndex() {
+		return true;
+	}
+
 	/**
 	 * Provide a Comparator to sort RequestMappingInfos matched to a request.
 	 */
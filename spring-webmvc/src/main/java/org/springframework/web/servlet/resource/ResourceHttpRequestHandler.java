@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.web.servlet.resource;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -28,6 +29,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -88,6 +91,11 @@ import org.springframework.web.util.UrlPathHelper;
  * (if present) so that a {@code 304} status code will be returned as appropriate,
  * avoiding unnecessary overhead for resources that are already cached by the client.
  *
+ * <p>On Servlet containers that support it (e.g. Tomcat with an NIO or APR
+ * connector), file-system resources above the {@link #setSendfileThreshold
+ * sendfile threshold} are handed over to the container for zero-copy transfer
+ * instead of being copied through the response output stream.
+ *
  * @author Keith Donald
  * @author Jeremy Grelle
  * @author Juergen Hoeller
@@ -103,6 +111,14 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 
 	private static final String URL_RESOURCE_CHARSET_PREFIX = "[charset=";
 
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
 
 	private final List<String> locationValues = new ArrayList<>(4);
 
@@ -126,6 +142,8 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 	@Nullable
 	private ResourceRegionHttpMessageConverter resourceRegionHttpMessageConverter;
 
+	private long sendfileThreshold = 48 * 1024;
+
 	@Nullable
 	private ContentNegotiationManager contentNegotiationManager;
 
@@ -257,6 +275,29 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		return this.resourceRegionHttpMessageConverter;
 	}
 
+	/**
+	 * Set the minimum size in bytes of a file-system resource to be served
+	 * through the container's sendfile support, if available, rather than by
+	 * copying it through the {@link #setResourceHttpMessageConverter resource
+	 * converter}. Sendfile is only used for unwrapped requests and responses
+	 * on containers that advertise it through the
+	 * {@code "org.apache.tomcat.sendfile.support"} request attribute.
+	 * <p>By default this is set to 48K, in line with Tomcat's default servlet.
+	 * @param sendfileThreshold the threshold in bytes, or -1 to disable sendfile
+	 * @since 5.2.3
+	 */
+	public void setSendfileThreshold(long sendfileThreshold) {
+		this.sendfileThreshold = sendfileThreshold;
+	}
+
+	/**
+	 * Return the configured sendfile threshold.
+	 * @since 5.2.3
+	 */
+	public long getSendfileThreshold() {
+		return this.sendfileThreshold;
+	}
+
 	/**
 	 * Configure a {@code ContentNegotiationManager} to help determine the
 	 * media types for resources being served. If the manager contains a path
@@ -486,7 +527,9 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		if (request.getHeader(HttpHeaders.RANGE) == null) {
 			Assert.state(this.resourceHttpMessageConverter != null, "Not initialized");
 			setHeaders(response, resource, mediaType);
-			this.resourceHttpMessageConverter.write(resource, mediaType, outputMessage);
+			if (!prepareSendfile(request, response, resource)) {
+				this.resourceHttpMessageConverter.write(resource, mediaType, outputMessage);
+			}
 		}
 		else {
 			Assert.state(this.resourceRegionHttpMessageConverter != null, "Not initialized");
@@ -505,6 +548,34 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		}
 	}
 
+	/**
+	 * Hand the given resource over to the container's sendfile support, if
+	 * the container supports it and the resource is a sufficiently large file.
+	 * @return {@code true} if the container will write the response body,
+	 * or {@code false} if the body still needs to be written
+	 */
+	private boolean prepareSendfile(HttpServletRequest request, HttpServletResponse response, Resource resource)
+			throws IOException {
+
+		if (this.sendfileThreshold < 0 || !resource.isFile() ||
+				!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE)) ||
+				request instanceof ServletRequestWrapper || response instanceof ServletResponseWrapper) {
+			return false;
+		}
+		long length = resource.contentLength();
+		if (length < this.sendfileThreshold) {
+			return false;
+		}
+		File file = resource.getFile();
+		request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+		request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+		request.setAttribute(SENDFILE_END_ATTRIBUTE, length);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Using sendfile for [" + resource + "]");
+		}
+		return true;
+	}
+
 	@Nullable
 	protected Resource getResource(HttpServletRequest request) throws IOException {
 		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
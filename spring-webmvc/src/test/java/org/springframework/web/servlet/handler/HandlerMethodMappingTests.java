@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -228,6 +228,71 @@ public class HandlerMethodMappingTests {
 		assertThat(this.mapping.getMappingRegistry().getCorsConfiguration(handlerMethod)).isNull();
 	}
 
+	@Test
+	public void pathPrefixIndex() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new PathPrefixIndexHandlerMethodMapping();
+		mapping.registerMapping("/foo/{id}", this.handler, this.method1);
+		mapping.registerMapping("/{name}/baz", this.handler, this.method1);
+		mapping.registerMapping("/bar/{id}", this.handler, this.method2);
+		mapping.registerMapping("/foo", this.handler, this.method2);
+
+		assertThat(mapping.getMappingRegistry().getMappingsByPathPrefix("/foo/1"))
+				.containsExactly("/foo/{id}", "/{name}/baz", "/foo");
+		assertThat(mapping.getMappingRegistry().getMappingsByPathPrefix("/bar/1"))
+				.containsExactly("/{name}/baz", "/bar/{id}");
+		assertThat(mapping.getMappingRegistry().getMappingsByPathPrefix("//FOO.json"))
+				.containsExactly("/foo/{id}", "/{name}/baz", "/foo");
+		assertThat(mapping.getMappingRegistry().getMappingsByPathPrefix("/"))
+				.containsExactly("/{name}/baz");
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bar/1");
+		assertThat(mapping.getHandlerInternal(request).getMethod()).isEqualTo(this.method2);
+		request = new MockHttpServletRequest("GET", "/qux/baz");
+		assertThat(mapping.getHandlerInternal(request).getMethod()).isEqualTo(this.method1);
+		request = new MockHttpServletRequest("GET", "/qux/1");
+		assertThat(mapping.getHandlerInternal(request)).isNull();
+
+		mapping.unregisterMapping("/bar/{id}");
+		assertThat(mapping.getMappingRegistry().getMappingsByPathPrefix("/bar/1"))
+				.containsExactly("/{name}/baz");
+	}
+
+	@Test
+	public void pathPrefixIndexBeyondLeadingSegment() {
+		AbstractHandlerMethodMapping<String> mapping = new PathPrefixIndexHandlerMethodMapping();
+		mapping.registerMapping("/api/users/{id}", this.handler, this.method1);
+		mapping.registerMapping("/api/**", this.handler, this.method1);
+		mapping.registerMapping("/api/orders/{id}", this.handler, this.method2);
+		mapping.registerMapping("/**", this.handler, this.method2);
+
+		AbstractHandlerMethodMapping<String>.MappingRegistry registry = mapping.getMappingRegistry();
+		assertThat(registry.getMappingsByPathPrefix("/api/users/1"))
+				.containsExactly("/api/users/{id}", "/api/**", "/**");
+		assertThat(registry.getMappingsByPathPrefix("/api/orders/1"))
+				.containsExactly("/api/**", "/api/orders/{id}", "/**");
+		assertThat(registry.getMappingsByPathPrefix("/api/other/1"))
+				.containsExactly("/api/**", "/**");
+		assertThat(registry.getMappingsByPathPrefix("/API/Users.json"))
+				.containsExactly("/api/users/{id}", "/api/**", "/**");
+		assertThat(registry.getMappingsByPathPrefix("/other"))
+				.containsExactly("/**");
+		assertThat(registry.getMappingsByPathPrefix("/api/users/1"))
+				.isSameAs(registry.getMappingsByPathPrefix("/api/users/2"));
+
+		mapping.unregisterMapping("/api/users/{id}");
+		assertThat(registry.getMappingsByPathPrefix("/api/users/1"))
+				.containsExactly("/api/**", "/**");
+		mapping.registerMapping("/api/users/{id}", this.handler, this.method1);
+		assertThat(registry.getMappingsByPathPrefix("/api/users/1"))
+				.containsExactly("/api/**", "/**", "/api/users/{id}");
+	}
+
+	@Test
+	public void pathPrefixIndexNotUsedByDefault() {
+		this.mapping.registerMapping("/foo/{id}", this.handler, this.method1);
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix("/foo/1")).isNull();
+	}
+
 	@Test
 	public void getCorsConfigWithBeanNameHandler() throws Exception {
 
@@ -296,6 +361,20 @@ public class HandlerMethodMappingTests {
 
 	}
 
+	private static class PathPrefixIndexHandlerMethodMapping extends MyHandlerMethodMapping {
+
+		@Override
+		protected Set<String> getMappingPathPatterns(String key) {
+			return Collections.singleton(key);
+		}
+
+		@Override
+		protected boolean usePathPrefixIndex() {
+			return true;
+		}
+	}
+
+
 	private static class SimpleMappingNamingStrategy implements HandlerMethodMappingNamingStrategy<String> {
 
 		@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -120,6 +120,17 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertThat(handlerMethod.getMethod()).isEqualTo(this.barMethod.getMethod());
 	}
 
+	@Test
+	public void getHandlerSuffixPatternMatch() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo.json");
+		HandlerMethod handlerMethod = getHandler(request);
+		assertThat(handlerMethod.getMethod()).isEqualTo(this.fooMethod.getMethod());
+
+		request = new MockHttpServletRequest("GET", "/foo/");
+		handlerMethod = getHandler(request);
+		assertThat(handlerMethod.getMethod()).isEqualTo(this.fooMethod.getMethod());
+	}
+
 	@Test
 	public void getHandlerEmptyPathMatch() throws Exception {
 		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");